@@ -0,0 +1,164 @@
+package com.wassimlagnaoui.Ecommerce.Configuration;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Estimated heap size in bytes of a cache entry, used as its Caffeine weight so that a cached
+ * 100k-element list counts for what it holds rather than as one entry. Walks strings, boxed values,
+ * arrays, collections, maps, Optionals and the application's own DTOs and records (by their instance
+ * fields); large collections are estimated from a sample of their elements, and other JDK objects
+ * (dates, decimals, ...) count as a small fixed size. Assumes compressed references.
+ */
+public final class CacheEntryWeigher {
+
+    private static final int HEADER = 16;
+    private static final int REFERENCE = 4;
+    private static final int OTHER_OBJECT = 48;
+    private static final int SAMPLE_SIZE = 32;
+    private static final int MAX_DEPTH = 8;
+    private static final String APPLICATION_PACKAGE = "com.wassimlagnaoui.";
+
+    private static final ClassValue<Field[]> INSTANCE_FIELDS = new ClassValue<>() {
+        @Override
+        protected Field[] computeValue(Class<?> type) {
+            List<Field> fields = new ArrayList<>();
+            for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+                for (Field field : current.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers())) {
+                        field.setAccessible(true);
+                        fields.add(field);
+                    }
+                }
+            }
+            return fields.toArray(new Field[0]);
+        }
+    };
+
+    private CacheEntryWeigher() {
+    }
+
+    public static int weigh(Object key, Object value) {
+        long bytes = estimate(key) + estimate(value);
+        return (int) Math.max(1, Math.min(Integer.MAX_VALUE, bytes));
+    }
+
+    public static long estimate(Object value) {
+        return estimate(value, 0, Collections.newSetFromMap(new IdentityHashMap<>()));
+    }
+
+    // seen: objects already counted, so shared and cyclic references count once
+    private static long estimate(Object value, int depth, Set<Object> seen) {
+        if (value == null) {
+            return 0;
+        }
+        if (depth > MAX_DEPTH) {
+            return HEADER;
+        }
+        if (value instanceof String string) {
+            // String object plus its (Latin-1 compacted) byte array
+            return align(HEADER + 8) + align(HEADER + string.length());
+        }
+        if (value instanceof Enum<?> || value instanceof Boolean) {
+            return 0; // shared instances
+        }
+        if (value instanceof Number || value instanceof Character) {
+            return value instanceof Long || value instanceof Double ? 24 : 16;
+        }
+        if (!seen.add(value)) {
+            return 0;
+        }
+        if (value instanceof Optional<?> optional) {
+            return HEADER + estimate(optional.orElse(null), depth + 1, seen);
+        }
+        Class<?> type = value.getClass();
+        if (type.isArray()) {
+            return estimateArray(value, type.getComponentType(), depth, seen);
+        }
+        if (value instanceof Collection<?> collection) {
+            // Object plus a backing array (or nodes) of references
+            return align(HEADER + 16) + align(HEADER + (long) REFERENCE * collection.size()) + sample(collection, depth, seen);
+        }
+        if (value instanceof Map<?, ?> map) {
+            // Table plus one node (header, hash, key, value, next) per entry
+            return align(HEADER + 32) + (align(HEADER + 4 + 3 * REFERENCE) + REFERENCE) * (long) map.size()
+                    + sample(map.keySet(), depth, seen) + sample(map.values(), depth, seen);
+        }
+        if (type.getName().startsWith(APPLICATION_PACKAGE)) {
+            return estimateFields(value, type, depth, seen);
+        }
+        return OTHER_OBJECT;
+    }
+
+    private static long estimateArray(Object array, Class<?> componentType, int depth, Set<Object> seen) {
+        if (componentType.isPrimitive()) {
+            int length = Array.getLength(array);
+            return align(HEADER + (long) length * primitiveSize(componentType));
+        }
+        Object[] elements = (Object[]) array;
+        return align(HEADER + (long) REFERENCE * elements.length) + sample(Arrays.asList(elements), depth, seen);
+    }
+
+    private static long estimateFields(Object value, Class<?> type, int depth, Set<Object> seen) {
+        long shallow = HEADER;
+        long referenced = 0;
+        for (Field field : INSTANCE_FIELDS.get(type)) {
+            Class<?> fieldType = field.getType();
+            if (fieldType.isPrimitive()) {
+                shallow += primitiveSize(fieldType);
+                continue;
+            }
+            shallow += REFERENCE;
+            try {
+                referenced += estimate(field.get(value), depth + 1, seen);
+            } catch (IllegalAccessException e) {
+                referenced += OTHER_OBJECT;
+            }
+        }
+        return align(shallow) + referenced;
+    }
+
+    // Sum over the first SAMPLE_SIZE elements, scaled up to the whole collection
+    private static long sample(Collection<?> elements, int depth, Set<Object> seen) {
+        int size = elements.size();
+        if (size == 0) {
+            return 0;
+        }
+        long sampled = 0;
+        int count = 0;
+        for (Object element : elements) {
+            sampled += estimate(element, depth + 1, seen);
+            if (++count == SAMPLE_SIZE) {
+                break;
+            }
+        }
+        return count == size ? sampled : sampled * size / count;
+    }
+
+    private static int primitiveSize(Class<?> type) {
+        if (type == long.class || type == double.class) {
+            return 8;
+        }
+        if (type == int.class || type == float.class) {
+            return 4;
+        }
+        if (type == short.class || type == char.class) {
+            return 2;
+        }
+        return 1;
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+}
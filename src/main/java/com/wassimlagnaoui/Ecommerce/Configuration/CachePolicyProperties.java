@@ -0,0 +1,128 @@
+package com.wassimlagnaoui.Ecommerce.Configuration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Per-cache policies, e.g. {@code app.cache.specs.order.maximum-weight=32MB}. A cache without a spec,
+ * or a setting a spec leaves out, falls back to {@code app.cache.specs.default}. A maximum weight (in
+ * estimated heap bytes, see {@link CacheEntryWeigher}) takes precedence over a maximum size.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.cache")
+public class CachePolicyProperties {
+
+    public static final String DEFAULT_SPEC = "default";
+
+    // Refresh-ahead behaviour of the product and order caches (see RefreshAheadCache)
+    private double ttlJitter = 0.1;
+    private double refreshAhead = 0.8;
+    private Duration staleWhileRevalidate = Duration.ofMinutes(1);
+    private int refreshThreads = 2;
+    private Map<String, Spec> specs = new LinkedHashMap<>();
+    private OffHeap offHeap = new OffHeap();
+
+    public static class Spec {
+
+        private Integer initialCapacity;
+        private Long maximumSize;
+        private DataSize maximumWeight;
+        private Duration expireAfterWrite;
+        private Duration expireAfterAccess;
+
+        // Getters and setters
+        public Integer getInitialCapacity() { return initialCapacity; }
+        public void setInitialCapacity(Integer initialCapacity) { this.initialCapacity = initialCapacity; }
+        public Long getMaximumSize() { return maximumSize; }
+        public void setMaximumSize(Long maximumSize) { this.maximumSize = maximumSize; }
+        public DataSize getMaximumWeight() { return maximumWeight; }
+        public void setMaximumWeight(DataSize maximumWeight) { this.maximumWeight = maximumWeight; }
+        public Duration getExpireAfterWrite() { return expireAfterWrite; }
+        public void setExpireAfterWrite(Duration expireAfterWrite) { this.expireAfterWrite = expireAfterWrite; }
+        public Duration getExpireAfterAccess() { return expireAfterAccess; }
+        public void setExpireAfterAccess(Duration expireAfterAccess) { this.expireAfterAccess = expireAfterAccess; }
+    }
+
+    // Off-heap tier for large list values of the listed caches (see OffHeapStore)
+    public static class OffHeap {
+
+        private boolean enabled = true;
+        private List<String> caches = new ArrayList<>(List.of("orders"));
+        private DataSize minValueSize = DataSize.ofKilobytes(256);
+        private DataSize maxSize = DataSize.ofMegabytes(256);
+
+        // Getters and setters
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+        public List<String> getCaches() { return caches; }
+        public void setCaches(List<String> caches) { this.caches = caches; }
+        public DataSize getMinValueSize() { return minValueSize; }
+        public void setMinValueSize(DataSize minValueSize) { this.minValueSize = minValueSize; }
+        public DataSize getMaxSize() { return maxSize; }
+        public void setMaxSize(DataSize maxSize) { this.maxSize = maxSize; }
+    }
+
+    // The cache's spec merged over the default spec. Names match ignoring case and dashes
+    // (userOrders = user-orders), since property map keys don't keep their case.
+    public Spec resolve(String cacheName) {
+        Spec defaults = find(DEFAULT_SPEC);
+        Spec spec = find(cacheName);
+        Spec resolved = new Spec();
+        resolved.setInitialCapacity(pick(spec != null ? spec.getInitialCapacity() : null, defaults != null ? defaults.getInitialCapacity() : null));
+        resolved.setMaximumWeight(pick(spec != null ? spec.getMaximumWeight() : null, defaults != null ? defaults.getMaximumWeight() : null));
+        resolved.setMaximumSize(pick(spec != null ? spec.getMaximumSize() : null, defaults != null ? defaults.getMaximumSize() : null));
+        resolved.setExpireAfterWrite(pick(spec != null ? spec.getExpireAfterWrite() : null, defaults != null ? defaults.getExpireAfterWrite() : null));
+        resolved.setExpireAfterAccess(pick(spec != null ? spec.getExpireAfterAccess() : null, defaults != null ? defaults.getExpireAfterAccess() : null));
+        // A cache's own bound or expiry replaces the default one, whichever kind it is
+        if (spec != null && spec.getMaximumSize() != null && spec.getMaximumWeight() == null) {
+            resolved.setMaximumWeight(null);
+        }
+        if (spec != null && spec.getExpireAfterWrite() != null && spec.getExpireAfterAccess() == null) {
+            resolved.setExpireAfterAccess(null);
+        }
+        if (spec != null && spec.getExpireAfterAccess() != null && spec.getExpireAfterWrite() == null) {
+            resolved.setExpireAfterWrite(null);
+        }
+        return resolved;
+    }
+
+    private Spec find(String cacheName) {
+        String wanted = normalize(cacheName);
+        for (Map.Entry<String, Spec> entry : specs.entrySet()) {
+            if (normalize(entry.getKey()).equals(wanted)) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    private static String normalize(String name) {
+        return name.replace("-", "").toLowerCase(Locale.ROOT);
+    }
+
+    private static <T> T pick(T value, T fallback) {
+        return value != null ? value : fallback;
+    }
+
+    // Getters and setters
+    public double getTtlJitter() { return ttlJitter; }
+    public void setTtlJitter(double ttlJitter) { this.ttlJitter = ttlJitter; }
+    public double getRefreshAhead() { return refreshAhead; }
+    public void setRefreshAhead(double refreshAhead) { this.refreshAhead = refreshAhead; }
+    public Duration getStaleWhileRevalidate() { return staleWhileRevalidate; }
+    public void setStaleWhileRevalidate(Duration staleWhileRevalidate) { this.staleWhileRevalidate = staleWhileRevalidate; }
+    public int getRefreshThreads() { return refreshThreads; }
+    public void setRefreshThreads(int refreshThreads) { this.refreshThreads = refreshThreads; }
+    public Map<String, Spec> getSpecs() { return specs; }
+    public void setSpecs(Map<String, Spec> specs) { this.specs = specs; }
+    public OffHeap getOffHeap() { return offHeap; }
+    public void setOffHeap(OffHeap offHeap) { this.offHeap = offHeap; }
+}
@@ -0,0 +1,49 @@
+package com.wassimlagnaoui.Ecommerce.Configuration;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.Callable;
+
+/**
+ * Exposes, for the duration of each {@code @Cacheable} call, how to call the same method again through
+ * its proxy; RefreshAheadCache uses it to refresh an entry off-thread with the method's transaction
+ * and routing instead of replaying a loader whose call has already returned. Ordered ahead of the
+ * cache advisor (lowest precedence) so the reloader is in place when the cache is asked.
+ */
+@Aspect
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 1)
+public class CacheRefreshAspect {
+
+    @Around("@annotation(org.springframework.cache.annotation.Cacheable)")
+    public Object exposeReloader(ProceedingJoinPoint joinPoint) throws Throwable {
+        Object proxy = joinPoint.getThis();
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        Object[] args = joinPoint.getArgs().clone();
+        Callable<?> previous = RefreshAheadCache.exposeReloader(() -> invoke(proxy, method, args));
+        try {
+            return joinPoint.proceed();
+        } finally {
+            RefreshAheadCache.restoreReloader(previous);
+        }
+    }
+
+    private static Object invoke(Object proxy, Method method, Object[] args) throws Exception {
+        try {
+            return method.invoke(proxy, args);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -1,99 +1,161 @@
 package com.wassimlagnaoui.Ecommerce.Configuration;
 
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.wassimlagnaoui.Ecommerce.Service.ResponseBytesCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCache;
 import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.support.SimpleCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Cache managers; every cache's bounds and expiry come from its app.cache.specs entry (see
+ * CachePolicyProperties). Caches bounded by weight weigh entries by estimated heap size, so list
+ * results are bounded by what they hold rather than counted as one entry. Large list values of the
+ * app.cache.off-heap caches are kept off-heap (see OffHeapTierCache).
+ */
 @Configuration
 @EnableCaching
 public class CachingConfig {
 
+    private final CachePolicyProperties cachePolicyProperties;
+
+    private ExecutorService cacheRefreshExecutor;
+
+    public CachingConfig(CachePolicyProperties cachePolicyProperties) {
+        this.cachePolicyProperties = cachePolicyProperties;
+    }
+
+    // Default cache manager: caches are created on first use, each from its own spec or the default one
     @Bean
     @Primary
     public CacheManager cacheManager() {
-        CaffeineCacheManager cacheManager = new CaffeineCacheManager(); // Default cache manager: no specific cache names
-        cacheManager.setCaffeine(caffeineCacheBuilder()); // Default cache configuration
-        return cacheManager;
+        return new CaffeineCacheManager() {
+            @Override
+            protected Cache<Object, Object> createNativeCaffeineCache(String name) {
+                return caffeine(name).build();
+            }
+        };
     }
 
-    @Bean
-    public Caffeine<Object, Object> caffeineCacheBuilder() {
-        return Caffeine.newBuilder()
-                .initialCapacity(100) // initial capacity of the cache
-                .maximumSize(500) // maximum number of entries in the cache
-                .expireAfterAccess(10, TimeUnit.MINUTES) // expire entries after 10 minutes of access
-                .weakKeys() // use weak references for keys
-                .recordStats(); // enable statistics for monitoring
+    @Bean("productCacheManager")
+    public CacheManager productCacheManager(MeterRegistry meterRegistry, OffHeapStore offHeapStore) {
+        return cacheManager(
+                offHeapTier(refreshAheadCache("product", meterRegistry), offHeapStore),
+                // Encoded response bodies are revalidated by ETag, no refresh-ahead needed
+                caffeineCache(ResponseBytesCache.CACHE_NAME));
     }
 
-    @Bean("productCacheManager")
-    public CacheManager productCacheManager() {
-        CaffeineCacheManager cacheManager = new CaffeineCacheManager("products", "product");
-        cacheManager.setCaffeine(productCacheBuilder());
-        return cacheManager;
+    @Bean("categoryCacheManager")
+    public CacheManager categoryCacheManager() {
+        return cacheManager(caffeineCache("categories"), caffeineCache("category"));
     }
 
-    @Bean
-    public Caffeine<Object, Object> productCacheBuilder() {
-        return Caffeine.newBuilder()
-                .initialCapacity(200)
-                .maximumSize(1000)
-                .expireAfterWrite(30, TimeUnit.MINUTES)
-                .refreshAfterWrite(15, TimeUnit.MINUTES)
-                .recordStats();
+    @Bean("customerCacheManager")
+    public CacheManager customerCacheManager() {
+        return cacheManager(caffeineCache("customers"), caffeineCache("customer"));
     }
 
-    @Bean("categoryCacheManager")
-    public CacheManager categoryCacheManager() {
-        CaffeineCacheManager cacheManager = new CaffeineCacheManager("categories", "category");
-        cacheManager.setCaffeine(categoryCacheBuilder());
-        return cacheManager;
+    @Bean("orderCacheManager")
+    public CacheManager orderCacheManager(MeterRegistry meterRegistry, OffHeapStore offHeapStore) {
+        return cacheManager(
+                offHeapTier(refreshAheadCache("orders", meterRegistry), offHeapStore),
+                offHeapTier(refreshAheadCache("order", meterRegistry), offHeapStore),
+                // Read model maintained in place by CustomerOrderHistoryService through the native Caffeine cache
+                caffeineCache("userOrders"));
     }
 
+    // Shared direct-memory budget of the off-heap tier; values are encoded with the app's Jackson settings
     @Bean
-    public Caffeine<Object, Object> categoryCacheBuilder() {
-        return Caffeine.newBuilder()
-                .initialCapacity(50)
-                .maximumSize(200)
-                .expireAfterWrite(60, TimeUnit.MINUTES)
-                .recordStats();
+    public OffHeapStore offHeapStore(MeterRegistry meterRegistry, Jackson2ObjectMapperBuilder builder) {
+        CachePolicyProperties.OffHeap offHeap = cachePolicyProperties.getOffHeap();
+        return new OffHeapStore(builder.factory(new CBORFactory()).build(),
+                offHeap.getMinValueSize().toBytes(), offHeap.getMaxSize().toBytes(), meterRegistry);
     }
 
-    @Bean("customerCacheManager")
-    public CacheManager customerCacheManager() {
-        CaffeineCacheManager cacheManager = new CaffeineCacheManager("customers", "customer");
-        cacheManager.setCaffeine(customerCacheBuilder());
-        return cacheManager;
+    // Runs the refresh-ahead / stale reloads of the product and order caches; a full queue skips the refresh.
+    // Not a bean: an Executor bean would replace Boot's default task executor
+    @PostConstruct
+    public void createCacheRefreshExecutor() {
+        int threadCount = cachePolicyProperties.getRefreshThreads();
+        AtomicInteger threads = new AtomicInteger();
+        cacheRefreshExecutor = new ThreadPoolExecutor(threadCount, threadCount, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(1000), runnable -> {
+                    Thread thread = new Thread(runnable, "cache-refresh-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
     }
 
-    @Bean
-    public Caffeine<Object, Object> customerCacheBuilder() {
-        return Caffeine.newBuilder()
-                .initialCapacity(100)
-                .maximumSize(500)
-                .expireAfterAccess(20, TimeUnit.MINUTES)
-                .recordStats();
+    @PreDestroy
+    public void shutdownCacheRefreshExecutor() {
+        cacheRefreshExecutor.shutdownNow();
     }
 
-    @Bean("orderCacheManager")
-    public CacheManager orderCacheManager() {
-        CaffeineCacheManager cacheManager = new CaffeineCacheManager("orders", "order", "userOrders");
-        cacheManager.setCaffeine(orderCacheBuilder());
-        return cacheManager;
+    // Caffeine builder for a cache's spec: the weight bound (with the heap-size weigher) wins over a size bound
+    Caffeine<Object, Object> caffeine(String cacheName) {
+        CachePolicyProperties.Spec spec = cachePolicyProperties.resolve(cacheName);
+        Caffeine<Object, Object> builder = Caffeine.newBuilder().recordStats();
+        if (spec.getInitialCapacity() != null) {
+            builder.initialCapacity(spec.getInitialCapacity());
+        }
+        if (spec.getMaximumWeight() != null) {
+            builder.maximumWeight(spec.getMaximumWeight().toBytes()).weigher(CacheEntryWeigher::weigh);
+        } else if (spec.getMaximumSize() != null) {
+            builder.maximumSize(spec.getMaximumSize());
+        }
+        if (spec.getExpireAfterWrite() != null) {
+            builder.expireAfterWrite(spec.getExpireAfterWrite());
+        }
+        if (spec.getExpireAfterAccess() != null) {
+            builder.expireAfterAccess(spec.getExpireAfterAccess());
+        }
+        return builder;
     }
 
-    @Bean
-    public Caffeine<Object, Object> orderCacheBuilder() {
-        return Caffeine.newBuilder()
-                .initialCapacity(150)
-                .maximumSize(800)
-                .expireAfterWrite(15, TimeUnit.MINUTES)
-                .recordStats();
+    private CaffeineCache caffeineCache(String cacheName) {
+        return new CaffeineCache(cacheName, caffeine(cacheName).build());
+    }
+
+    // TTL is the spec's expire-after-write (else expire-after-access); jitter, refresh-ahead and the stale window are shared
+    private RefreshAheadCache refreshAheadCache(String cacheName, MeterRegistry meterRegistry) {
+        CachePolicyProperties.Spec spec = cachePolicyProperties.resolve(cacheName);
+        Duration ttl = spec.getExpireAfterWrite() != null ? spec.getExpireAfterWrite()
+                : spec.getExpireAfterAccess() != null ? spec.getExpireAfterAccess() : Duration.ofMinutes(10);
+        RefreshAheadCache.Policy policy = new RefreshAheadCache.Policy(ttl,
+                cachePolicyProperties.getTtlJitter(), cachePolicyProperties.getRefreshAhead(), cachePolicyProperties.getStaleWhileRevalidate(),
+                spec.getMaximumSize() != null ? spec.getMaximumSize() : 1000,
+                spec.getMaximumWeight() != null ? spec.getMaximumWeight().toBytes() : 0);
+        return new RefreshAheadCache(cacheName, policy, cacheRefreshExecutor, meterRegistry);
+    }
+
+    // userOrders is read and updated through its native cache, so it always stays on the heap
+    private org.springframework.cache.Cache offHeapTier(org.springframework.cache.Cache cache, OffHeapStore offHeapStore) {
+        CachePolicyProperties.OffHeap offHeap = cachePolicyProperties.getOffHeap();
+        return offHeap.isEnabled() && offHeap.getCaches().contains(cache.getName()) ? new OffHeapTierCache(cache, offHeapStore) : cache;
+    }
+
+    private static SimpleCacheManager cacheManager(org.springframework.cache.Cache... caches) {
+        SimpleCacheManager cacheManager = new SimpleCacheManager();
+        cacheManager.setCaches(new ArrayList<>(List.of(caches)));
+        return cacheManager;
     }
 }
@@ -0,0 +1,118 @@
+package com.wassimlagnaoui.Ecommerce.Configuration;
+
+import com.wassimlagnaoui.Ecommerce.Service.RetryOnConflict;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.OptimisticLockException;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Retries {@link RetryOnConflict} methods that fail on an optimistic lock conflict, with bounded
+ * exponential backoff and jitter. Ordered ahead of the transaction and cache advisors (both at the
+ * lowest precedence), so each attempt runs in a new transaction and the cache is only written by
+ * the attempt that succeeds. Conflicts and outcomes are counted per method, which gives the
+ * conflict rate: app.optimistic-lock.conflicts / app.optimistic-lock.calls.
+ */
+@Aspect
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 1)
+public class ConflictRetryAspect {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConflictRetryAspect.class);
+
+    private final MeterRegistry meterRegistry;
+    private final int maxAttempts;
+    private final long initialBackoffNanos;
+    private final long maxBackoffNanos;
+
+    @Autowired
+    public ConflictRetryAspect(MeterRegistry meterRegistry,
+                               @Value("${app.retry.conflict.max-attempts:4}") int maxAttempts,
+                               @Value("${app.retry.conflict.initial-backoff:5ms}") Duration initialBackoff,
+                               @Value("${app.retry.conflict.max-backoff:100ms}") Duration maxBackoff) {
+        this.meterRegistry = meterRegistry;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialBackoffNanos = initialBackoff.toNanos();
+        this.maxBackoffNanos = maxBackoff.toNanos();
+    }
+
+    @Around("@annotation(com.wassimlagnaoui.Ecommerce.Service.RetryOnConflict)")
+    public Object retryOnConflict(ProceedingJoinPoint joinPoint) throws Throwable {
+        // A nested call shares the caller's persistence context; only the outermost call can retry
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return joinPoint.proceed();
+        }
+        String method = joinPoint.getSignature().getDeclaringType().getSimpleName() + "." + joinPoint.getSignature().getName();
+        long backoffNanos = initialBackoffNanos;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                Object result = joinPoint.proceed();
+                outcome(method, attempt == 1 ? "first-attempt" : "retried").increment();
+                return result;
+            } catch (RuntimeException e) {
+                if (!isConflict(e)) {
+                    throw e;
+                }
+                conflicts(method).increment();
+                if (attempt >= maxAttempts) {
+                    outcome(method, "exhausted").increment();
+                    logger.warn("{} still conflicting after {} attempts", method, attempt);
+                    throw e;
+                }
+                if (!sleep(backoffNanos)) {
+                    throw e;
+                }
+                backoffNanos = Math.min(maxBackoffNanos, backoffNanos * 2);
+            }
+        }
+    }
+
+    private static boolean isConflict(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof OptimisticLockingFailureException || cause instanceof OptimisticLockException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Sleeps a random time in [backoff / 2, backoff] so conflicting callers don't retry in lockstep
+    private static boolean sleep(long backoffNanos) {
+        long nanos = backoffNanos / 2 + ThreadLocalRandom.current().nextLong(backoffNanos / 2 + 1);
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private Counter conflicts(String method) {
+        return Counter.builder("app.optimistic-lock.conflicts")
+                .tag("method", method)
+                .register(meterRegistry);
+    }
+
+    private Counter outcome(String method, String outcome) {
+        return Counter.builder("app.optimistic-lock.calls")
+                .tag("method", method)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,32 @@
+package com.wassimlagnaoui.Ecommerce.Configuration;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.time.Duration;
+
+@Configuration
+public class DataSourceInstrumentationConfig {
+
+    // Wraps the application pool (auto-configured or Dev profile) so slow borrows are logged.
+    // The replica setup wraps its primary pool itself, see ReplicaRoutingConfig.
+    @Bean
+    public static BeanPostProcessor slowBorrowLoggingPostProcessor(Environment environment) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource hikariDataSource && "dataSource".equals(beanName)) {
+                    return new SlowBorrowLoggingDataSource(hikariDataSource, slowBorrowThreshold(environment));
+                }
+                return bean;
+            }
+        };
+    }
+
+    static long slowBorrowThreshold(Environment environment) {
+        return environment.getProperty("app.datasource.slow-borrow-threshold", Duration.class, Duration.ofMillis(50)).toMillis();
+    }
+}
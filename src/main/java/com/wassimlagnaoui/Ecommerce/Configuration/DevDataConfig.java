@@ -1,6 +1,7 @@
 package com.wassimlagnaoui.Ecommerce.Configuration;
 
 
+import com.zaxxer.hikari.HikariDataSource;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
@@ -12,14 +13,19 @@ import javax.sql.DataSource;
 public class DevDataConfig {
     // Configuration specific to the "Dev" profile ( H2 Database, etc. )
 
-    //creating H2 database configuration bean
+    //creating H2 database configuration bean (pooled, so borrows don't open a new connection each time)
     @Bean
     public DataSource dataSource() {
-        org.springframework.jdbc.datasource.DriverManagerDataSource dataSource = new org.springframework.jdbc.datasource.DriverManagerDataSource();
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName("dev");
         dataSource.setDriverClassName("org.h2.Driver");
-        dataSource.setUrl("jdbc:h2:mem:testdb;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE");
+        dataSource.setJdbcUrl("jdbc:h2:mem:testdb;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE");
         dataSource.setUsername("sa");
         dataSource.setPassword("");
+        dataSource.setMaximumPoolSize(10);
+        dataSource.setMinimumIdle(2);
+        dataSource.setConnectionTimeout(3000);
+        dataSource.setLeakDetectionThreshold(10000);
         return dataSource;
     }
 
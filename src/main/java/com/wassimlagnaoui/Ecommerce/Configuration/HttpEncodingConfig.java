@@ -0,0 +1,18 @@
+package com.wassimlagnaoui.Ecommerce.Configuration;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+@Configuration
+public class HttpEncodingConfig {
+
+    // CBOR form of the same DTOs for internal consumers (Accept: application/cbor),
+    // built from the Boot-configured Jackson builder so both encodings share the same settings
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+}
@@ -0,0 +1,138 @@
+package com.wassimlagnaoui.Ecommerce.Configuration;
+
+import com.wassimlagnaoui.Ecommerce.Repository.HotPathFinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.ApplicationContext;
+import org.springframework.data.repository.core.RepositoryInformation;
+import org.springframework.data.repository.support.Repositories;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * Startup check that every repository finder marked with {@link HotPathFinder}
+ * is backed by a (non-partial) index whose leading columns match the declaration.
+ * Mode is controlled by app.schema.index-check: fail (default), warn or off.
+ */
+@Component
+public class IndexCoverageVerifier implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(IndexCoverageVerifier.class);
+
+    private final DataSource dataSource;
+    private final ApplicationContext applicationContext;
+
+    @Value("${app.schema.index-check:fail}")
+    private String mode;
+
+    @Autowired
+    public IndexCoverageVerifier(DataSource dataSource, ApplicationContext applicationContext) {
+        this.dataSource = dataSource;
+        this.applicationContext = applicationContext;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws SQLException {
+        if ("off".equalsIgnoreCase(mode)) {
+            return;
+        }
+
+        List<String> uncovered = new ArrayList<>();
+        int checked = 0;
+        Repositories repositories = new Repositories(applicationContext);
+        Map<String, List<List<String>>> indexesByTable = new HashMap<>();
+
+        try (Connection connection = dataSource.getConnection()) {
+            DatabaseMetaData metaData = connection.getMetaData();
+            for (Class<?> domainType : repositories) {
+                Optional<RepositoryInformation> information = repositories.getRepositoryInformationFor(domainType);
+                if (information.isEmpty()) {
+                    continue;
+                }
+                Class<?> repositoryInterface = information.get().getRepositoryInterface();
+                for (Method method : repositoryInterface.getMethods()) {
+                    HotPathFinder finder = method.getAnnotation(HotPathFinder.class);
+                    if (finder == null) {
+                        continue;
+                    }
+                    checked++;
+                    List<List<String>> indexes = indexesByTable.get(finder.table());
+                    if (indexes == null) {
+                        indexes = loadIndexes(connection, metaData, finder.table());
+                        indexesByTable.put(finder.table(), indexes);
+                    }
+                    if (!isCovered(indexes, finder.columns())) {
+                        uncovered.add(repositoryInterface.getSimpleName() + "." + method.getName()
+                                + " -> " + finder.table() + Arrays.toString(finder.columns()));
+                    }
+                }
+            }
+        }
+
+        if (uncovered.isEmpty()) {
+            logger.info("All {} hot-path finders are backed by an index", checked);
+        } else if ("warn".equalsIgnoreCase(mode)) {
+            logger.warn("Hot-path finders without a supporting index: {}", uncovered);
+        } else {
+            throw new IllegalStateException("Hot-path finders without a supporting index: " + uncovered);
+        }
+    }
+
+    // Column lists (in index order) of every full index on the table
+    private List<List<String>> loadIndexes(Connection connection, DatabaseMetaData metaData, String table) throws SQLException {
+        String tableName = metaData.storesUpperCaseIdentifiers() ? table.toUpperCase(Locale.ROOT) : table;
+        Map<String, TreeMap<Short, String>> columnsByIndex = new HashMap<>();
+        try (ResultSet resultSet = metaData.getIndexInfo(connection.getCatalog(), connection.getSchema(), tableName, false, false)) {
+            while (resultSet.next()) {
+                String indexName = resultSet.getString("INDEX_NAME");
+                String columnName = resultSet.getString("COLUMN_NAME");
+                // Statistics rows have no index name; partial indexes only serve their own predicate
+                if (indexName == null || columnName == null || resultSet.getString("FILTER_CONDITION") != null) {
+                    continue;
+                }
+                columnsByIndex.computeIfAbsent(indexName, name -> new TreeMap<>())
+                        .put(resultSet.getShort("ORDINAL_POSITION"), columnName.toLowerCase(Locale.ROOT));
+            }
+        }
+        return columnsByIndex.values().stream()
+                .map(columns -> (List<String>) new ArrayList<>(columns.values()))
+                .toList();
+    }
+
+    private boolean isCovered(List<List<String>> indexes, String[] requiredColumns) {
+        for (List<String> indexColumns : indexes) {
+            if (indexColumns.size() < requiredColumns.length) {
+                continue;
+            }
+            boolean prefixMatches = true;
+            for (int i = 0; i < requiredColumns.length; i++) {
+                if (!indexColumns.get(i).equalsIgnoreCase(requiredColumns[i])) {
+                    prefixMatches = false;
+                    break;
+                }
+            }
+            if (prefixMatches) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
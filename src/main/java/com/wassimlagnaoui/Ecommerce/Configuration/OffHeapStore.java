@@ -0,0 +1,123 @@
+package com.wassimlagnaoui.Ecommerce.Configuration;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Off-heap storage for large cached lists. A list of DTOs is encoded to CBOR into a direct ByteBuffer,
+ * so the heap cache only holds a small handle and the DTO graph doesn't sit in the old generation.
+ * Direct memory is released when the handle is collected (after its cache entry is evicted); the bytes
+ * of live handles count against a fixed budget, and values that don't fit stay on the heap.
+ */
+public class OffHeapStore {
+
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    private final ObjectMapper cborMapper;
+    private final long minValueBytes;
+    private final long maxBytes;
+    private final AtomicLong usedBytes = new AtomicLong();
+    private final Counter stored;
+    private final Counter rejected;
+
+    /**
+     * Handle kept in the heap cache in place of the list. Reads decode a new list from the buffer.
+     */
+    public static final class OffHeapValue {
+
+        private final ByteBuffer buffer;
+        private final JavaType type;
+
+        private OffHeapValue(ByteBuffer buffer, JavaType type) {
+            this.buffer = buffer;
+            this.type = type;
+        }
+
+        public int size() {
+            return buffer.capacity();
+        }
+    }
+
+    public OffHeapStore(ObjectMapper cborMapper, long minValueBytes, long maxBytes, MeterRegistry meterRegistry) {
+        this.cborMapper = cborMapper;
+        this.minValueBytes = minValueBytes;
+        this.maxBytes = maxBytes;
+        this.stored = Counter.builder("app.cache.offheap.admissions").tag("result", "stored").register(meterRegistry);
+        this.rejected = Counter.builder("app.cache.offheap.admissions").tag("result", "over-budget").register(meterRegistry);
+        Gauge.builder("app.cache.offheap.bytes", usedBytes, AtomicLong::get)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    // Admission: only lists of one element type whose estimated heap size reaches minValueBytes move
+    // off-heap; everything else (and anything over the budget) is returned as is
+    public Object admit(Object value) {
+        if (!(value instanceof List<?> list) || list.isEmpty()) {
+            return value;
+        }
+        Class<?> elementType = elementType(list);
+        if (elementType == null || CacheEntryWeigher.estimate(value) < minValueBytes) {
+            return value;
+        }
+        byte[] bytes;
+        try {
+            bytes = cborMapper.writeValueAsBytes(value);
+        } catch (IOException e) {
+            return value;
+        }
+        if (usedBytes.addAndGet(bytes.length) > maxBytes) {
+            usedBytes.addAndGet(-bytes.length);
+            rejected.increment();
+            return value;
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+        OffHeapValue handle = new OffHeapValue(buffer,
+                cborMapper.getTypeFactory().constructCollectionType(List.class, elementType));
+        long size = bytes.length;
+        CLEANER.register(handle, () -> usedBytes.addAndGet(-size));
+        stored.increment();
+        return handle;
+    }
+
+    // Decodes a handle; any other value is returned as is
+    public Object resolve(Object value) {
+        if (!(value instanceof OffHeapValue handle)) {
+            return value;
+        }
+        try {
+            return cborMapper.readValue(new ByteBufferBackedInputStream(handle.buffer.duplicate()), handle.type);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not decode an off-heap cache value", e);
+        }
+    }
+
+    public long getUsedBytes() {
+        return usedBytes.get();
+    }
+
+    // The common class of all elements, or null when they differ or are null (no single type to decode into)
+    private static Class<?> elementType(List<?> list) {
+        Object first = list.get(0);
+        if (first == null) {
+            return null;
+        }
+        Class<?> type = first.getClass();
+        for (Object element : list) {
+            if (element == null || element.getClass() != type) {
+                return null;
+            }
+        }
+        return type;
+    }
+}
@@ -0,0 +1,97 @@
+package com.wassimlagnaoui.Ecommerce.Configuration;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Puts large values of a cache off-heap (see OffHeapStore) under the same cache name. The delegate
+ * keeps its own bounds, expiry and refresh-ahead behaviour; it just holds a handle for large values.
+ */
+public class OffHeapTierCache implements Cache {
+
+    private final Cache delegate;
+    private final OffHeapStore offHeapStore;
+
+    public OffHeapTierCache(Cache delegate, OffHeapStore offHeapStore) {
+        this.delegate = delegate;
+        this.offHeapStore = offHeapStore;
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return delegate.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        ValueWrapper wrapper = delegate.get(key);
+        if (wrapper == null || !(wrapper.get() instanceof OffHeapStore.OffHeapValue)) {
+            return wrapper;
+        }
+        return new SimpleValueWrapper(offHeapStore.resolve(wrapper.get()));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        Object value = wrapper != null ? wrapper.get() : null;
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        return (T) offHeapStore.resolve(delegate.get(key, () -> offHeapStore.admit(valueLoader.call())));
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        delegate.put(key, offHeapStore.admit(value));
+    }
+
+    // Only encodes the value when the key looks absent; a handle that then loses the race to another
+    // put is dropped and its budget released once collected
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        ValueWrapper existing = get(key);
+        if (existing != null) {
+            return existing;
+        }
+        existing = delegate.putIfAbsent(key, offHeapStore.admit(value));
+        if (existing == null || !(existing.get() instanceof OffHeapStore.OffHeapValue)) {
+            return existing;
+        }
+        return new SimpleValueWrapper(offHeapStore.resolve(existing.get()));
+    }
+
+    @Override
+    public void evict(Object key) {
+        delegate.evict(key);
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        return delegate.evictIfPresent(key);
+    }
+
+    @Override
+    public void clear() {
+        delegate.clear();
+    }
+
+    @Override
+    public boolean invalidate() {
+        return delegate.invalidate();
+    }
+}
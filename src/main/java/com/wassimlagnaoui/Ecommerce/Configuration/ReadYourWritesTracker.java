@@ -0,0 +1,65 @@
+package com.wassimlagnaoui.Ecommerce.Configuration;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.wassimlagnaoui.Ecommerce.Service.AfterCommit;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remembers when each customer last committed a write, so their own reads can be
+ * pinned to the primary until the replicas have caught up. The window is the larger
+ * of the configured stickiness and the replica lag last observed by the router.
+ */
+@Component
+public class ReadYourWritesTracker {
+
+    private final ReplicaProperties replicaProperties;
+    private final Cache<String, Long> lastWriteByCustomer;
+    private volatile long observedLagMillis = 0;
+
+    public ReadYourWritesTracker(ReplicaProperties replicaProperties) {
+        this.replicaProperties = replicaProperties;
+        this.lastWriteByCustomer = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterWrite(replicaProperties.getMaxLag().plus(replicaProperties.getStickiness()).toMillis(), TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    // Records the write once the surrounding transaction commits (immediately when there is none)
+    public void recordWrite(String customerId) {
+        if (customerId == null) {
+            return;
+        }
+        AfterCommit.run(() -> lastWriteByCustomer.put(customerId, System.currentTimeMillis()));
+    }
+
+    public boolean isSticky(String customerId) {
+        if (customerId == null) {
+            return false;
+        }
+        Long lastWrite = lastWriteByCustomer.getIfPresent(customerId);
+        return lastWrite != null && System.currentTimeMillis() - lastWrite < currentWindow().toMillis();
+    }
+
+    // Uses the authenticated customer of the current request
+    public boolean isCurrentCustomerSticky() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof CustomerUserDetails userDetails) {
+            return isSticky(userDetails.getId());
+        }
+        return false;
+    }
+
+    public void updateObservedLag(Duration lag) {
+        this.observedLagMillis = lag.toMillis();
+    }
+
+    public Duration currentWindow() {
+        return Duration.ofMillis(Math.max(replicaProperties.getStickiness().toMillis(), observedLagMillis));
+    }
+}
@@ -0,0 +1,314 @@
+package com.wassimlagnaoui.Ecommerce.Configuration;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Spring cache over Caffeine that stores each value with its own (jittered) freshness window.
+ * With a value loader, i.e. {@code @Cacheable(sync = true)}:
+ * <ul>
+ *   <li>concurrent misses on a key share one load (single flight);</li>
+ *   <li>a hit past refreshAhead of the TTL starts one asynchronous reload and returns the current value;</li>
+ *   <li>a value past its TTL is still served, while it reloads, for staleWhileRevalidate, then it expires.</li>
+ * </ul>
+ * put/evict/clear cancel the storing of a load already in flight, so a load that started before a
+ * write never overwrites the write.
+ * <p>
+ * The value loader Spring passes in belongs to a method call that has already returned, so it is not
+ * run again off-thread. A refresh calls the method again through its proxy (exposed by
+ * CacheRefreshAspect), so it runs with the method's own transaction and routing; that call's load
+ * comes back to this cache, which runs it instead of serving the cached value.
+ */
+public class RefreshAheadCache extends AbstractValueAdaptingCache {
+
+    // maximumWeight (estimated bytes, see CacheEntryWeigher) bounds the cache when positive, otherwise maximumSize
+    public record Policy(Duration ttl, double jitter, double refreshAhead, Duration staleWhileRevalidate, long maximumSize, long maximumWeight) {
+    }
+
+    // Times are System.nanoTime() values, the same clock Caffeine expires with
+    private record Entry(Object value, long refreshAt, long staleAt, long expireAt) {
+    }
+
+    // A refresh in progress on this thread: the load of its key runs and its value is kept here
+    private static final class Refresh {
+        private final RefreshAheadCache cache;
+        private final Object key;
+        private boolean loaded;
+        private Object value;
+
+        private Refresh(RefreshAheadCache cache, Object key) {
+            this.cache = cache;
+            this.key = key;
+        }
+    }
+
+    // Re-invokes the @Cacheable method being called on this thread through its proxy
+    private static final ThreadLocal<Callable<?>> RELOADER = new ThreadLocal<>();
+    private static final ThreadLocal<Refresh> REFRESHING = new ThreadLocal<>();
+
+    private final String name;
+    private final Policy policy;
+    private final Cache<Object, Entry> entries;
+    private final ConcurrentMap<Object, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final Executor refreshExecutor;
+
+    private final Counter loads;
+    private final Counter coalescedLoads;
+    private final Counter refreshes;
+    private final Counter refreshFailures;
+    private final Counter staleHits;
+
+    public RefreshAheadCache(String name, Policy policy, Executor refreshExecutor, MeterRegistry meterRegistry) {
+        super(true);
+        this.name = name;
+        this.policy = policy;
+        this.refreshExecutor = refreshExecutor;
+        Caffeine<Object, Object> builder = Caffeine.newBuilder();
+        if (policy.maximumWeight() > 0) {
+            builder.maximumWeight(policy.maximumWeight())
+                    .weigher((Object key, Object entry) -> CacheEntryWeigher.weigh(key, ((Entry) entry).value()));
+        } else {
+            builder.maximumSize(policy.maximumSize());
+        }
+        this.entries = builder
+                .expireAfter(new Expiry<Object, Entry>() {
+                    @Override
+                    public long expireAfterCreate(Object key, Entry entry, long currentTime) {
+                        return Math.max(0, entry.expireAt() - currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(Object key, Entry entry, long currentTime, long currentDuration) {
+                        return Math.max(0, entry.expireAt() - currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(Object key, Entry entry, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        this.loads = counter("app.cache.loads", "Values loaded by the calling thread on a miss", meterRegistry);
+        this.coalescedLoads = counter("app.cache.loads.coalesced", "Misses that waited for a load already in flight", meterRegistry);
+        this.refreshes = counter("app.cache.refreshes", "Asynchronous refresh-ahead / stale reloads started", meterRegistry);
+        this.refreshFailures = counter("app.cache.refreshes.failed", "Asynchronous reloads that failed; the old value is kept", meterRegistry);
+        this.staleHits = counter("app.cache.stale", "Hits served past the TTL while a reload runs", meterRegistry);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Cache<Object, ?> getNativeCache() {
+        return entries;
+    }
+
+    public Policy getPolicy() {
+        return policy;
+    }
+
+    // Set around each @Cacheable call; returns the reloader of the enclosing call, to restore afterwards
+    static Callable<?> exposeReloader(Callable<?> reloader) {
+        Callable<?> previous = RELOADER.get();
+        RELOADER.set(reloader);
+        return previous;
+    }
+
+    static void restoreReloader(Callable<?> previous) {
+        if (previous != null) {
+            RELOADER.set(previous);
+        } else {
+            RELOADER.remove();
+        }
+    }
+
+    // Without a loader a stale value can still be served, but nothing can reload it
+    @Override
+    protected Object lookup(Object key) {
+        Entry entry = entries.getIfPresent(key);
+        if (entry == null) {
+            return null;
+        }
+        if (System.nanoTime() >= entry.staleAt()) {
+            staleHits.increment();
+        }
+        return entry.value();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        Refresh refresh = REFRESHING.get();
+        if (refresh != null && refresh.cache == this && !refresh.loaded && refresh.key.equals(key)) {
+            refresh.loaded = true;
+            try {
+                refresh.value = toStoreValue(valueLoader.call());
+            } catch (Exception e) {
+                throw new ValueRetrievalException(key, valueLoader, e);
+            }
+            return (T) fromStoreValue(refresh.value);
+        }
+        Entry entry = entries.getIfPresent(key);
+        if (entry != null) {
+            long now = System.nanoTime();
+            if (now >= entry.refreshAt()) {
+                if (now >= entry.staleAt()) {
+                    staleHits.increment();
+                }
+                refreshAsync(key, valueLoader);
+            }
+            return (T) fromStoreValue(entry.value());
+        }
+        return (T) fromStoreValue(loadShared(key, valueLoader));
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        inFlight.remove(key);
+        entries.put(key, newEntry(toStoreValue(value)));
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        Entry existing = entries.asMap().putIfAbsent(key, newEntry(toStoreValue(value)));
+        return existing != null ? toValueWrapper(existing.value()) : null;
+    }
+
+    @Override
+    public void evict(Object key) {
+        inFlight.remove(key);
+        entries.invalidate(key);
+    }
+
+    @Override
+    public void clear() {
+        inFlight.clear();
+        entries.invalidateAll();
+    }
+
+    // The first miss loads; every concurrent miss on the key waits for that load instead of running its own
+    private Object loadShared(Object key, Callable<?> valueLoader) {
+        CompletableFuture<Object> load = new CompletableFuture<>();
+        CompletableFuture<Object> running = inFlight.putIfAbsent(key, load);
+        if (running != null) {
+            coalescedLoads.increment();
+            return await(key, valueLoader, running);
+        }
+        try {
+            // A load may have completed between our miss and registering this one
+            Entry loaded = entries.getIfPresent(key);
+            Object value;
+            if (loaded != null) {
+                value = loaded.value();
+            } else {
+                loads.increment();
+                value = toStoreValue(valueLoader.call());
+                store(key, value, load);
+            }
+            load.complete(value);
+            return value;
+        } catch (Exception e) {
+            load.completeExceptionally(e);
+            throw new ValueRetrievalException(key, valueLoader, e);
+        } finally {
+            inFlight.remove(key, load);
+        }
+    }
+
+    private void refreshAsync(Object key, Callable<?> valueLoader) {
+        CompletableFuture<Object> refresh = new CompletableFuture<>();
+        if (inFlight.putIfAbsent(key, refresh) != null) {
+            return;
+        }
+        Callable<?> reloader = RELOADER.get();
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    // Without a proxy to call (a cache used directly) the loader is all there is
+                    Object value = reloader != null ? reload(key, reloader) : toStoreValue(valueLoader.call());
+                    store(key, value, refresh);
+                    refresh.complete(value);
+                } catch (Exception e) {
+                    refreshFailures.increment();
+                    refresh.completeExceptionally(e);
+                } finally {
+                    inFlight.remove(key, refresh);
+                }
+            });
+            refreshes.increment();
+        } catch (RejectedExecutionException e) {
+            // Refresh pool saturated: keep serving the current value, a later hit retries
+            inFlight.remove(key, refresh);
+            refresh.cancel(false);
+        }
+    }
+
+    private Object reload(Object key, Callable<?> reloader) throws Exception {
+        Refresh refresh = new Refresh(this, key);
+        Refresh enclosing = REFRESHING.get();
+        REFRESHING.set(refresh);
+        try {
+            reloader.call();
+        } finally {
+            if (enclosing != null) {
+                REFRESHING.set(enclosing);
+            } else {
+                REFRESHING.remove();
+            }
+        }
+        if (!refresh.loaded) {
+            throw new IllegalStateException("Reloading cache '" + name + "' key " + key + " did not load it");
+        }
+        return refresh.value;
+    }
+
+    // Only stores when no put/evict/clear happened since the load started
+    private void store(Object key, Object value, CompletableFuture<Object> load) {
+        if (inFlight.get(key) == load) {
+            entries.put(key, newEntry(value));
+        }
+    }
+
+    private Object await(Object key, Callable<?> valueLoader, CompletableFuture<Object> running) {
+        try {
+            return running.join();
+        } catch (CompletionException | CancellationException e) {
+            throw new ValueRetrievalException(key, valueLoader, e.getCause() != null ? e.getCause() : e);
+        }
+    }
+
+    private Entry newEntry(Object value) {
+        long ttl = policy.ttl().toNanos();
+        if (policy.jitter() > 0) {
+            ttl = (long) (ttl * (1 + policy.jitter() * (2 * ThreadLocalRandom.current().nextDouble() - 1)));
+        }
+        long now = System.nanoTime();
+        long staleAt = now + ttl;
+        return new Entry(value, now + (long) (ttl * policy.refreshAhead()), staleAt, staleAt + policy.staleWhileRevalidate().toNanos());
+    }
+
+    private Counter counter(String meter, String description, MeterRegistry meterRegistry) {
+        return Counter.builder(meter)
+                .description(description)
+                .tag("cache", name)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,155 @@
+package com.wassimlagnaoui.Ecommerce.Configuration;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Read-only DataSource behind the LazyConnectionDataSourceProxy: hands out replica
+ * connections round-robin, skips replicas that failed or lag too far behind, and falls
+ * back to the primary when no replica is usable or the current customer has a recent
+ * write that the replicas may not have seen yet.
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final ReadYourWritesTracker readYourWritesTracker;
+    private final ReplicaProperties properties;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private final Counter stickyRoutes;
+    private final Counter fallbackRoutes;
+    private final ScheduledExecutorService lagProbe;
+
+    public ReplicaRoutingDataSource(DataSource primary, List<Replica> replicas, ReadYourWritesTracker readYourWritesTracker,
+                                    ReplicaProperties properties, MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.replicas = replicas;
+        this.readYourWritesTracker = readYourWritesTracker;
+        this.properties = properties;
+        this.stickyRoutes = Counter.builder("app.datasource.route").tag("route", "primary-sticky").register(meterRegistry);
+        this.fallbackRoutes = Counter.builder("app.datasource.route").tag("route", "primary-fallback").register(meterRegistry);
+        for (Replica replica : replicas) {
+            replica.routed = Counter.builder("app.datasource.route").tag("route", replica.name).register(meterRegistry);
+            meterRegistry.gauge("app.datasource.replica.lag", List.of(Tag.of("replica", replica.name)),
+                    replica, r -> r.lagMillis / 1000.0);
+        }
+
+        if (properties.getLagQuery() != null && !properties.getLagQuery().isBlank() && !replicas.isEmpty()) {
+            long interval = properties.getLagCheckInterval().toMillis();
+            this.lagProbe = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "replica-lag-probe");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.lagProbe.scheduleWithFixedDelay(this::probeLag, 0, interval, TimeUnit.MILLISECONDS);
+        } else {
+            this.lagProbe = null;
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (readYourWritesTracker.isCurrentCustomerSticky()) {
+            stickyRoutes.increment();
+            return primary.getConnection();
+        }
+
+        int size = replicas.size();
+        int start = Math.floorMod(nextReplica.getAndIncrement(), Math.max(size, 1));
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (replica.unavailableUntil > now) {
+                continue;
+            }
+            try {
+                Connection connection = replica.dataSource.getConnection();
+                replica.routed.increment();
+                return connection;
+            } catch (SQLException e) {
+                logger.warn("Replica {} unavailable, skipping it for {}: {}", replica.name, properties.getLagCheckInterval(), e.getMessage());
+                replica.unavailableUntil = now + properties.getLagCheckInterval().toMillis();
+            }
+        }
+
+        fallbackRoutes.increment();
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        // Pools are configured with their own credentials
+        return getConnection();
+    }
+
+    // Measures every replica's lag; lagging replicas leave the rotation and widen the stickiness window
+    private void probeLag() {
+        long maxHealthyLag = 0;
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.dataSource.getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery(properties.getLagQuery())) {
+                double lagSeconds = resultSet.next() ? resultSet.getDouble(1) : 0;
+                replica.lagMillis = (long) (lagSeconds * 1000);
+                if (replica.lagMillis > properties.getMaxLag().toMillis()) {
+                    replica.unavailableUntil = System.currentTimeMillis() + properties.getLagCheckInterval().toMillis();
+                    logger.warn("Replica {} is {} ms behind, removed from rotation", replica.name, replica.lagMillis);
+                } else {
+                    replica.unavailableUntil = 0;
+                    maxHealthyLag = Math.max(maxHealthyLag, replica.lagMillis);
+                }
+            } catch (SQLException e) {
+                replica.unavailableUntil = System.currentTimeMillis() + properties.getLagCheckInterval().toMillis();
+                logger.warn("Lag probe failed for replica {}: {}", replica.name, e.getMessage());
+            } catch (RuntimeException e) {
+                logger.error("Lag probe error for replica {}", replica.name, e);
+            }
+        }
+        readYourWritesTracker.updateObservedLag(Duration.ofMillis(maxHealthyLag));
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (lagProbe != null) {
+            lagProbe.shutdownNow();
+        }
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof Closeable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    public static class Replica {
+        private final String name;
+        private final DataSource dataSource;
+        private volatile long unavailableUntil = 0;
+        private volatile long lagMillis = 0;
+        private Counter routed;
+
+        public Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+    }
+}
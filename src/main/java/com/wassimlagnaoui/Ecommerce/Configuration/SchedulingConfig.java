@@ -0,0 +1,10 @@
+package com.wassimlagnaoui.Ecommerce.Configuration;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// Runs the @Scheduled background jobs (e.g. the cache hot-key snapshot) on Boot's scheduler
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
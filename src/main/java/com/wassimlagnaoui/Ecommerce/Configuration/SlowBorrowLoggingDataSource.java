@@ -0,0 +1,67 @@
+package com.wassimlagnaoui.Ecommerce.Configuration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Optional;
+
+/**
+ * Times every connection borrow and logs the ones slower than the threshold together
+ * with the service method that asked for the connection. Closing it closes the wrapped pool,
+ * so a wrapped bean is still shut down by the container's close/destroy-method inference.
+ */
+public class SlowBorrowLoggingDataSource extends DelegatingDataSource implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(SlowBorrowLoggingDataSource.class);
+
+    private static final String SERVICE_PACKAGE = "com.wassimlagnaoui.Ecommerce.Service.";
+
+    private final long thresholdMillis;
+
+    public SlowBorrowLoggingDataSource(DataSource targetDataSource, long thresholdMillis) {
+        super(targetDataSource);
+        this.thresholdMillis = thresholdMillis;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        Connection connection = super.getConnection();
+        logIfSlow(start);
+        return connection;
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        long start = System.nanoTime();
+        Connection connection = super.getConnection(username, password);
+        logIfSlow(start);
+        return connection;
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (getTargetDataSource() instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
+    private void logIfSlow(long start) {
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        if (elapsedMillis >= thresholdMillis) {
+            logger.warn("Slow connection borrow: {} ms for {}", elapsedMillis, findCallingServiceMethod().orElse("unknown caller"));
+        }
+    }
+
+    // Only walked for slow borrows; skips the Spring proxy subclasses
+    private Optional<String> findCallingServiceMethod() {
+        return StackWalker.getInstance().walk(frames -> frames
+                .filter(frame -> frame.getClassName().startsWith(SERVICE_PACKAGE) && !frame.getClassName().contains("$$"))
+                .map(frame -> frame.getClassName().substring(SERVICE_PACKAGE.length()) + "." + frame.getMethodName())
+                .findFirst());
+    }
+}
@@ -0,0 +1,195 @@
+package com.wassimlagnaoui.Ecommerce.Controller;
+
+import com.wassimlagnaoui.Ecommerce.DTO.AnalyticsRebuildResult;
+import com.wassimlagnaoui.Ecommerce.DTO.CacheStatsDTO;
+import com.wassimlagnaoui.Ecommerce.DTO.ColumnarOrderReport;
+import com.wassimlagnaoui.Ecommerce.DTO.ColumnarReportRow;
+import com.wassimlagnaoui.Ecommerce.DTO.ColumnarSnapshotInfo;
+import com.wassimlagnaoui.Ecommerce.DTO.OrderItemBackfillResult;
+import com.wassimlagnaoui.Ecommerce.DTO.SalesRollupDTO;
+import com.wassimlagnaoui.Ecommerce.Service.CacheStatsService;
+import com.wassimlagnaoui.Ecommerce.Service.OrderColumnStore;
+import com.wassimlagnaoui.Ecommerce.Service.OrderItemBackfillService;
+import com.wassimlagnaoui.Ecommerce.Service.SalesAnalyticsService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/admin")
+@CrossOrigin(origins = "*")
+@Tag(name = "Administration", description = "Maintenance and reporting APIs for administrators")
+public class AdminController {
+
+    @Autowired
+    private OrderItemBackfillService orderItemBackfillService;
+
+    @Autowired
+    private SalesAnalyticsService salesAnalyticsService;
+
+    @Autowired
+    private OrderColumnStore orderColumnStore;
+
+    @Autowired
+    private CacheStatsService cacheStatsService;
+
+    @Operation(summary = "Backfill order item product references", description = "Link historical order items to their product by name, in parallel chunks")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Backfill completed")
+    })
+    @PostMapping("/maintenance/order-items/backfill-products")
+    public ResponseEntity<OrderItemBackfillResult> backfillOrderItemProducts() {
+        OrderItemBackfillResult result = orderItemBackfillService.backfillProductReferences();
+        return ResponseEntity.ok(result);
+    }
+
+    @Operation(summary = "Get sales rollups", description = "Revenue, units, orders and average order value per hour or day bucket in [from, to)")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Rollups retrieved successfully")
+    })
+    @GetMapping("/analytics/sales")
+    public ResponseEntity<List<SalesRollupDTO>> getSalesRollups(
+            @Parameter(description = "Bucket size: HOUR or DAY") @RequestParam(defaultValue = "DAY") SalesAnalyticsService.Granularity granularity,
+            @Parameter(description = "Breakdown: TOTAL, PRODUCT, CATEGORY or CUSTOMER") @RequestParam(defaultValue = "TOTAL") SalesAnalyticsService.Dimension dimension,
+            @Parameter(description = "Only this product id, category name or customer id") @RequestParam(required = false) String key,
+            @Parameter(description = "Range start (ISO date-time)") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @Parameter(description = "Range end, exclusive (ISO date-time)") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        List<SalesRollupDTO> rollups = salesAnalyticsService.getRollups(granularity, dimension, key, from, to);
+        return ResponseEntity.ok(rollups);
+    }
+
+    @Operation(summary = "Get top sellers by revenue", description = "Largest revenue contributors of a dimension over a range of days")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Top contributors retrieved successfully")
+    })
+    @GetMapping("/analytics/top")
+    public ResponseEntity<List<SalesRollupDTO>> getTopByRevenue(
+            @Parameter(description = "Breakdown: PRODUCT, CATEGORY or CUSTOMER") @RequestParam(defaultValue = "PRODUCT") SalesAnalyticsService.Dimension dimension,
+            @Parameter(description = "Range start (ISO date-time)") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @Parameter(description = "Range end, exclusive (ISO date-time)") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @Parameter(description = "Maximum number of results") @RequestParam(defaultValue = "10") int limit) {
+        List<SalesRollupDTO> top = salesAnalyticsService.getTopByRevenue(dimension, from, to, limit);
+        return ResponseEntity.ok(top);
+    }
+
+    @Operation(summary = "Rebuild sales rollups", description = "Recompute all rollups from orders in parallel day partitions")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Rebuild completed"),
+            @ApiResponse(responseCode = "409", description = "A rebuild is already running")
+    })
+    @PostMapping("/analytics/rebuild")
+    public ResponseEntity<AnalyticsRebuildResult> rebuildSalesAnalytics() {
+        try {
+            AnalyticsRebuildResult result = salesAnalyticsService.rebuild();
+            return ResponseEntity.ok(result);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+
+    @Operation(summary = "Get columnar snapshot status", description = "Row counts and last load time of the in-memory reporting snapshot")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Snapshot status retrieved successfully")
+    })
+    @GetMapping("/reports/snapshot")
+    public ResponseEntity<ColumnarSnapshotInfo> getReportingSnapshot() {
+        return ResponseEntity.ok(orderColumnStore.getInfo());
+    }
+
+    @Operation(summary = "Reload columnar snapshot", description = "Reload the reporting snapshot from orders and order items")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Snapshot reloaded"),
+            @ApiResponse(responseCode = "409", description = "A reload is already running"),
+            @ApiResponse(responseCode = "503", description = "Columnar snapshot is disabled")
+    })
+    @PostMapping("/reports/snapshot/reload")
+    public ResponseEntity<ColumnarSnapshotInfo> reloadReportingSnapshot() {
+        if (!orderColumnStore.isEnabled()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        try {
+            return ResponseEntity.ok(orderColumnStore.reload());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+
+    @Operation(summary = "Report sales by product", description = "Items, units and revenue per product from the columnar snapshot")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Report generated successfully"),
+            @ApiResponse(responseCode = "503", description = "Columnar snapshot is disabled")
+    })
+    @GetMapping("/reports/products")
+    public ResponseEntity<List<ColumnarReportRow>> reportSalesByProduct(
+            @Parameter(description = "Only orders with this status") @RequestParam(required = false) String status,
+            @Parameter(description = "Orders created from (ISO date-time)") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @Parameter(description = "Orders created before (ISO date-time)") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @Parameter(description = "Maximum number of products") @RequestParam(defaultValue = "100") int limit) {
+        if (!orderColumnStore.isEnabled()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok(orderColumnStore.getSalesByProduct(status, from, to, limit));
+    }
+
+    @Operation(summary = "Report sales of one product", description = "Items, units and revenue of a product from the columnar snapshot")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Report generated successfully"),
+            @ApiResponse(responseCode = "503", description = "Columnar snapshot is disabled")
+    })
+    @GetMapping("/reports/products/{productName}")
+    public ResponseEntity<ColumnarReportRow> reportProductSales(
+            @Parameter(description = "Product name") @PathVariable String productName,
+            @Parameter(description = "Only orders with this status") @RequestParam(required = false) String status) {
+        if (!orderColumnStore.isEnabled()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok(orderColumnStore.getProductSummary(productName, status));
+    }
+
+    @Operation(summary = "Report orders by status", description = "Order count, item count and revenue per status from the columnar snapshot")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Report generated successfully"),
+            @ApiResponse(responseCode = "503", description = "Columnar snapshot is disabled")
+    })
+    @GetMapping("/reports/orders/by-status")
+    public ResponseEntity<List<ColumnarReportRow>> reportOrdersByStatus() {
+        if (!orderColumnStore.isEnabled()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok(orderColumnStore.getOrdersByStatus());
+    }
+
+    @Operation(summary = "Report orders above an amount", description = "Count and revenue of orders above an amount, with a capped list of their IDs")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Report generated successfully"),
+            @ApiResponse(responseCode = "503", description = "Columnar snapshot is disabled")
+    })
+    @GetMapping("/reports/orders/above-amount")
+    public ResponseEntity<ColumnarOrderReport> reportOrdersAboveAmount(
+            @Parameter(description = "Minimum order total (exclusive)") @RequestParam double amount,
+            @Parameter(description = "Maximum number of order IDs returned") @RequestParam(defaultValue = "100") int limit) {
+        if (!orderColumnStore.isEnabled()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok(orderColumnStore.getOrdersAboveAmount(amount, limit));
+    }
+
+    @Operation(summary = "Get cache statistics", description = "Entries, estimated heap bytes, bound and hit rate of every cache")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Cache statistics retrieved successfully")
+    })
+    @GetMapping("/caches")
+    public ResponseEntity<List<CacheStatsDTO>> getCacheStats() {
+        return ResponseEntity.ok(cacheStatsService.getCacheStats());
+    }
+}
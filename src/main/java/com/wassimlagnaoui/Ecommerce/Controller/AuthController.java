@@ -6,6 +6,7 @@ import com.wassimlagnaoui.Ecommerce.Domain.Customer;
 import com.wassimlagnaoui.Ecommerce.Domain.Role;
 import com.wassimlagnaoui.Ecommerce.Repository.CustomerRepository;
 import com.wassimlagnaoui.Ecommerce.Service.CustomerUserDetailsService;
+import com.wassimlagnaoui.Ecommerce.Service.LookupGuard;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -32,18 +33,21 @@ public class AuthController {
     private final CustomerRepository customerRepository;
     private final PasswordEncoder passwordEncoder;
     private final JwtUtil jwtUtil;
+    private final LookupGuard lookupGuard;
 
     @Autowired
     public AuthController(AuthenticationManager authenticationManager,
                          CustomerUserDetailsService userDetailsService,
                          CustomerRepository customerRepository,
                          PasswordEncoder passwordEncoder,
-                         JwtUtil jwtUtil) {
+                         JwtUtil jwtUtil,
+                         LookupGuard lookupGuard) {
         this.authenticationManager = authenticationManager;
         this.userDetailsService = userDetailsService;
         this.customerRepository = customerRepository;
         this.passwordEncoder = passwordEncoder;
         this.jwtUtil = jwtUtil;
+        this.lookupGuard = lookupGuard;
     }
 
     @PostMapping("/login")
@@ -110,6 +114,7 @@ public class AuthController {
             customer.setTotalSpent(0.0);
 
             Customer savedCustomer = customerRepository.save(customer);
+            lookupGuard.recordKey(LookupGuard.KeyType.CUSTOMER_EMAIL, savedCustomer.getEmail());
 
             // Generate JWT token for the new user
             UserDetails userDetails = userDetailsService.loadUserByUsername(savedCustomer.getEmail());
@@ -14,6 +14,7 @@ import org.springframework.web.bind.annotation.*;
 import jakarta.validation.Valid;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @RestController
@@ -143,15 +144,21 @@ public class CustomerController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
-    @Operation(summary = "Get high value customers", description = "Retrieve a list of customers who have spent above a certain amount")
+    @Operation(summary = "Get high value customers", description = "Retrieve customers who have spent above a certain amount, highest spend first, one page at a time")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully retrieved customers"),
             @ApiResponse(responseCode = "400", description = "Invalid amount"),
             @ApiResponse(responseCode = "500", description = "Internal server error")
     })
     @GetMapping("/high-value")
-    public ResponseEntity<List<CustomerSummaryDTO>> getHighValueCustomers(@RequestParam Double minAmount) {
-        List<CustomerSummaryDTO> customers = customerService.getHighValueCustomers(minAmount);
+    public ResponseEntity<List<CustomerSummaryDTO>> getHighValueCustomers(
+            @RequestParam Double minAmount,
+            @Parameter(description = "Zero-based page number") @RequestParam(defaultValue = "0") int page,
+            @Parameter(description = "Page size") @RequestParam(defaultValue = "100") int size) {
+        if (page < 0 || size <= 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        List<CustomerSummaryDTO> customers = customerService.getHighValueCustomers(minAmount, page, size);
         return ResponseEntity.ok(customers);
     }
 
@@ -181,6 +188,66 @@ public class CustomerController {
         }
     }
 
+    @Operation(summary = "Get addresses for several customers", description = "Retrieve the addresses of a set of customers in one call, grouped by customer ID")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved addresses"),
+            @ApiResponse(responseCode = "400", description = "No customer IDs given")
+    })
+    @GetMapping("/admin/addresses")
+    public ResponseEntity<Map<String, List<AddressDTO>>> getAddressesForCustomers(@RequestParam List<String> customerIds) {
+        if (customerIds.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(customerService.getAddressesByCustomerIds(customerIds));
+    }
+
+    @Operation(summary = "Get customer spend ranking", description = "Customers ranked by total spent, highest first, one page at a time")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved ranking"),
+            @ApiResponse(responseCode = "400", description = "Invalid page or size")
+    })
+    @GetMapping("/admin/ranking")
+    public ResponseEntity<List<CustomerSummaryDTO>> getCustomerRanking(
+            @Parameter(description = "Zero-based page number") @RequestParam(defaultValue = "0") int page,
+            @Parameter(description = "Page size") @RequestParam(defaultValue = "100") int size) {
+        if (page < 0 || size <= 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(customerService.getCustomerRanking(page, size));
+    }
+
+    @Operation(summary = "Get customer spend rank", description = "Rank and percentile of one customer by total spent")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Rank found"),
+            @ApiResponse(responseCode = "404", description = "Customer not found")
+    })
+    @GetMapping("/admin/ranking/{customerId}")
+    public ResponseEntity<CustomerRankDTO> getCustomerRank(@PathVariable String customerId) {
+        return customerService.getCustomerRank(customerId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @Operation(summary = "Get customer value bands", description = "Customer count and spend per percentile band of total spent")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved bands")
+    })
+    @GetMapping("/admin/value-bands")
+    public ResponseEntity<List<CustomerValueBandDTO>> getCustomerValueBands(
+            @Parameter(description = "Band boundaries as percentiles", example = "50,75,90,99")
+            @RequestParam(defaultValue = "50,75,90,99") List<Double> percentiles) {
+        return ResponseEntity.ok(customerService.getCustomerValueBands(percentiles));
+    }
+
+    @Operation(summary = "Get customer cohorts", description = "Customer count, spend and orders grouped by the month of the first order")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved cohorts")
+    })
+    @GetMapping("/admin/cohorts")
+    public ResponseEntity<List<CustomerCohortDTO>> getCustomerCohorts() {
+        return ResponseEntity.ok(customerService.getCustomerCohorts());
+    }
+
     @Operation(summary = "Add address to customer", description = "Associate a new address with a specific customer")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "201", description = "Address added to customer"),
@@ -205,8 +272,11 @@ public class CustomerController {
             @ApiResponse(responseCode = "404", description = "Customer not found")
     })
     @GetMapping("/{customerId}/orders")
-    public ResponseEntity<List<OrderDTO>> getCustomerOrders(@PathVariable String customerId) {
-        List<OrderDTO> orders = customerService.getCustomerOrders(customerId);
+    public ResponseEntity<List<OrderDTO>> getCustomerOrders(
+            @PathVariable String customerId,
+            @Parameter(description = "Page number (0-based); omit for all orders") @RequestParam(required = false) Integer page,
+            @Parameter(description = "Page size") @RequestParam(required = false) Integer size) {
+        List<OrderDTO> orders = customerService.getCustomerOrders(customerId, page, size);
         return ResponseEntity.ok(orders);
     }
 
@@ -11,9 +11,11 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import jakarta.validation.Valid;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @RestController
@@ -39,14 +41,24 @@ public class OrderController {
     @Operation(summary = "Get order by ID", description = "Retrieve a specific order by its ID")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Order found"),
+            @ApiResponse(responseCode = "304", description = "Order unchanged since the If-None-Match ETag"),
             @ApiResponse(responseCode = "404", description = "Order not found")
     })
     @GetMapping("/{id}")
     public ResponseEntity<OrderDTO> getOrderById(
             @Parameter(description = "Order ID", example = "550e8400-e29b-41d4-a716-446655440000")
-            @PathVariable String id) {
+            @PathVariable String id,
+            WebRequest request) {
+        // The version lookup alone answers revalidations; the order is only loaded on a miss
+        Optional<String> eTag = orderService.getOrderETag(id);
+        if (eTag.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (request.checkNotModified(eTag.get())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag.get()).build();
+        }
         Optional<OrderDTO> order = orderService.getOrderById(id);
-        return order.map(ResponseEntity::ok)
+        return order.map(body -> ResponseEntity.ok().eTag(eTag.get()).body(body))
                 .orElse(ResponseEntity.notFound().build());
     }
 
@@ -103,12 +115,20 @@ public class OrderController {
     @Operation(summary = "Get order by order number", description = "Retrieve a specific order using its order number")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Order found"),
+            @ApiResponse(responseCode = "304", description = "Order unchanged since the If-None-Match ETag"),
             @ApiResponse(responseCode = "404", description = "Order not found")
     })
     @GetMapping("/order-number/{orderNumber}")
-    public ResponseEntity<OrderDTO> getOrderByOrderNumber(@PathVariable String orderNumber) {
+    public ResponseEntity<OrderDTO> getOrderByOrderNumber(@PathVariable String orderNumber, WebRequest request) {
+        Optional<String> eTag = orderService.getOrderETagByOrderNumber(orderNumber);
+        if (eTag.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (request.checkNotModified(eTag.get())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag.get()).build();
+        }
         Optional<OrderDTO> order = orderService.findByOrderNumber(orderNumber);
-        return order.map(ResponseEntity::ok)
+        return order.map(body -> ResponseEntity.ok().eTag(eTag.get()).body(body))
                 .orElse(ResponseEntity.notFound().build());
     }
 
@@ -118,8 +138,11 @@ public class OrderController {
             @ApiResponse(responseCode = "404", description = "No orders found for this customer")
     })
     @GetMapping("/customer/{customerId}")
-    public ResponseEntity<List<OrderDTO>> getOrdersByCustomer(@PathVariable String customerId) {
-        List<OrderDTO> orders = orderService.getOrdersByCustomer(customerId);
+    public ResponseEntity<List<OrderDTO>> getOrdersByCustomer(
+            @PathVariable String customerId,
+            @Parameter(description = "Page number (0-based); omit for all orders") @RequestParam(required = false) Integer page,
+            @Parameter(description = "Page size") @RequestParam(required = false) Integer size) {
+        List<OrderDTO> orders = orderService.getOrdersByCustomer(customerId, page, size);
         return ResponseEntity.ok(orders);
     }
 
@@ -147,6 +170,18 @@ public class OrderController {
         return ResponseEntity.ok(orders);
     }
 
+    @Operation(summary = "Get customer orders grouped by status", description = "Retrieve a customer's orders bucketed by status in one call; all statuses when none are given")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Orders found")
+    })
+    @GetMapping("/customer/{customerId}/by-status")
+    public ResponseEntity<Map<String, List<OrderDTO>>> getCustomerOrdersGroupedByStatus(
+            @PathVariable String customerId,
+            @Parameter(description = "Statuses to include, e.g. PENDING,SHIPPED") @RequestParam(required = false) List<String> statuses) {
+        Map<String, List<OrderDTO>> orders = orderService.getCustomerOrdersGroupedByStatus(customerId, statuses);
+        return ResponseEntity.ok(orders);
+    }
+
     @Operation(summary = "Get order items", description = "Retrieve all items of a specific order")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Order items found"),
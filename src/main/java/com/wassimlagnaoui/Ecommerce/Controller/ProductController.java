@@ -1,9 +1,15 @@
 package com.wassimlagnaoui.Ecommerce.Controller;
 
 import com.wassimlagnaoui.Ecommerce.DTO.*;
+import com.wassimlagnaoui.Ecommerce.Service.BestSellerTracker;
+import com.wassimlagnaoui.Ecommerce.Service.ProductImportService;
 import com.wassimlagnaoui.Ecommerce.Service.ProductService;
+import com.wassimlagnaoui.Ecommerce.Service.ResponseBytesCache;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -11,11 +17,15 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 import jakarta.validation.Valid;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Optional;
 
@@ -28,15 +38,33 @@ public class ProductController {
     @Autowired
     private ProductService productService;
 
+    @Autowired
+    private ProductImportService productImportService;
+
+    @Autowired
+    private ResponseBytesCache responseBytesCache;
+
     @Operation(summary = "Get all products", description = "Retrieve a list of all products")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Successfully retrieved products"),
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved products",
+                    content = @Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(implementation = ProductDTO.class)))),
+            @ApiResponse(responseCode = "304", description = "Catalog unchanged since the If-None-Match ETag"),
             @ApiResponse(responseCode = "500", description = "Internal server error")
     })
     @GetMapping
-    public ResponseEntity<List<ProductDTO>> getAllProducts() {
-        List<ProductDTO> products = productService.getAllProducts();
-        return ResponseEntity.ok(products);
+    public ResponseEntity<byte[]> getAllProducts(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        Optional<String> eTag = productService.getCatalogETag();
+        boolean binary = responseBytesCache.prefersBinary(accept);
+        ResponseEntity<byte[]> notModified = responseBytesCache.notModified(eTag.orElse(null), binary, acceptEncoding, ifNoneMatch);
+        if (notModified != null) {
+            return notModified;
+        }
+        // Served as pre-encoded bytes: the list is serialized once per catalog version
+        ResponseBytesCache.Payload payload = responseBytesCache.get("all", eTag.orElse(null), binary, productService::getAllProducts);
+        return responseBytesCache.toResponse(payload, binary, acceptEncoding);
     }
 
     @Operation(summary = "Get products with pagination", description = "Retrieve products with pagination support")
@@ -57,16 +85,34 @@ public class ProductController {
 
     @Operation(summary = "Get product by ID", description = "Retrieve a specific product by its ID")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Product found"),
+            @ApiResponse(responseCode = "200", description = "Product found",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ProductDTO.class))),
+            @ApiResponse(responseCode = "304", description = "Product unchanged since the If-None-Match ETag"),
             @ApiResponse(responseCode = "404", description = "Product not found")
     })
     @GetMapping("/{id}")
-    public ResponseEntity<ProductDTO> getProductById(
+    public ResponseEntity<byte[]> getProductById(
             @Parameter(description = "Product ID", example = "550e8400-e29b-41d4-a716-446655440000")
-            @PathVariable String id) {
-        Optional<ProductDTO> product = productService.getProductById(id);
-        return product.map(ResponseEntity::ok)
-                .orElse(ResponseEntity.notFound().build());
+            @PathVariable String id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        // The version lookup alone answers revalidations; the product is only loaded on a miss
+        Optional<String> eTag = productService.getProductETag(id);
+        if (eTag.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        boolean binary = responseBytesCache.prefersBinary(accept);
+        ResponseEntity<byte[]> notModified = responseBytesCache.notModified(eTag.get(), binary, acceptEncoding, ifNoneMatch);
+        if (notModified != null) {
+            return notModified;
+        }
+        ResponseBytesCache.Payload payload = responseBytesCache.get("id:" + id, eTag.get(), binary,
+                () -> productService.getProductById(id).orElse(null));
+        if (payload == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return responseBytesCache.toResponse(payload, binary, acceptEncoding);
     }
 
     @Operation(summary = "Get product summary", description = "Retrieve a summary of a product including basic details")
@@ -167,9 +213,20 @@ public class ProductController {
     }
 
     @GetMapping("/category/{categoryName}")
-    public ResponseEntity<List<ProductDTO>> getProductsByCategory(@PathVariable String categoryName) {
-        List<ProductDTO> products = productService.findByCategoryName(categoryName);
-        return ResponseEntity.ok(products);
+    public ResponseEntity<byte[]> getProductsByCategory(
+            @PathVariable String categoryName,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        Optional<String> eTag = productService.getCategoryETag(categoryName);
+        boolean binary = responseBytesCache.prefersBinary(accept);
+        ResponseEntity<byte[]> notModified = responseBytesCache.notModified(eTag.orElse(null), binary, acceptEncoding, ifNoneMatch);
+        if (notModified != null) {
+            return notModified;
+        }
+        ResponseBytesCache.Payload payload = responseBytesCache.get("category:" + categoryName, eTag.orElse(null), binary,
+                () -> productService.findByCategoryName(categoryName));
+        return responseBytesCache.toResponse(payload, binary, acceptEncoding);
     }
 
     // Stock management endpoints - now using DTOs
@@ -197,12 +254,44 @@ public class ProductController {
         return ResponseEntity.ok(products);
     }
 
+    @Operation(summary = "Get top selling products", description = "Best sellers of all time (exact) or of the last hour or day (estimated)")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved best sellers"),
+            @ApiResponse(responseCode = "400", description = "Invalid limit")
+    })
     @GetMapping("/top-selling")
-    public ResponseEntity<List<ProductSummaryDTO>> getTopSellingProducts() {
-        List<ProductSummaryDTO> products = productService.getTopSellingProducts();
+    public ResponseEntity<List<ProductSummaryDTO>> getTopSellingProducts(
+            @Parameter(description = "ALL, HOUR or DAY") @RequestParam(defaultValue = "ALL") BestSellerTracker.Window window,
+            @Parameter(description = "Maximum number of products") @RequestParam(defaultValue = "10") int limit) {
+        if (limit <= 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        List<ProductSummaryDTO> products = productService.getTopSellingProducts(window, limit);
         return ResponseEntity.ok(products);
     }
 
+    @Operation(summary = "Browse products by facets", description = "Filter by categories, price buckets and stock, with facet counts over the matching products")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved matching products and facet counts"),
+            @ApiResponse(responseCode = "400", description = "Invalid match mode or pagination parameters")
+    })
+    @GetMapping("/browse")
+    public ResponseEntity<ProductBrowseResult> browseProducts(
+            @Parameter(description = "Categories to include") @RequestParam(required = false) List<String> category,
+            @Parameter(description = "any (default) or all of the categories") @RequestParam(defaultValue = "any") String match,
+            @Parameter(description = "Categories to exclude") @RequestParam(required = false) List<String> excludeCategory,
+            @Parameter(description = "Price buckets, e.g. 25-50 or 500+") @RequestParam(required = false) List<String> priceBucket,
+            @Parameter(description = "true for in stock only, false for out of stock only") @RequestParam(required = false) Boolean inStock,
+            @Parameter(description = "Page number (0-based)", example = "0") @RequestParam(defaultValue = "0") int page,
+            @Parameter(description = "Number of items per page", example = "20") @RequestParam(defaultValue = "20") int size) {
+        if (!"any".equalsIgnoreCase(match) && !"all".equalsIgnoreCase(match) || page < 0 || size <= 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        ProductBrowseResult result = productService.browseProducts(category, "all".equalsIgnoreCase(match),
+                excludeCategory, priceBucket, inStock, page, size);
+        return ResponseEntity.ok(result);
+    }
+
     // Stock operations - now using DTOs
     @PutMapping("/{productId}/stock")
     public ResponseEntity<ProductDTO> updateStock(@PathVariable String productId, @RequestParam Integer newStock) {
@@ -294,4 +383,38 @@ public class ProductController {
         boolean isValid = productService.validateProduct(productRequest);
         return ResponseEntity.ok(isValid);
     }
+
+    // Bulk catalog import (admin only)
+    @Operation(summary = "Import products in bulk", description = "Upload a CSV or NDJSON catalog feed; products are upserted by name in the background")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Import accepted"),
+            @ApiResponse(responseCode = "400", description = "Unsupported or unreadable file")
+    })
+    @PostMapping(value = "/admin/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<ProductImportResult> importProducts(
+            @Parameter(description = "CSV (name,description,price,stock,categories) or NDJSON file")
+            @RequestParam("file") MultipartFile file,
+            @Parameter(description = "csv or ndjson; inferred from the file extension when omitted")
+            @RequestParam(required = false) String format,
+            @Parameter(description = "Create categories that do not exist yet instead of rejecting the row")
+            @RequestParam(defaultValue = "false") boolean createMissingCategories) {
+        try {
+            ProductImportResult result = productImportService.startImport(file, format, createMissingCategories);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(result);
+        } catch (IllegalArgumentException | IOException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @Operation(summary = "Get import progress", description = "Retrieve progress and row errors of a bulk import")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Import found"),
+            @ApiResponse(responseCode = "404", description = "Import not found")
+    })
+    @GetMapping("/admin/import/{jobId}")
+    public ResponseEntity<ProductImportResult> getImportStatus(@PathVariable String jobId) {
+        return productImportService.getImportStatus(jobId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
 }
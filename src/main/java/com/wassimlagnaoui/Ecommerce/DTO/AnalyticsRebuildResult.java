@@ -0,0 +1,14 @@
+package com.wassimlagnaoui.Ecommerce.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AnalyticsRebuildResult {
+    private Integer partitions;
+    private Long itemsScanned;
+    private Long durationMs;
+}
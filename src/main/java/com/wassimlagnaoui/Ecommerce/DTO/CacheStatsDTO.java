@@ -0,0 +1,22 @@
+package com.wassimlagnaoui.Ecommerce.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheStatsDTO {
+    private String cacheManager;
+    private String cache;
+    private Long entries;
+    private Long estimatedBytes;
+    // Maximum entries, or maximum bytes when the cache is bounded by weight
+    private Long maximum;
+    private Boolean weighted;
+    private Long hits;
+    private Long misses;
+    private Double hitRate;
+    private Long evictions;
+}
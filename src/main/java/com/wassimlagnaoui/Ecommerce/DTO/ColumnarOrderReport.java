@@ -0,0 +1,17 @@
+package com.wassimlagnaoui.Ecommerce.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ColumnarOrderReport {
+    private Long matchingOrders;
+    private Double revenue;
+    // First matches only, capped by the request limit
+    private List<String> orderIds;
+}
@@ -0,0 +1,15 @@
+package com.wassimlagnaoui.Ecommerce.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ColumnarReportRow {
+    private String key;
+    private Long rows;
+    private Long units;
+    private Double revenue;
+}
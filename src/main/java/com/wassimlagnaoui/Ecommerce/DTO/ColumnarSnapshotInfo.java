@@ -0,0 +1,19 @@
+package com.wassimlagnaoui.Ecommerce.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ColumnarSnapshotInfo {
+    private Boolean enabled;
+    private Integer orders;
+    private Integer items;
+    private Integer products;
+    private LocalDateTime loadedAt;
+    private Long loadDurationMs;
+}
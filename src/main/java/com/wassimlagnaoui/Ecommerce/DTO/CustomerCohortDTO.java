@@ -0,0 +1,16 @@
+package com.wassimlagnaoui.Ecommerce.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CustomerCohortDTO {
+    private String cohort;
+    private Long customers;
+    private Double totalSpent;
+    private Double averageSpent;
+    private Double averageOrders;
+}
@@ -0,0 +1,17 @@
+package com.wassimlagnaoui.Ecommerce.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CustomerRankDTO {
+    private String customerId;
+    private Long rank;
+    private Long totalCustomers;
+    private Double percentile;
+    private Double totalSpent;
+    private Integer orderCount;
+}
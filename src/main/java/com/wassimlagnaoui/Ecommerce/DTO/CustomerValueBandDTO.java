@@ -0,0 +1,17 @@
+package com.wassimlagnaoui.Ecommerce.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CustomerValueBandDTO {
+    private String band;
+    private Double minSpent;
+    private Double maxSpent;
+    private Long customers;
+    private Double totalSpent;
+    private Double averageSpent;
+}
@@ -93,7 +93,8 @@ public class DTOMapper {
                 order.getTotalAmount(),
                 order.getCustomer() != null ? order.getCustomer().getId() : null,
                 order.getCustomer() != null ? order.getCustomer().getName() : null,
-                orderItemDTOs
+                orderItemDTOs,
+                order.getCreatedAt()
         );
     }
 
@@ -114,8 +115,10 @@ public class DTOMapper {
                 orderItem.getId(),
                 orderItem.getProductName(),
                 orderItem.getQuantity(),
-                orderItem.getPrice(),
-                orderItem.getOrder() != null ? orderItem.getOrder().getId() : null
+                // The price the item is charged at, which the order total is computed from
+                orderItem.getUnitPrice() != null ? orderItem.getUnitPrice() : orderItem.getPrice(),
+                orderItem.getOrder() != null ? orderItem.getOrder().getId() : null,
+                orderItem.getProduct() != null ? orderItem.getProduct().getId() : null
         );
     }
 
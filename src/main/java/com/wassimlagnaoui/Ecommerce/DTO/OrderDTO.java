@@ -4,6 +4,8 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
 @Data
@@ -17,4 +19,11 @@ public class OrderDTO {
     private String customerId;
     private String customerName;
     private List<OrderItemDTO> orderItems;
+    private LocalDateTime createdAt;
+
+    // Used by the JPQL constructor projections; items are attached in a second query
+    public OrderDTO(String id, String orderNumber, String status, Double totalAmount, String customerId, String customerName,
+                    LocalDateTime createdAt) {
+        this(id, orderNumber, status, totalAmount, customerId, customerName, new ArrayList<>(), createdAt);
+    }
 }
@@ -0,0 +1,15 @@
+package com.wassimlagnaoui.Ecommerce.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderItemBackfillResult {
+    private Long scanned;
+    private Long linked;
+    private Long unmatched;
+    private Long durationMs;
+}
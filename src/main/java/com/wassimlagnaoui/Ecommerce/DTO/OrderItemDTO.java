@@ -13,4 +13,5 @@ public class OrderItemDTO {
     private Integer quantity;
     private Double price;
     private String orderId;
+    private String productId;
 }
@@ -0,0 +1,20 @@
+package com.wassimlagnaoui.Ecommerce.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductBrowseResult {
+    private Integer total;
+    private Integer page;
+    private Integer size;
+    private List<ProductDTO> products;
+    // facet name (category, price, stock) -> value -> matching products
+    private Map<String, Map<String, Integer>> facets;
+}
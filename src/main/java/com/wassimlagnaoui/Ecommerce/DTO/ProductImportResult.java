@@ -0,0 +1,25 @@
+package com.wassimlagnaoui.Ecommerce.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductImportResult {
+    private String jobId;
+    private String status;
+    private String format;
+    private Long rowsRead;
+    private Long inserted;
+    private Long updated;
+    private Long failed;
+    private Long errorsDropped;
+    private List<ProductImportError> errors;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+}
@@ -0,0 +1,18 @@
+package com.wassimlagnaoui.Ecommerce.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductImportRow {
+    private String name;
+    private String description;
+    private Double price;
+    private Integer stock;
+    private List<String> categories;
+}
@@ -0,0 +1,22 @@
+package com.wassimlagnaoui.Ecommerce.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// One order item with the order attributes the sales rollups are keyed on
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SalesFactRow {
+    private String orderId;
+    private String customerId;
+    private LocalDateTime createdAt;
+    private String productId;
+    private String productName;
+    private Integer quantity;
+    // Catalog unit price, or the submitted price on legacy items not linked to a product
+    private Double unitPrice;
+}
@@ -0,0 +1,21 @@
+package com.wassimlagnaoui.Ecommerce.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SalesRollupDTO {
+    private LocalDateTime bucketStart;
+    private String granularity;
+    private String dimension;
+    private String key;
+    private Double revenue;
+    private Long units;
+    private Long orders;
+    private Double averageOrderValue;
+}
@@ -4,13 +4,15 @@ package com.wassimlagnaoui.Ecommerce.Domain;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 @Entity
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
-@Table(name = "addresses")
+@Table(name = "addresses", indexes = @Index(name = "idx_addresses_customer_id", columnList = "customer_id"))
 public class Address {
     @Id @GeneratedValue(strategy = jakarta.persistence.GenerationType.UUID)
     private String id;
@@ -20,7 +22,9 @@ public class Address {
     private String zipCode;
     private String country;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "customer_id")
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private Customer customer;
 }
@@ -12,7 +12,7 @@ import java.util.Set;
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
-@Table(name = "categories")
+@Table(name = "categories", indexes = @Index(name = "idx_categories_name", columnList = "name"))
 public class Category {
     @Id
     @GeneratedValue(strategy = GenerationType.UUID)
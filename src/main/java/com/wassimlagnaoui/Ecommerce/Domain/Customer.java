@@ -4,16 +4,20 @@ package com.wassimlagnaoui.Ecommerce.Domain;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.BatchSize;
 
 import java.util.List;
 
 @Entity
+@BatchSize(size = 100)
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
-@Table(name = "customers")
+@Table(name = "customers", indexes = @Index(name = "idx_customers_total_spent", columnList = "total_spent"))
 public class Customer {
     @Id @GeneratedValue(strategy = GenerationType.UUID)
     private String id;
@@ -32,14 +36,28 @@ public class Customer {
 
     private Double totalSpent;
 
+    // Optimistic lock; concurrent updates of the same customer fail instead of overwriting each other
+    @Version
+    private Long version;
+
     @OneToMany(mappedBy = "customer", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
+    @BatchSize(size = 100)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private List<Order> orders;
 
-   @OneToMany(mappedBy = "customer", cascade = CascadeType.ALL, fetch = FetchType.EAGER)
+   // Lazy: loaded in bulk by CustomerService.getAddressesByCustomerIds when a DTO needs them
+   @OneToMany(mappedBy = "customer", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
+   @BatchSize(size = 100)
+   @ToString.Exclude
+   @EqualsAndHashCode.Exclude
    private List<Address> addresses;
 
 
    @OneToMany(mappedBy = "customer", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
+   @BatchSize(size = 100)
+   @ToString.Exclude
+   @EqualsAndHashCode.Exclude
    private List<Review> reviews;
 
 
@@ -4,15 +4,26 @@ package com.wassimlagnaoui.Ecommerce.Domain;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.CreationTimestamp;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        @Index(name = "idx_orders_order_number", columnList = "order_number", unique = true),
+        @Index(name = "idx_orders_status", columnList = "status"),
+        @Index(name = "idx_orders_customer_status_created", columnList = "customer_id, status, created_at"),
+        @Index(name = "idx_orders_created_at", columnList = "created_at"),
+        @Index(name = "idx_orders_total_amount", columnList = "total_amount")
+})
 public class Order {
     @Id @GeneratedValue(strategy = jakarta.persistence.GenerationType.UUID)
     private String id;
@@ -21,11 +32,22 @@ public class Order {
     private String status;
     private Double totalAmount;
 
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    // Incremented on every update; order ETags are derived from it
+    @Version
+    private Long version;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "customer_id")
     private Customer customer;
 
     @OneToMany(mappedBy = "order", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
+    @BatchSize(size = 100)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private List<OrderItem> orderItems;
 
 
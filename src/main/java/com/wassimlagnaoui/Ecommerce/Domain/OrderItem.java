@@ -10,7 +10,11 @@ import lombok.NoArgsConstructor;
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
-@Table( name = "order_items")
+@Table( name = "order_items", indexes = {
+        @Index(name = "idx_order_items_order_id", columnList = "order_id"),
+        @Index(name = "idx_order_items_product_id", columnList = "product_id"),
+        @Index(name = "idx_order_items_product_name", columnList = "product_name")
+})
 public class OrderItem {
     @Id @GeneratedValue(strategy = jakarta.persistence.GenerationType.UUID)
     private String id;
@@ -18,7 +22,19 @@ public class OrderItem {
     private Integer quantity;
     private Double price;
 
+    // Catalog price at the time the item was ordered
+    private Double unitPrice;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "product_id")
+    private Product product;
+
     @ManyToOne
     @JoinColumn(name = "order_id")
     private Order order;
+
+    // Price the item is charged at: the catalog unit price, or the submitted price on legacy items not linked to a product
+    public double chargedUnitPrice() {
+        return unitPrice != null ? unitPrice : price;
+    }
 }
@@ -3,16 +3,28 @@ package com.wassimlagnaoui.Ecommerce.Domain;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.util.List;
 import java.util.Set;
 
 @Entity
+@BatchSize(size = 100)
+// Updates write only the changed columns, so stock and price updates never rewrite sales_count
+@DynamicUpdate
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "products")
+@Table(name = "products", indexes = {
+        @Index(name = "idx_products_name", columnList = "name"),
+        @Index(name = "idx_products_price", columnList = "price"),
+        @Index(name = "idx_products_stock", columnList = "stock"),
+        @Index(name = "idx_products_sales_count", columnList = "sales_count DESC")
+})
 public class Product {
     @Id
     @GeneratedValue(strategy = GenerationType.UUID)
@@ -23,16 +35,28 @@ public class Product {
     private Integer stock;
     private Integer salesCount;
 
+    // Incremented on every entity update (not by the batched sales count flush); product ETags are
+    // derived from it and the sales count
+    @Version
+    private Long version;
+
 
     @ManyToMany
     @JoinTable(
             name = "product_categories",
             joinColumns = @JoinColumn(name = "product_id"),
-            inverseJoinColumns = @JoinColumn(name = "category_id")
+            inverseJoinColumns = @JoinColumn(name = "category_id"),
+            indexes = @Index(name = "idx_product_categories_category", columnList = "category_id, product_id")
     )
+    @BatchSize(size = 100)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private Set<Category> categories;
 
     @OneToMany(mappedBy = "product", cascade = CascadeType.ALL)
+    @BatchSize(size = 100)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private List<Review> reviews;
 
 }
@@ -10,7 +10,10 @@ import lombok.NoArgsConstructor;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "reviews")
+@Table(name = "reviews", indexes = {
+        @Index(name = "idx_reviews_product_rating", columnList = "product_id, rating"),
+        @Index(name = "idx_reviews_customer_product", columnList = "customer_id, product_id")
+})
 public class Review {
     @Id @GeneratedValue(strategy = GenerationType.UUID)
     private String id;
@@ -0,0 +1,23 @@
+package com.wassimlagnaoui.Ecommerce.Domain;
+
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Highest sales count log segment written to the database, per local log directory; updated by
+// SalesCountAggregator in the same transaction as the increments, so a replay can skip those segments
+@Entity
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "sales_count_flush_state")
+public class SalesCountFlushState {
+    @Id
+    @Column(name = "log_id", length = 64)
+    private String logId;
+
+    @Column(name = "last_segment", nullable = false)
+    private Long lastSegment;
+}
@@ -2,13 +2,21 @@ package com.wassimlagnaoui.Ecommerce.Repository;
 
 import com.wassimlagnaoui.Ecommerce.Domain.Address;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface AddressRepository extends JpaRepository<Address, String> {
+    @HotPathFinder(table = "addresses", columns = "customer_id")
     List<Address> findByCustomerId(String customerId);
+    // Batched address load for a set of customers (replaces the per-customer eager fetch)
+    @HotPathFinder(table = "addresses", columns = "customer_id")
+    @Query("SELECT a FROM Address a WHERE a.customer.id IN :customerIds")
+    List<Address> findByCustomerIdIn(@Param("customerIds") Collection<String> customerIds);
     List<Address> findByCity(String city);
     List<Address> findByState(String state);
     List<Address> findByCountry(String country);
@@ -4,10 +4,15 @@ import com.wassimlagnaoui.Ecommerce.Domain.Category;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface CategoryRepository extends JpaRepository<Category, String> {
+    @HotPathFinder(table = "categories", columns = "name")
     Optional<Category> findByName(String name);
     boolean existsByName(String name);
+    @HotPathFinder(table = "categories", columns = "name")
+    List<Category> findByNameIn(Collection<String> names);
 }
@@ -1,9 +1,13 @@
 package com.wassimlagnaoui.Ecommerce.Repository;
 
+import com.wassimlagnaoui.Ecommerce.DTO.CustomerDTO;
+import com.wassimlagnaoui.Ecommerce.DTO.CustomerSummaryDTO;
 import com.wassimlagnaoui.Ecommerce.Domain.Customer;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
 import java.util.List;
 
 import java.util.Optional;
@@ -37,6 +41,33 @@ public interface CustomerRepository extends JpaRepository<Customer, String> {
     List<Customer> findAllWithAllDetails();
 
 
+    // DTO projections for list endpoints (no entity graph, no address/order loading)
+    @Query("SELECT new com.wassimlagnaoui.Ecommerce.DTO.CustomerDTO(c.id, c.name, c.email, c.totalSpent) FROM Customer c")
+    List<CustomerDTO> findAllCustomerDTOs();
+
+    @HotPathFinder(table = "customers", columns = "total_spent")
+    @Query("SELECT new com.wassimlagnaoui.Ecommerce.DTO.CustomerSummaryDTO(c.id, c.name, c.email, c.totalSpent, SIZE(c.orders)) " +
+            "FROM Customer c WHERE c.totalSpent > ?1")
+    List<CustomerSummaryDTO> findCustomerSummariesByTotalSpentGreaterThan(Double amount);
+
+    @Query("SELECT new com.wassimlagnaoui.Ecommerce.DTO.CustomerSummaryDTO(c.id, c.name, c.email, c.totalSpent, SIZE(c.orders)) " +
+            "FROM Customer c WHERE c.id IN ?1")
+    List<CustomerSummaryDTO> findCustomerSummariesByIdIn(Collection<String> ids);
+
+    // (id, totalSpent, order count, first order time) in id order, for loading the customer value index
+    @Query("SELECT c.id, c.totalSpent, COUNT(o), MIN(o.createdAt) FROM Customer c LEFT JOIN c.orders o " +
+            "WHERE c.id > ?1 GROUP BY c.id, c.totalSpent ORDER BY c.id")
+    List<Object[]> findValueRowsAfter(String afterId, Pageable pageable);
+
+    // The same rows for the given customers, re-read for customers that changed while the index was loading
+    @Query("SELECT c.id, c.totalSpent, COUNT(o), MIN(o.createdAt) FROM Customer c LEFT JOIN c.orders o " +
+            "WHERE c.id IN ?1 GROUP BY c.id, c.totalSpent")
+    List<Object[]> findValueRowsByIdIn(Collection<String> ids);
+
+    // Keyset scan of the (unique) emails, for loading the lookup guard filter
+    @Query("SELECT c.email FROM Customer c WHERE c.email > ?1 ORDER BY c.email")
+    List<String> findEmailsAfter(String afterEmail, Pageable pageable);
+
     // Add Specific queries
     @Query("SELECT c FROM Customer c WHERE SIZE(c.orders) > ?1" )
     List<Customer> findCustomersWithMoreThanNOrders(int n);
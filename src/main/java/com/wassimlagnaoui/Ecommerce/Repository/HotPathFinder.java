@@ -0,0 +1,20 @@
+package com.wassimlagnaoui.Ecommerce.Repository;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a repository finder that runs on a request hot path.
+ * At startup, IndexCoverageVerifier checks that {@link #table()} has an index
+ * whose leading columns are {@link #columns()}, in that order.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface HotPathFinder {
+    String table();
+    String[] columns();
+}
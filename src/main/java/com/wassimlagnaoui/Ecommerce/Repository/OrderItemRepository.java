@@ -1,13 +1,57 @@
 package com.wassimlagnaoui.Ecommerce.Repository;
 
+import com.wassimlagnaoui.Ecommerce.DTO.OrderItemDTO;
+import com.wassimlagnaoui.Ecommerce.DTO.SalesFactRow;
 import com.wassimlagnaoui.Ecommerce.Domain.OrderItem;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface OrderItemRepository extends JpaRepository<OrderItem, String> {
+    @HotPathFinder(table = "order_items", columns = "order_id")
     List<OrderItem> findByOrderId(String orderId);
+    @HotPathFinder(table = "order_items", columns = "product_name")
     List<OrderItem> findByProductName(String productName);
+
+    // Join by product ID; items not yet backfilled are still matched on their stored name
+    @HotPathFinder(table = "order_items", columns = "product_id")
+    @Query("SELECT oi FROM OrderItem oi WHERE oi.product.id = :productId OR (oi.product IS NULL AND oi.productName = :productName)")
+    List<OrderItem> findByProductIdOrLegacyName(@Param("productId") String productId, @Param("productName") String productName);
+
+    // Item projections for a batch of orders (see OrderProjectionLoader)
+    @HotPathFinder(table = "order_items", columns = "order_id")
+    @Query("SELECT new com.wassimlagnaoui.Ecommerce.DTO.OrderItemDTO(oi.id, oi.productName, oi.quantity, COALESCE(oi.unitPrice, oi.price), oi.order.id, oi.product.id) " +
+            "FROM OrderItem oi WHERE oi.order.id IN :orderIds")
+    List<OrderItemDTO> findItemDTOsByOrderIdIn(@Param("orderIds") Collection<String> orderIds);
+
+    // Keyset pagination over the id, for loading the columnar order item snapshot
+    @Query("SELECT new com.wassimlagnaoui.Ecommerce.DTO.OrderItemDTO(oi.id, oi.productName, oi.quantity, COALESCE(oi.unitPrice, oi.price), oi.order.id, oi.product.id) " +
+            "FROM OrderItem oi WHERE oi.id > :afterId ORDER BY oi.id")
+    List<OrderItemDTO> findItemDTOsAfter(@Param("afterId") String afterId, Pageable pageable);
+
+    // Sales facts of non-cancelled orders created in [from, to), for the analytics rebuild
+    @HotPathFinder(table = "orders", columns = "created_at")
+    @Query("SELECT new com.wassimlagnaoui.Ecommerce.DTO.SalesFactRow(o.id, o.customer.id, o.createdAt, oi.product.id, oi.productName, oi.quantity, COALESCE(oi.unitPrice, oi.price)) " +
+            "FROM OrderItem oi JOIN oi.order o WHERE o.status <> 'CANCELLED' AND o.createdAt >= :from AND o.createdAt < :to")
+    List<SalesFactRow> findSalesFactsCreatedBetween(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    // Backfill of the product reference on historical items (keyset pagination over the id)
+    @Query("SELECT oi.id FROM OrderItem oi WHERE oi.product IS NULL AND oi.id > :afterId ORDER BY oi.id")
+    List<String> findIdsWithoutProductAfter(@Param("afterId") String afterId, Pageable pageable);
+
+    @Modifying
+    @Query(value = "UPDATE order_items SET " +
+            "product_id = (SELECT MIN(p.id) FROM products p WHERE p.name = order_items.product_name), " +
+            "unit_price = COALESCE(unit_price, price) " +
+            "WHERE id IN (:ids) AND product_id IS NULL " +
+            "AND EXISTS (SELECT 1 FROM products p WHERE p.name = order_items.product_name)", nativeQuery = true)
+    int linkProductsByName(@Param("ids") Collection<String> ids);
 }
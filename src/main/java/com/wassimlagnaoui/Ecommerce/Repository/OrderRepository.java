@@ -1,60 +1,102 @@
 package com.wassimlagnaoui.Ecommerce.Repository;
 
+import com.wassimlagnaoui.Ecommerce.DTO.OrderDTO;
 import com.wassimlagnaoui.Ecommerce.Domain.Order;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, String> {
+    @HotPathFinder(table = "orders", columns = "customer_id")
     List<Order> findByCustomerId(String customerId);
+    @HotPathFinder(table = "orders", columns = "order_number")
     Optional<Order> findByOrderNumber(String orderNumber);
+    @HotPathFinder(table = "orders", columns = "status")
     List<Order> findByStatus(String status);
+    @HotPathFinder(table = "orders", columns = {"customer_id", "status"})
     List<Order> findByCustomerIdAndStatus(String customerId, String status);
 
+    // Version-only lookups answering conditional GETs without loading the order
+    @Query("SELECT o.version FROM Order o WHERE o.id = ?1")
+    Optional<Long> findVersionById(String id);
+
+    @HotPathFinder(table = "orders", columns = "order_number")
+    @Query("SELECT o.id, o.version FROM Order o WHERE o.orderNumber = ?1")
+    List<Object[]> findIdAndVersionByOrderNumber(String orderNumber);
+
+    // Current versions of a batch of orders, for checking warmed cache entries against concurrent writes
+    @Query("SELECT o.id, o.version FROM Order o WHERE o.id IN ?1")
+    List<Object[]> findIdAndVersionByIdIn(Collection<String> ids);
+
     // Account for lazy loading of order items and avoid N+1 problem
 
     @Query("SELECT o FROM Order o LEFT JOIN FETCH o.orderItems WHERE o.id = ?1")
     Optional<Order> findByIdWithOrderItems(String id);
 
+    // Batched form of findByIdWithOrderItems, for the cache warm-up
+    @Query("SELECT DISTINCT o FROM Order o LEFT JOIN FETCH o.orderItems WHERE o.id IN ?1")
+    List<Order> findAllByIdWithOrderItems(Collection<String> ids);
+
+    // Items together with their product rows, for stock restoration on cancel
+    @Query("SELECT DISTINCT o FROM Order o LEFT JOIN FETCH o.orderItems oi LEFT JOIN FETCH oi.product WHERE o.id = ?1")
+    Optional<Order> findByIdWithOrderItemsAndProducts(String id);
+
     @Query("SELECT o FROM Order o LEFT JOIN FETCH o.orderItems")
     List<Order> findAllWithOrderItems();
 
+    // DTO projections for list endpoints; items are loaded separately by OrderProjectionLoader
+    @Query("SELECT new com.wassimlagnaoui.Ecommerce.DTO.OrderDTO(o.id, o.orderNumber, o.status, o.totalAmount, c.id, c.name, o.createdAt) " +
+            "FROM Order o LEFT JOIN o.customer c")
+    List<OrderDTO> findAllOrderDTOs();
+
+    @HotPathFinder(table = "orders", columns = "status")
+    @Query("SELECT new com.wassimlagnaoui.Ecommerce.DTO.OrderDTO(o.id, o.orderNumber, o.status, o.totalAmount, c.id, c.name, o.createdAt) " +
+            "FROM Order o LEFT JOIN o.customer c WHERE o.status = ?1")
+    List<OrderDTO> findOrderDTOsByStatus(String status);
+
+    // All of a customer's orders in one scan of (customer_id, status, created_at),
+    // so rows come back partitioned by status and newest first within each status
+    @HotPathFinder(table = "orders", columns = {"customer_id", "status", "created_at"})
+    @Query("SELECT new com.wassimlagnaoui.Ecommerce.DTO.OrderDTO(o.id, o.orderNumber, o.status, o.totalAmount, c.id, c.name, o.createdAt) " +
+            "FROM Order o JOIN o.customer c WHERE c.id = ?1 ORDER BY o.status, o.createdAt DESC")
+    List<OrderDTO> findOrderDTOsByCustomerIdGroupedByStatus(String customerId);
+
+    // Several customers' orders at once (cache warm-up), in the same order as above within each customer
+    @HotPathFinder(table = "orders", columns = {"customer_id", "status", "created_at"})
+    @Query("SELECT new com.wassimlagnaoui.Ecommerce.DTO.OrderDTO(o.id, o.orderNumber, o.status, o.totalAmount, c.id, c.name, o.createdAt) " +
+            "FROM Order o JOIN o.customer c WHERE c.id IN ?1 ORDER BY o.status, o.createdAt DESC")
+    List<OrderDTO> findOrderDTOsByCustomerIdInGroupedByStatus(Collection<String> customerIds);
+
+    // Keyset pagination over the id, for loading the columnar order snapshot
+    @Query("SELECT new com.wassimlagnaoui.Ecommerce.DTO.OrderDTO(o.id, o.orderNumber, o.status, o.totalAmount, c.id, c.name, o.createdAt) " +
+            "FROM Order o LEFT JOIN o.customer c WHERE o.id > ?1 ORDER BY o.id")
+    List<OrderDTO> findOrderDTOsAfter(String afterId, Pageable pageable);
+
+    // Keyset scans of the order keys, for loading the lookup guard filters
+    @Query("SELECT o.id FROM Order o WHERE o.id > ?1 ORDER BY o.id")
+    List<String> findIdsAfter(String afterId, Pageable pageable);
+
+    @HotPathFinder(table = "orders", columns = "order_number")
+    @Query("SELECT o.orderNumber FROM Order o WHERE o.orderNumber > ?1 ORDER BY o.orderNumber")
+    List<String> findOrderNumbersAfter(String afterOrderNumber, Pageable pageable);
+
+    // Time range covered by orders (analytics rebuild partitioning)
+    @Query("SELECT MIN(o.createdAt) FROM Order o")
+    LocalDateTime findEarliestCreatedAt();
+
+    @Query("SELECT MAX(o.createdAt) FROM Order o")
+    LocalDateTime findLatestCreatedAt();
+
     // adding  other important queries
 
+    @HotPathFinder(table = "orders", columns = "total_amount")
     @Query("SELECT o FROM Order o WHERE o.totalAmount > ?1")
     List<Order> findByTotalAmountGreaterThan(Double amount);
-
-    @Query("SELECT o FROM Order o WHERE o.status = 'COMPLETED' AND o.customer.id = ?1")
-    List<Order> findCompletedOrdersByCustomerId(String customerId);
-
-    @Query("SELECT o FROM Order o WHERE o.status = 'PENDING' AND o.customer.id = ?1")
-    List<Order> findPendingOrdersByCustomerId(String customerId);
-
-    @Query("SELECT o FROM Order o WHERE o.status = 'CANCELLED' AND o.customer.id = ?1")
-    List<Order> findCancelledOrdersByCustomerId(String customerId);
-
-    @Query("SELECT o FROM Order o WHERE o.status = 'SHIPPED' AND o.customer.id = ?1")
-    List<Order> findShippedOrdersByCustomerId(String customerId);
-
-    @Query("SELECT o FROM Order o WHERE o.status = 'DELIVERED' AND o.customer.id = ?1")
-    List<Order> findDeliveredOrdersByCustomerId(String customerId);
-
-
-    @Query("SELECT o FROM Order o WHERE o.status = 'RETURNED' AND o.customer.id = ?1")
-    List<Order> findReturnedOrdersByCustomerId(String customerId);
-
-    @Query("SELECT o FROM Order o WHERE o.status = 'REFUNDED' AND o.customer.id = ?1")
-    List<Order> findRefundedOrdersByCustomerId(String customerId);
-
-
-
-
-
-
-
-
 }
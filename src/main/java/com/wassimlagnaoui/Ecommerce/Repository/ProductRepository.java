@@ -1,5 +1,6 @@
 package com.wassimlagnaoui.Ecommerce.Repository;
 
+import com.wassimlagnaoui.Ecommerce.DTO.ProductDTO;
 import com.wassimlagnaoui.Ecommerce.Domain.Product;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -8,16 +9,22 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, String> {
+    @HotPathFinder(table = "products", columns = "name")
     Optional<Product> findByName(String name);
+    @HotPathFinder(table = "products", columns = "price")
     List<Product> findByPriceBetween(Double minPrice, Double maxPrice);
+    @HotPathFinder(table = "products", columns = "stock")
     List<Product> findByStockGreaterThan(Integer stock);
+    @HotPathFinder(table = "products", columns = "stock")
     List<Product> findByStockLessThan(Integer stock);
 
+    @HotPathFinder(table = "product_categories", columns = "category_id")
     @Query("SELECT p FROM Product p JOIN p.categories c WHERE c.name = :categoryName")
     List<Product> findByCategoryName(@Param("categoryName") String categoryName);
 
@@ -62,13 +69,69 @@ public interface ProductRepository extends JpaRepository<Product, String> {
     @Override
     Page<Product> findAll(Pageable pageable);
 
+    @HotPathFinder(table = "products", columns = "name")
     boolean existsByName(String name);
 
     // find top-selling products
+    @HotPathFinder(table = "products", columns = "sales_count")
     @Query("SELECT p FROM Product p ORDER BY p.salesCount DESC")
     List<Product> findTopSellingProducts();
 
+    @HotPathFinder(table = "products", columns = "name")
+    List<Product> findByNameIn(Collection<String> names);
+
+    // Bulk import: resolve a whole chunk of names (and their categories) in one round-trip
+    @Query("SELECT DISTINCT p FROM Product p LEFT JOIN FETCH p.categories WHERE p.name IN :names")
+    List<Product> findByNameInWithCategories(@Param("names") Collection<String> names);
+
+    // DTO projections for list endpoints: only the mapped columns, no managed entities
+    @Query("SELECT new com.wassimlagnaoui.Ecommerce.DTO.ProductDTO(p.id, p.name, p.description, p.price, p.stock, p.salesCount) FROM Product p")
+    List<ProductDTO> findAllProductDTOs();
+
+    @Query(value = "SELECT new com.wassimlagnaoui.Ecommerce.DTO.ProductDTO(p.id, p.name, p.description, p.price, p.stock, p.salesCount) FROM Product p",
+            countQuery = "SELECT COUNT(p) FROM Product p")
+    Page<ProductDTO> findAllProductDTOs(Pageable pageable);
+
+    @Query("SELECT new com.wassimlagnaoui.Ecommerce.DTO.ProductDTO(p.id, p.name, p.description, p.price, p.stock, p.salesCount) " +
+            "FROM Product p WHERE p.name LIKE %:keyword% OR p.description LIKE %:keyword%")
+    List<ProductDTO> searchProductDTOsByKeyword(@Param("keyword") String keyword);
+
+    @HotPathFinder(table = "products", columns = "price")
+    @Query("SELECT new com.wassimlagnaoui.Ecommerce.DTO.ProductDTO(p.id, p.name, p.description, p.price, p.stock, p.salesCount) " +
+            "FROM Product p WHERE p.price BETWEEN :minPrice AND :maxPrice")
+    List<ProductDTO> findProductDTOsByPriceBetween(@Param("minPrice") Double minPrice, @Param("maxPrice") Double maxPrice);
+
+    @HotPathFinder(table = "product_categories", columns = "category_id")
+    @Query("SELECT new com.wassimlagnaoui.Ecommerce.DTO.ProductDTO(p.id, p.name, p.description, p.price, p.stock, p.salesCount) " +
+            "FROM Product p JOIN p.categories c WHERE c.name = :categoryName")
+    List<ProductDTO> findProductDTOsByCategoryName(@Param("categoryName") String categoryName);
+
+    @Query("SELECT new com.wassimlagnaoui.Ecommerce.DTO.ProductDTO(p.id, p.name, p.description, p.price, p.stock, p.salesCount) " +
+            "FROM Product p WHERE p.id IN :ids")
+    List<ProductDTO> findProductDTOsByIdIn(@Param("ids") Collection<String> ids);
+
+    // (id, name, description, price, stock, salesCount, version) in id order, for loading the catalog snapshot
+    @Query("SELECT p.id, p.name, p.description, p.price, p.stock, p.salesCount, p.version FROM Product p WHERE p.id > ?1 ORDER BY p.id")
+    List<Object[]> findCatalogRowsAfter(String afterId, Pageable pageable);
+
+    // (version, salesCount) lookup answering conditional GETs without loading the product
+    @Query("SELECT p.version, p.salesCount FROM Product p WHERE p.id = ?1")
+    List<Object[]> findVersionAndSalesCountById(String id);
+
+    // (productId, price, stock) of every product, to load the facet index
+    @Query("SELECT p.id, p.price, p.stock FROM Product p")
+    List<Object[]> findProductFacetRows();
+
+    // (productId, salesCount) of every product, to seed the best-seller ranking
+    @Query("SELECT p.id, p.salesCount FROM Product p")
+    List<Object[]> findProductSalesCounts();
+
+    // (productId, categoryName) pairs for every categorized product
+    @Query("SELECT p.id, c.name FROM Product p JOIN p.categories c")
+    List<Object[]> findProductCategoryNames();
+
     // find products with low stock (less than a certain threshold)
+    @HotPathFinder(table = "products", columns = "stock")
     @Query("SELECT p FROM Product p WHERE p.stock < :threshold")
     List<Product> findProductsWithLowStock(@Param("threshold") Integer threshold);
 
@@ -10,15 +10,20 @@ import java.util.List;
 
 @Repository
 public interface ReviewRepository extends JpaRepository<Review, String> {
+    @HotPathFinder(table = "reviews", columns = "product_id")
     List<Review> findByProductId(String productId);
+    @HotPathFinder(table = "reviews", columns = "customer_id")
     List<Review> findByCustomerId(String customerId);
     List<Review> findByRating(Integer rating);
     List<Review> findByRatingGreaterThanEqual(Integer rating);
+    @HotPathFinder(table = "reviews", columns = {"customer_id", "product_id"})
     List<Review> findByProductIdAndCustomerId(String productId, String customerId);
 
+    @HotPathFinder(table = "reviews", columns = {"product_id", "rating"})
     @Query("SELECT AVG(r.rating) FROM Review r WHERE r.product.id = :productId")
     Double findAverageRatingByProductId(@Param("productId") String productId);
 
+    @HotPathFinder(table = "reviews", columns = "product_id")
     @Query("SELECT COUNT(r) FROM Review r WHERE r.product.id = :productId")
     Long countReviewsByProductId(@Param("productId") String productId);
 }
@@ -0,0 +1,185 @@
+package com.wassimlagnaoui.Ecommerce.Service;
+
+import com.wassimlagnaoui.Ecommerce.Repository.ProductRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * In-memory best sellers. All-time counts are exact (seeded from products.sales_count) and kept
+ * in a ranking ordered by units sold, so the top K is read in O(K). The last hour and last day
+ * are sliding windows made of time slots, each slot a {@link SpaceSavingSketch}; the merged
+ * window ranking is materialized and refreshed at most every app.best-sellers.window-refresh.
+ */
+@Service
+public class BestSellerTracker {
+
+    public enum Window {
+        ALL(null, 0),
+        HOUR(Duration.ofMinutes(5), 12),
+        DAY(Duration.ofHours(1), 24);
+
+        private final Duration slot;
+        private final int slots;
+
+        Window(Duration slot, int slots) {
+            this.slot = slot;
+            this.slots = slots;
+        }
+    }
+
+    public record BestSeller(String productId, long unitsSold, long maxError) {
+    }
+
+    private static final Comparator<BestSeller> BY_UNITS_DESC =
+            Comparator.comparingLong(BestSeller::unitsSold).reversed().thenComparing(BestSeller::productId);
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Value("${app.best-sellers.sketch-capacity:1000}")
+    private int sketchCapacity;
+
+    @Value("${app.best-sellers.window-refresh:5s}")
+    private Duration windowRefresh;
+
+    // All-time exact counts and their ranking, guarded by this
+    private final Map<String, BestSeller> allTime = new HashMap<>();
+    private final TreeSet<BestSeller> allTimeRanking = new TreeSet<>(BY_UNITS_DESC);
+
+    private final Map<Window, SlidingWindow> windows = new EnumMap<>(Window.class);
+
+    @PostConstruct
+    public void createWindows() {
+        windows.put(Window.HOUR, new SlidingWindow(Window.HOUR, sketchCapacity, windowRefresh.toMillis()));
+        windows.put(Window.DAY, new SlidingWindow(Window.DAY, sketchCapacity, windowRefresh.toMillis()));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadAllTimeCounts() {
+        List<Object[]> counts = productRepository.findProductSalesCounts();
+        synchronized (this) {
+            allTime.clear();
+            allTimeRanking.clear();
+            for (Object[] row : counts) {
+                long units = row[1] != null ? ((Number) row[1]).longValue() : 0;
+                BestSeller entry = new BestSeller((String) row[0], units, 0);
+                allTime.put(entry.productId(), entry);
+                allTimeRanking.add(entry);
+            }
+        }
+    }
+
+    // Units sold of a product, counted once the order commits
+    public void recordSale(String productId, int quantity) {
+        if (productId == null || quantity <= 0) {
+            return;
+        }
+        AfterCommit.run(() -> {
+            long now = System.currentTimeMillis();
+            synchronized (this) {
+                BestSeller previous = allTime.get(productId);
+                if (previous != null) {
+                    allTimeRanking.remove(previous);
+                }
+                BestSeller updated = new BestSeller(productId, (previous != null ? previous.unitsSold() : 0) + quantity, 0);
+                allTime.put(productId, updated);
+                allTimeRanking.add(updated);
+            }
+            for (SlidingWindow window : windows.values()) {
+                window.add(productId, quantity, now);
+            }
+        });
+    }
+
+    public void removeProduct(String productId) {
+        synchronized (this) {
+            BestSeller previous = allTime.remove(productId);
+            if (previous != null) {
+                allTimeRanking.remove(previous);
+            }
+        }
+    }
+
+    public List<BestSeller> getTop(Window window, int limit) {
+        if (window == Window.ALL) {
+            synchronized (this) {
+                List<BestSeller> top = new ArrayList<>(Math.min(limit, allTimeRanking.size()));
+                for (BestSeller entry : allTimeRanking) {
+                    if (top.size() == limit) {
+                        break;
+                    }
+                    top.add(entry);
+                }
+                return top;
+            }
+        }
+        return windows.get(window).top(limit, System.currentTimeMillis());
+    }
+
+    /**
+     * Ring of slot sketches; a slot is cleared when the clock reaches it again.
+     * The window ranking is the merge of the live slots, cached for refreshMillis.
+     */
+    private static final class SlidingWindow {
+        private final long slotMillis;
+        private final SpaceSavingSketch[] sketches;
+        private final long[] slotEpochs;
+        private final long refreshMillis;
+
+        private List<BestSeller> ranking = List.of();
+        private long rankingBuiltAt;
+
+        SlidingWindow(Window window, int capacity, long refreshMillis) {
+            this.slotMillis = window.slot.toMillis();
+            this.sketches = new SpaceSavingSketch[window.slots];
+            this.slotEpochs = new long[window.slots];
+            this.refreshMillis = refreshMillis;
+            for (int i = 0; i < sketches.length; i++) {
+                sketches[i] = new SpaceSavingSketch(capacity);
+                slotEpochs[i] = -1;
+            }
+        }
+
+        synchronized void add(String productId, long units, long now) {
+            long epoch = now / slotMillis;
+            int index = (int) (epoch % sketches.length);
+            if (slotEpochs[index] != epoch) {
+                sketches[index].clear();
+                slotEpochs[index] = epoch;
+            }
+            sketches[index].add(productId, units);
+        }
+
+        synchronized List<BestSeller> top(int limit, long now) {
+            long epoch = now / slotMillis;
+            // Rebuild when stale, or as soon as the oldest slot has rolled out of the window
+            if (now - rankingBuiltAt >= refreshMillis || rankingBuiltAt / slotMillis != epoch) {
+                Map<String, long[]> merged = new HashMap<>();
+                for (int i = 0; i < sketches.length; i++) {
+                    if (slotEpochs[i] > epoch - sketches.length && slotEpochs[i] <= epoch) {
+                        sketches[i].addTo(merged);
+                    }
+                }
+                List<BestSeller> rebuilt = new ArrayList<>(merged.size());
+                merged.forEach((productId, totals) -> rebuilt.add(new BestSeller(productId, totals[0], totals[1])));
+                rebuilt.sort(BY_UNITS_DESC);
+                ranking = rebuilt;
+                rankingBuiltAt = now;
+            }
+            return ranking.size() > limit ? List.copyOf(ranking.subList(0, limit)) : ranking;
+        }
+    }
+}
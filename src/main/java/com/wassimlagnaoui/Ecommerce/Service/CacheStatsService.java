@@ -0,0 +1,97 @@
+package com.wassimlagnaoui.Ecommerce.Service;
+
+import com.github.benmanes.caffeine.cache.Policy;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.wassimlagnaoui.Ecommerce.Configuration.CacheEntryWeigher;
+import com.wassimlagnaoui.Ecommerce.DTO.CacheStatsDTO;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Size, heap usage and hit rate of every Caffeine cache of every cache manager. Caches bounded by
+ * weight report the weigher's running total; the others are estimated from a sample of their entries.
+ * The estimate is also published as the app.cache.estimated.bytes gauge.
+ */
+@Service
+public class CacheStatsService {
+
+    private static final int SAMPLE_SIZE = 64;
+
+    @Autowired
+    private Map<String, CacheManager> cacheManagers;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Caches with a registered gauge, as "manager/cache"
+    private final Set<String> gauged = ConcurrentHashMap.newKeySet();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void registerGauges() {
+        getCacheStats();
+    }
+
+    // The default manager creates its caches on first use, so the ones it has so far
+    public List<CacheStatsDTO> getCacheStats() {
+        List<CacheStatsDTO> stats = new ArrayList<>();
+        cacheManagers.forEach((managerName, cacheManager) -> {
+            for (String cacheName : cacheManager.getCacheNames()) {
+                Cache cache = cacheManager.getCache(cacheName);
+                if (cache != null && cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache<?, ?> caffeine) {
+                    registerGauge(managerName, cacheName, caffeine);
+                    stats.add(toStats(managerName, cacheName, caffeine));
+                }
+            }
+        });
+        return stats;
+    }
+
+    private CacheStatsDTO toStats(String managerName, String cacheName, com.github.benmanes.caffeine.cache.Cache<?, ?> caffeine) {
+        CacheStats stats = caffeine.stats();
+        Optional<? extends Policy.Eviction<?, ?>> eviction = caffeine.policy().eviction();
+        boolean weighted = eviction.map(Policy.Eviction::isWeighted).orElse(false);
+        Long maximum = eviction.map(Policy.Eviction::getMaximum).orElse(null);
+        return new CacheStatsDTO(managerName, cacheName, caffeine.estimatedSize(), estimateBytes(caffeine), maximum, weighted,
+                stats.hitCount(), stats.missCount(), stats.hitRate(), stats.evictionCount());
+    }
+
+    static long estimateBytes(com.github.benmanes.caffeine.cache.Cache<?, ?> caffeine) {
+        Optional<? extends Policy.Eviction<?, ?>> eviction = caffeine.policy().eviction();
+        if (eviction.isPresent() && eviction.get().isWeighted()) {
+            return eviction.get().weightedSize().orElse(0L);
+        }
+        long sampled = 0;
+        int count = 0;
+        for (Map.Entry<?, ?> entry : caffeine.asMap().entrySet()) {
+            sampled += CacheEntryWeigher.weigh(entry.getKey(), entry.getValue());
+            if (++count == SAMPLE_SIZE) {
+                break;
+            }
+        }
+        return count == 0 ? 0 : sampled * Math.max(count, caffeine.estimatedSize()) / count;
+    }
+
+    private void registerGauge(String managerName, String cacheName, com.github.benmanes.caffeine.cache.Cache<?, ?> caffeine) {
+        if (!gauged.add(managerName + "/" + cacheName)) {
+            return;
+        }
+        Gauge.builder("app.cache.estimated.bytes", caffeine, CacheStatsService::estimateBytes)
+                .tag("cacheManager", managerName)
+                .tag("cache", cacheName)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+}
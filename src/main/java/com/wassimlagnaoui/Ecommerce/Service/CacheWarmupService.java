@@ -0,0 +1,306 @@
+package com.wassimlagnaoui.Ecommerce.Service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wassimlagnaoui.Ecommerce.DTO.DTOMapper;
+import com.wassimlagnaoui.Ecommerce.Domain.Order;
+import com.wassimlagnaoui.Ecommerce.Repository.OrderRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/**
+ * Keeps the caches warm across restarts. The hottest keys of each warmed cache (by Caffeine's own
+ * frequency estimate) are written to a local snapshot file periodically and on shutdown; on startup
+ * they are reloaded in parallel batches before the app reports ready. Boot publishes readiness
+ * (ACCEPTING_TRAFFIC) only after the ApplicationReadyEvent listeners return, so the warm-up gates
+ * the readiness probe for at most the warm-up budget; keys left over load on demand.
+ */
+@Service
+public class CacheWarmupService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheWarmupService.class);
+
+    private static final List<String> PRODUCT_CACHES = List.of("product");
+    private static final List<String> ORDER_CACHES = List.of("order", "userOrders");
+
+    @Autowired
+    @Qualifier("productCacheManager")
+    private CacheManager productCacheManager;
+
+    @Autowired
+    @Qualifier("orderCacheManager")
+    private CacheManager orderCacheManager;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private CustomerOrderHistoryService customerOrderHistoryService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private DTOMapper dtoMapper;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.cache.warmup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.cache.warmup.snapshot-file:cache-hot-keys.json}")
+    private String snapshotFile;
+
+    @Value("${app.cache.warmup.keys-per-cache:500}")
+    private int keysPerCache;
+
+    @Value("${app.cache.warmup.budget:20s}")
+    private Duration budget;
+
+    @Value("${app.cache.warmup.parallelism:4}")
+    private int parallelism;
+
+    @Value("${app.cache.warmup.batch-size:100}")
+    private int batchSize;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!enabled) {
+            return;
+        }
+        Map<String, List<String>> hotKeys = readSnapshot();
+        if (hotKeys.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        long deadline = start + budget.toNanos();
+        AtomicInteger warmed = new AtomicInteger();
+        AtomicInteger threads = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "cache-warmup-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            hotKeys.forEach((cacheName, keys) -> {
+                for (int from = 0; from < keys.size(); from += batchSize) {
+                    List<String> batch = keys.subList(from, Math.min(keys.size(), from + batchSize));
+                    pool.submit(() -> {
+                        if (System.nanoTime() >= deadline) {
+                            return;
+                        }
+                        try {
+                            warmed.addAndGet(warm(cacheName, batch, deadline));
+                        } catch (RuntimeException e) {
+                            logger.warn("Cache warm-up batch of {} failed", cacheName, e);
+                        }
+                    });
+                }
+            });
+            pool.shutdown();
+            if (!pool.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                logger.warn("Cache warm-up budget of {} exhausted; the remaining keys load on demand", budget);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            pool.shutdownNow();
+        }
+        logger.info("Cache warm-up loaded {} hot keys in {} ms", warmed.get(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    @Scheduled(fixedDelayString = "${app.cache.warmup.snapshot-interval:5m}", initialDelayString = "${app.cache.warmup.snapshot-interval:5m}")
+    public void saveSnapshot() {
+        if (!enabled) {
+            return;
+        }
+        Map<String, List<String>> hotKeys = new LinkedHashMap<>();
+        for (String cacheName : PRODUCT_CACHES) {
+            hotKeys.put(cacheName, hottestKeys(productCacheManager.getCache(cacheName)));
+        }
+        for (String cacheName : ORDER_CACHES) {
+            hotKeys.put(cacheName, hottestKeys(orderCacheManager.getCache(cacheName)));
+        }
+        // Don't replace a useful snapshot with the empty caches of an instance that served nothing
+        if (hotKeys.values().stream().allMatch(List::isEmpty)) {
+            return;
+        }
+        try {
+            Path file = Path.of(snapshotFile).toAbsolutePath();
+            Files.createDirectories(file.getParent());
+            Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+            objectMapper.writeValue(temp.toFile(), hotKeys);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("Could not write the cache hot-key snapshot to {}", snapshotFile, e);
+        }
+    }
+
+    @PreDestroy
+    public void saveOnShutdown() {
+        saveSnapshot();
+    }
+
+    private Map<String, List<String>> readSnapshot() {
+        Path file = Path.of(snapshotFile);
+        if (!Files.isRegularFile(file)) {
+            return Map.of();
+        }
+        try {
+            return objectMapper.readValue(file.toFile(), new TypeReference<LinkedHashMap<String, List<String>>>() {
+            });
+        } catch (IOException e) {
+            logger.warn("Ignoring unreadable cache hot-key snapshot {}", snapshotFile, e);
+            return Map.of();
+        }
+    }
+
+    // Up to keysPerCache keys, hottest first; only String keys can be replayed
+    private List<String> hottestKeys(Cache cache) {
+        if (cache == null || !(cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache<?, ?> caffeine)) {
+            return List.of();
+        }
+        return caffeine.policy().eviction()
+                .map(eviction -> eviction.hottest(keysPerCache).keySet().stream()
+                        .filter(String.class::isInstance)
+                        .map(String.class::cast)
+                        .toList())
+                .orElse(List.of());
+    }
+
+    // Returns how many keys were loaded
+    private int warm(String cacheName, List<String> keys, long deadline) {
+        switch (cacheName) {
+            case "userOrders" -> {
+                customerOrderHistoryService.warm(keys);
+                return keys.size();
+            }
+            case "order" -> {
+                return warmOrders(keys, deadline);
+            }
+            case "product" -> {
+                int loaded = 0;
+                for (String key : keys) {
+                    if (System.nanoTime() >= deadline) {
+                        break;
+                    }
+                    if (replay(key, this::replayProductKey)) {
+                        loaded++;
+                    }
+                }
+                return loaded;
+            }
+            default -> {
+                return 0;
+            }
+        }
+    }
+
+    // Plain order ids are loaded with one query per batch; derived keys ("items:<id>", ...) are replayed
+    private int warmOrders(List<String> keys, long deadline) {
+        List<String> ids = new ArrayList<>();
+        int loaded = 0;
+        for (String key : keys) {
+            if (key.indexOf(':') < 0) {
+                ids.add(key);
+            } else if (System.nanoTime() < deadline && replay(key, this::replayOrderKey)) {
+                loaded++;
+            }
+        }
+        if (!ids.isEmpty()) {
+            Cache orders = orderCacheManager.getCache("order");
+            Map<String, Long> warmedVersions = new HashMap<>();
+            // Same value @Cacheable stores for getOrderById (the Optional's content)
+            for (Order order : orderRepository.findAllByIdWithOrderItems(ids)) {
+                orders.putIfAbsent(order.getId(), dtoMapper.toOrderDTO(order));
+                warmedVersions.put(order.getId(), order.getVersion());
+                loaded++;
+            }
+            // A write that committed after the batch read may have evicted before the put above; its version
+            // shows here. Writes committing after this check evict the entry themselves
+            Map<String, Long> currentVersions = new HashMap<>();
+            for (Object[] row : orderRepository.findIdAndVersionByIdIn(warmedVersions.keySet())) {
+                currentVersions.put((String) row[0], (Long) row[1]);
+            }
+            warmedVersions.forEach((id, version) -> {
+                if (!Objects.equals(version, currentVersions.get(id))) {
+                    orders.evict(id);
+                }
+            });
+        }
+        return loaded;
+    }
+
+    private boolean replay(String key, BiConsumer<String, String> replayer) {
+        int colon = key.indexOf(':');
+        if (colon < 0) {
+            return false;
+        }
+        try {
+            replayer.accept(key.substring(0, colon), key.substring(colon + 1));
+            return true;
+        } catch (RuntimeException e) {
+            logger.debug("Skipping cache warm-up key {}: {}", key, e.getMessage());
+            return false;
+        }
+    }
+
+    // Mirrors the @Cacheable keys of ProductService; calls go through the proxy so the results are cached
+    private void replayProductKey(String kind, String argument) {
+        switch (kind) {
+            case "reviews" -> productService.getProductReviews(argument);
+            case "avgRating" -> productService.getProductAverageRating(argument);
+            case "reviewCount" -> productService.getProductReviewCount(argument);
+            case "summary" -> productService.getProductSummary(argument);
+            case "reviewsByRating" -> {
+                int colon = argument.lastIndexOf(':');
+                productService.getProductReviewsByRating(argument.substring(0, colon), Integer.valueOf(argument.substring(colon + 1)));
+            }
+            default -> throw new IllegalArgumentException("Unknown product cache key kind " + kind);
+        }
+    }
+
+    // Mirrors the @Cacheable keys of OrderService
+    private void replayOrderKey(String kind, String argument) {
+        switch (kind) {
+            case "orderNumber" -> orderService.findByOrderNumber(argument);
+            case "items" -> orderService.getOrderItems(argument);
+            case "total" -> orderService.calculateOrderTotal(argument);
+            case "itemCount" -> orderService.getOrderItemCount(argument);
+            case "canProcess" -> orderService.canProcessOrder(argument);
+            case "canCancel" -> orderService.canCancelOrder(argument);
+            default -> throw new IllegalArgumentException("Unknown order cache key kind " + kind);
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.wassimlagnaoui.Ecommerce.Service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.wassimlagnaoui.Ecommerce.DTO.OrderDTO;
+import com.wassimlagnaoui.Ecommerce.Repository.OrderRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Per-customer order history read model, kept in the "userOrders" cache under the customer ID.
+ * It serves every customer order view (all, by status, paged) from one structure that is
+ * updated in place on order writes; invalidation only ever touches the affected customer.
+ * The same entry fills every status bucket of a customer's dashboard.
+ */
+@Service
+public class CustomerOrderHistoryService {
+
+    private static final int WRITE_STAMP_STRIPES = 1024;
+
+    private static final Comparator<OrderDTO> NEWEST_FIRST =
+            Comparator.comparing(OrderDTO::getCreatedAt, Comparator.nullsLast(Comparator.reverseOrder()));
+
+    private final OrderRepository orderRepository;
+    private final OrderProjectionLoader orderProjectionLoader;
+    private final Cache<Object, Object> histories;
+    private final Timer readTimer;
+
+    // Write stamps per customer stripe, bumped by every committed write before it is applied; the
+    // warm-up only inserts a history whose stripe did not move while it was being read
+    private final AtomicLongArray writeStamps = new AtomicLongArray(WRITE_STAMP_STRIPES);
+
+    @SuppressWarnings("unchecked")
+    @Autowired
+    public CustomerOrderHistoryService(OrderRepository orderRepository, OrderProjectionLoader orderProjectionLoader,
+                                       @Qualifier("orderCacheManager") CacheManager orderCacheManager, MeterRegistry meterRegistry) {
+        this.orderRepository = orderRepository;
+        this.orderProjectionLoader = orderProjectionLoader;
+        this.histories = (Cache<Object, Object>) orderCacheManager.getCache("userOrders").getNativeCache();
+        this.readTimer = Timer.builder("app.orders.history.read")
+                .description("Customer order history reads")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    public List<OrderDTO> getOrders(String customerId) {
+        return getOrders(customerId, null, null, null);
+    }
+
+    public List<OrderDTO> getOrders(String customerId, String status) {
+        return getOrders(customerId, status, null, null);
+    }
+
+    // status, page and size are optional; without a page the whole (filtered) history is returned
+    public List<OrderDTO> getOrders(String customerId, String status, Integer page, Integer size) {
+        return readTimer.record(() -> {
+            CustomerOrderHistory history = (CustomerOrderHistory) histories.get(customerId, this::load);
+            return history.view(status, page, size);
+        });
+    }
+
+    // Buckets for the requested statuses (all statuses present when none are given), from one cache entry
+    public Map<String, List<OrderDTO>> getOrdersGroupedByStatus(String customerId, Collection<String> statuses) {
+        return readTimer.record(() -> {
+            CustomerOrderHistory history = (CustomerOrderHistory) histories.get(customerId, this::load);
+            return history.groupedByStatus(statuses);
+        });
+    }
+
+    // Applies a created or updated order to the customer's history once the write has committed
+    public void recordOrder(OrderDTO order) {
+        if (order == null || order.getCustomerId() == null) {
+            return;
+        }
+        AfterCommit.run(() -> {
+            stamp(order.getCustomerId());
+            histories.asMap().computeIfPresent(order.getCustomerId(),
+                    (key, history) -> ((CustomerOrderHistory) history).with(order));
+        });
+    }
+
+    public void removeOrder(String customerId, String orderId) {
+        if (customerId == null) {
+            return;
+        }
+        AfterCommit.run(() -> {
+            stamp(customerId);
+            histories.asMap().computeIfPresent(customerId,
+                    (key, history) -> ((CustomerOrderHistory) history).without(orderId));
+        });
+    }
+
+    // Fallback for writes whose resulting order isn't at hand; rebuilt on the next read
+    public void invalidate(String customerId) {
+        if (customerId != null) {
+            AfterCommit.run(() -> {
+                stamp(customerId);
+                histories.invalidate(customerId);
+            });
+        }
+    }
+
+    // Cache warm-up: the histories of many customers from one scan; entries already cached are kept, and
+    // a customer written to during the scan is skipped (its history loads on demand)
+    public void warm(Collection<String> customerIds) {
+        Map<String, List<OrderDTO>> ordersByCustomer = new HashMap<>();
+        Map<String, Long> stamps = new HashMap<>();
+        for (String customerId : customerIds) {
+            ordersByCustomer.put(customerId, new ArrayList<>());
+            stamps.put(customerId, writeStamps.get(stripe(customerId)));
+        }
+        for (OrderDTO order : orderProjectionLoader.withItems(orderRepository.findOrderDTOsByCustomerIdInGroupedByStatus(customerIds))) {
+            ordersByCustomer.computeIfAbsent(order.getCustomerId(), id -> new ArrayList<>()).add(order);
+        }
+        // Checked inside compute: a write stamped after the check runs its update after this insert
+        ordersByCustomer.forEach((customerId, orders) -> histories.asMap().compute(customerId, (key, cached) -> {
+            if (cached != null) {
+                return cached;
+            }
+            Long stamp = stamps.get(customerId);
+            return stamp != null && stamp == writeStamps.get(stripe(customerId)) ? history(orders) : null;
+        }));
+    }
+
+    private void stamp(String customerId) {
+        writeStamps.incrementAndGet(stripe(customerId));
+    }
+
+    private static int stripe(String customerId) {
+        return Math.floorMod(customerId.hashCode(), WRITE_STAMP_STRIPES);
+    }
+
+    // One status-partitioned scan; the snapshot keeps the orders newest first across statuses
+    private CustomerOrderHistory load(Object customerId) {
+        return history(orderProjectionLoader.withItems(orderRepository.findOrderDTOsByCustomerIdGroupedByStatus((String) customerId)));
+    }
+
+    private static CustomerOrderHistory history(List<OrderDTO> orders) {
+        OrderDTO[] newestFirst = orders.toArray(new OrderDTO[0]);
+        Arrays.sort(newestFirst, NEWEST_FIRST);
+        return new CustomerOrderHistory(newestFirst);
+    }
+
+    /**
+     * Immutable snapshot: the customer's orders (newest first) plus, per status,
+     * the positions of the matching orders. Writers replace the whole snapshot.
+     */
+    static final class CustomerOrderHistory {
+
+        private final OrderDTO[] orders;
+        private final Map<String, int[]> positionsByStatus;
+
+        CustomerOrderHistory(OrderDTO[] orders) {
+            this.orders = orders;
+            Map<String, List<Integer>> positions = new HashMap<>();
+            for (int i = 0; i < orders.length; i++) {
+                positions.computeIfAbsent(statusKey(orders[i].getStatus()), status -> new ArrayList<>()).add(i);
+            }
+            this.positionsByStatus = new HashMap<>(positions.size() * 2);
+            positions.forEach((status, list) -> positionsByStatus.put(status, list.stream().mapToInt(Integer::intValue).toArray()));
+        }
+
+        List<OrderDTO> view(String status, Integer page, Integer size) {
+            int total;
+            int[] positions = null;
+            if (status == null) {
+                total = orders.length;
+            } else {
+                positions = positionsByStatus.getOrDefault(statusKey(status), new int[0]);
+                total = positions.length;
+            }
+
+            int from = 0;
+            int to = total;
+            if (page != null && size != null && size > 0) {
+                from = (int) Math.min((long) page * size, total);
+                to = Math.min(from + size, total);
+            }
+
+            List<OrderDTO> result = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                result.add(orders[positions == null ? i : positions[i]]);
+            }
+            return result;
+        }
+
+        Map<String, List<OrderDTO>> groupedByStatus(Collection<String> statuses) {
+            Map<String, List<OrderDTO>> buckets = new LinkedHashMap<>();
+            Collection<String> keys = statuses == null || statuses.isEmpty() ? positionsByStatus.keySet() : statuses;
+            for (String status : keys) {
+                int[] positions = positionsByStatus.getOrDefault(statusKey(status), new int[0]);
+                List<OrderDTO> bucket = new ArrayList<>(positions.length);
+                for (int position : positions) {
+                    bucket.add(orders[position]);
+                }
+                buckets.put(statusKey(status), bucket);
+            }
+            return buckets;
+        }
+
+        CustomerOrderHistory with(OrderDTO order) {
+            for (int i = 0; i < orders.length; i++) {
+                if (orders[i].getId().equals(order.getId())) {
+                    OrderDTO[] updated = orders.clone();
+                    updated[i] = order;
+                    return new CustomerOrderHistory(updated);
+                }
+            }
+            OrderDTO[] updated = new OrderDTO[orders.length + 1];
+            updated[0] = order;
+            System.arraycopy(orders, 0, updated, 1, orders.length);
+            return new CustomerOrderHistory(updated);
+        }
+
+        CustomerOrderHistory without(String orderId) {
+            OrderDTO[] updated = Arrays.stream(orders)
+                    .filter(order -> !order.getId().equals(orderId))
+                    .toArray(OrderDTO[]::new);
+            return updated.length == orders.length ? this : new CustomerOrderHistory(updated);
+        }
+
+        private static String statusKey(String status) {
+            return status == null ? "" : status.toUpperCase();
+        }
+    }
+}
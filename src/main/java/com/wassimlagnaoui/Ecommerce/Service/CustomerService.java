@@ -2,22 +2,27 @@ package com.wassimlagnaoui.Ecommerce.Service;
 
 import com.wassimlagnaoui.Ecommerce.Domain.Address;
 import com.wassimlagnaoui.Ecommerce.Domain.Customer;
-import com.wassimlagnaoui.Ecommerce.Domain.Order;
 import com.wassimlagnaoui.Ecommerce.DTO.*;
 import com.wassimlagnaoui.Ecommerce.Exception.CustomerNotFoundException;
 import com.wassimlagnaoui.Ecommerce.Repository.AddressRepository;
 import com.wassimlagnaoui.Ecommerce.Repository.CustomerRepository;
-import com.wassimlagnaoui.Ecommerce.Repository.OrderRepository;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
 public class CustomerService {
 
+    private static final int ADDRESS_BATCH_SIZE = 1000;
+
     @Autowired
     private CustomerRepository customerRepository;
 
@@ -25,15 +30,20 @@ public class CustomerService {
     private AddressRepository addressRepository;
 
     @Autowired
-    private OrderRepository orderRepository;
+    private DTOMapper dtoMapper;
 
     @Autowired
-    private DTOMapper dtoMapper;
+    private CustomerOrderHistoryService customerOrderHistoryService;
+
+    @Autowired
+    private CustomerValueIndex customerValueIndex;
+
+    @Autowired
+    private LookupGuard lookupGuard;
 
     // Basic CRUD operations - now returning DTOs
     public List<CustomerDTO> getAllCustomers() {
-        List<Customer> customers = customerRepository.findAll();
-        return dtoMapper.toCustomerDTOList(customers);
+        return customerRepository.findAllCustomerDTOs();
     }
 
     public Optional<CustomerDTO> getCustomerById(String id) {
@@ -49,6 +59,8 @@ public class CustomerService {
         }
         Customer customer = dtoMapper.toCustomerEntity(customerRequest);
         Customer savedCustomer = customerRepository.save(customer);
+        lookupGuard.recordKey(LookupGuard.KeyType.CUSTOMER_EMAIL, savedCustomer.getEmail());
+        customerValueIndex.recordSpend(savedCustomer.getId(), savedCustomer.getTotalSpent());
         return dtoMapper.toCustomerDTO(savedCustomer);
     }
 
@@ -56,16 +68,19 @@ public class CustomerService {
     public CustomerDTO saveCustomer(CustomerDTO customerDTO) {
         Customer customer = dtoMapper.toCustomerEntity(customerDTO);
         Customer savedCustomer = customerRepository.save(customer);
+        lookupGuard.recordKey(LookupGuard.KeyType.CUSTOMER_EMAIL, savedCustomer.getEmail());
+        customerValueIndex.recordSpend(savedCustomer.getId(), savedCustomer.getTotalSpent());
         return dtoMapper.toCustomerDTO(savedCustomer);
     }
 
     public void deleteCustomer(String id) {
         customerRepository.deleteById(id);
+        customerValueIndex.removeCustomer(id);
     }
 
     // Custom business methods - now returning DTOs
     public Optional<CustomerDTO> findByEmail(String email) {
-        Optional<Customer> customer = customerRepository.findByEmail(email);
+        Optional<Customer> customer = lookupGuard.find(LookupGuard.KeyType.CUSTOMER_EMAIL, email, () -> customerRepository.findByEmail(email));
         return customer.map(dtoMapper::toCustomerDTO);
     }
 
@@ -75,14 +90,28 @@ public class CustomerService {
     }
 
     public boolean existsByEmail(String email) {
-        return customerRepository.existsByEmail(email);
+        return lookupGuard.exists(LookupGuard.KeyType.CUSTOMER_EMAIL, email, () -> customerRepository.existsByEmail(email));
+    }
+
+    // Served from the customer value index, highest spend first
+    public List<CustomerSummaryDTO> getHighValueCustomers(Double minAmount, int page, int size) {
+        return customerValueIndex.getRanking(minAmount, page, size);
+    }
+
+    public List<CustomerSummaryDTO> getCustomerRanking(int page, int size) {
+        return customerValueIndex.getRanking(Double.NEGATIVE_INFINITY, page, size);
     }
 
-    public List<CustomerSummaryDTO> getHighValueCustomers(Double minAmount) {
-        List<Customer> customers = customerRepository.findByTotalSpentGreaterThan(minAmount);
-        return customers.stream()
-                .map(dtoMapper::toCustomerSummaryDTO)
-                .toList();
+    public Optional<CustomerRankDTO> getCustomerRank(String customerId) {
+        return Optional.ofNullable(customerValueIndex.getRank(customerId));
+    }
+
+    public List<CustomerValueBandDTO> getCustomerValueBands(List<Double> percentiles) {
+        return customerValueIndex.getValueBands(percentiles);
+    }
+
+    public List<CustomerCohortDTO> getCustomerCohorts() {
+        return customerValueIndex.getCohorts();
     }
 
     // Address management - updated to accept Request DTOs
@@ -91,6 +120,23 @@ public class CustomerService {
         return dtoMapper.toAddressDTOList(addresses);
     }
 
+    // Addresses of many customers in one query per chunk, grouped by customer ID
+    @Transactional(readOnly = true)
+    public Map<String, List<AddressDTO>> getAddressesByCustomerIds(Collection<String> customerIds) {
+        Map<String, List<AddressDTO>> addressesByCustomer = new LinkedHashMap<>();
+        customerIds.forEach(id -> addressesByCustomer.put(id, new ArrayList<>()));
+
+        List<String> ids = new ArrayList<>(addressesByCustomer.keySet());
+        for (int from = 0; from < ids.size(); from += ADDRESS_BATCH_SIZE) {
+            List<String> chunk = ids.subList(from, Math.min(from + ADDRESS_BATCH_SIZE, ids.size()));
+            for (Address address : addressRepository.findByCustomerIdIn(chunk)) {
+                AddressDTO dto = dtoMapper.toAddressDTO(address);
+                addressesByCustomer.get(dto.getCustomerId()).add(dto);
+            }
+        }
+        return addressesByCustomer;
+    }
+
     public AddressDTO addAddressToCustomer(String customerId, AddressCreateRequest addressRequest) {
         // Validate address data
         if (addressRequest.getStreet() == null || addressRequest.getStreet().trim().isEmpty()) {
@@ -130,16 +176,19 @@ public class CustomerService {
 
     // Order management - now returning DTOs
     public List<OrderDTO> getCustomerOrders(String customerId) {
-        List<Order> orders = orderRepository.findByCustomerId(customerId);
-        return dtoMapper.toOrderDTOList(orders);
+        return customerOrderHistoryService.getOrders(customerId);
+    }
+
+    public List<OrderDTO> getCustomerOrders(String customerId, Integer page, Integer size) {
+        return customerOrderHistoryService.getOrders(customerId, null, page, size);
     }
 
     public List<OrderDTO> getCustomerOrdersByStatus(String customerId, String status) {
-        List<Order> orders = orderRepository.findByCustomerIdAndStatus(customerId, status);
-        return dtoMapper.toOrderDTOList(orders);
+        return customerOrderHistoryService.getOrders(customerId, status);
     }
 
     // Update customer total spent - internal method, entity manipulation
+    @RetryOnConflict
     public CustomerDTO updateTotalSpent(String customerId, Double amount) {
         Optional<Customer> customerOpt = customerRepository.findById(customerId);
         if (customerOpt.isPresent()) {
@@ -147,6 +196,7 @@ public class CustomerService {
             Double currentTotal = customer.getTotalSpent() != null ? customer.getTotalSpent() : 0.0;
             customer.setTotalSpent(currentTotal + amount);
             Customer savedCustomer = customerRepository.save(customer);
+            customerValueIndex.recordSpend(customerId, savedCustomer.getTotalSpent());
             return dtoMapper.toCustomerDTO(savedCustomer);
         }
         throw new CustomerNotFoundException(customerId);
@@ -177,6 +227,8 @@ public class CustomerService {
                 customer.setTotalSpent(customerRequest.getTotalSpent());
             }
             Customer savedCustomer = customerRepository.save(customer);
+            lookupGuard.recordKey(LookupGuard.KeyType.CUSTOMER_EMAIL, savedCustomer.getEmail());
+            customerValueIndex.recordSpend(id, savedCustomer.getTotalSpent());
             return dtoMapper.toCustomerDTO(savedCustomer);
         }
         throw new CustomerNotFoundException(id);
@@ -193,6 +245,8 @@ public class CustomerService {
                 customer.setTotalSpent(updatedCustomerDTO.getTotalSpent());
             }
             Customer savedCustomer = customerRepository.save(customer);
+            lookupGuard.recordKey(LookupGuard.KeyType.CUSTOMER_EMAIL, savedCustomer.getEmail());
+            customerValueIndex.recordSpend(id, savedCustomer.getTotalSpent());
             return dtoMapper.toCustomerDTO(savedCustomer);
         }
         throw new CustomerNotFoundException(id);
@@ -234,6 +288,7 @@ public class CustomerService {
             }
             customer.setEmail(email);
             Customer savedCustomer = customerRepository.save(customer);
+            lookupGuard.recordKey(LookupGuard.KeyType.CUSTOMER_EMAIL, savedCustomer.getEmail());
             return dtoMapper.toCustomerDTO(savedCustomer);
         }
         throw new CustomerNotFoundException(id);
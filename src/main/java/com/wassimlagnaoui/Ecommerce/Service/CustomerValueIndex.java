@@ -0,0 +1,709 @@
+package com.wassimlagnaoui.Ecommerce.Service;
+
+import com.wassimlagnaoui.Ecommerce.DTO.CustomerCohortDTO;
+import com.wassimlagnaoui.Ecommerce.DTO.CustomerRankDTO;
+import com.wassimlagnaoui.Ecommerce.DTO.CustomerSummaryDTO;
+import com.wassimlagnaoui.Ecommerce.DTO.CustomerValueBandDTO;
+import com.wassimlagnaoui.Ecommerce.Repository.CustomerRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Compact spend index over all customers: (id, totalSpent, orderCount, first-order cohort)
+ * held in parallel primitive arrays. Ranking, percentile bands and cohort breakdowns run as
+ * fork/join aggregations over row ranges. Loaded at startup, kept current from customer and
+ * order writes after commit; a reload rebuilds and compacts it. Customers written while a reload
+ * runs are read again before the reloaded index is swapped in.
+ */
+@Service
+public class CustomerValueIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(CustomerValueIndex.class);
+
+    // Rows below which a fork/join task scans sequentially
+    private static final int LEAF_SIZE = 1 << 15;
+
+    private static final String NO_ORDERS_COHORT = "none";
+
+    // Re-reads of changed customers before the one that holds off the write hooks
+    private static final int CATCH_UP_PASSES = 3;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Value("${app.customers.value-index.load-batch-size:10000}")
+    private int loadBatchSize;
+
+    private final AtomicReference<ValueStore> store = new AtomicReference<>(new ValueStore());
+    private final AtomicBoolean loading = new AtomicBoolean(false);
+    // Write hooks apply under the read lock; a reload swaps its store in under the write lock
+    private final ReentrantReadWriteLock swap = new ReentrantReadWriteLock();
+    // Customers written while a reload runs
+    private final Set<String> changedCustomers = ConcurrentHashMap.newKeySet();
+    private final ForkJoinPool pool = ForkJoinPool.commonPool();
+    private final ExecutorService loadExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "customer-value-load");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        loadExecutor.submit(() -> {
+            try {
+                reload();
+            } catch (RuntimeException e) {
+                logger.error("Initial customer value index load failed", e);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        loadExecutor.shutdownNow();
+    }
+
+    public int reload() {
+        if (!loading.compareAndSet(false, true)) {
+            throw new IllegalStateException("A customer value index load is already running");
+        }
+        long start = System.currentTimeMillis();
+        try {
+            ValueStore loaded = new ValueStore();
+            PageRequest batch = PageRequest.of(0, loadBatchSize);
+            String afterId = "";
+            List<Object[]> rows;
+            do {
+                rows = customerRepository.findValueRowsAfter(afterId, batch);
+                for (Object[] row : rows) {
+                    set(loaded, row);
+                    afterId = (String) row[0];
+                }
+            } while (rows.size() == loadBatchSize);
+
+            // Spend is absolute but order counts are increments, so changes are not replayed: the customers
+            // they touched are read again, after their hooks ran. The last pass runs with the hooks held off,
+            // so nothing lands between it and the swap.
+            for (int pass = 0; pass < CATCH_UP_PASSES; pass++) {
+                Set<String> customers = drainChangedCustomers();
+                if (customers.isEmpty()) {
+                    break;
+                }
+                reread(loaded, customers);
+            }
+            swap.writeLock().lock();
+            try {
+                reread(loaded, drainChangedCustomers());
+                loaded.publish();
+                store.set(loaded);
+            } finally {
+                swap.writeLock().unlock();
+            }
+            logger.info("Customer value index loaded {} customers in {} ms", loaded.view.size, System.currentTimeMillis() - start);
+            return loaded.view.size;
+        } finally {
+            swap.writeLock().lock();
+            try {
+                loading.set(false);
+                changedCustomers.clear();
+            } finally {
+                swap.writeLock().unlock();
+            }
+        }
+    }
+
+    private void reread(ValueStore loaded, Set<String> customers) {
+        if (customers.isEmpty()) {
+            return;
+        }
+        List<String> ids = new ArrayList<>(customers);
+        for (int from = 0; from < ids.size(); from += loadBatchSize) {
+            List<String> batch = ids.subList(from, Math.min(from + loadBatchSize, ids.size()));
+            Set<String> missing = new HashSet<>(batch);
+            for (Object[] row : customerRepository.findValueRowsByIdIn(batch)) {
+                set(loaded, row);
+                missing.remove((String) row[0]);
+            }
+            // Deleted since the load read them
+            for (String id : missing) {
+                loaded.remove(id);
+            }
+        }
+    }
+
+    private static void set(ValueStore values, Object[] row) {
+        double spent = row[1] != null ? ((Number) row[1]).doubleValue() : 0.0;
+        int orders = row[2] != null ? ((Number) row[2]).intValue() : 0;
+        values.set((String) row[0], spent, orders, cohortOf((LocalDateTime) row[3]));
+    }
+
+    private Set<String> drainChangedCustomers() {
+        Set<String> customers = new HashSet<>();
+        for (Iterator<String> it = changedCustomers.iterator(); it.hasNext(); ) {
+            customers.add(it.next());
+            it.remove();
+        }
+        return customers;
+    }
+
+    // Applies a committed change to the live index, noting the customer when a reload is running
+    private void apply(String customerId, Consumer<ValueStore> change) {
+        swap.readLock().lock();
+        try {
+            if (loading.get()) {
+                changedCustomers.add(customerId);
+            }
+            change.accept(store.get());
+        } finally {
+            swap.readLock().unlock();
+        }
+    }
+
+    // Write hooks, applied once the surrounding transaction commits
+
+    public void recordSpend(String customerId, Double totalSpent) {
+        if (customerId != null) {
+            double spent = totalSpent != null ? totalSpent : 0.0;
+            AfterCommit.run(() -> apply(customerId, values -> values.updateSpend(customerId, spent)));
+        }
+    }
+
+    public void recordOrderPlaced(String customerId, LocalDateTime createdAt) {
+        if (customerId != null) {
+            String cohort = cohortOf(createdAt != null ? createdAt : LocalDateTime.now());
+            AfterCommit.run(() -> apply(customerId, values -> values.addOrders(customerId, 1, cohort)));
+        }
+    }
+
+    public void recordOrderRemoved(String customerId) {
+        if (customerId != null) {
+            AfterCommit.run(() -> apply(customerId, values -> values.addOrders(customerId, -1, null)));
+        }
+    }
+
+    public void removeCustomer(String customerId) {
+        if (customerId != null) {
+            AfterCommit.run(() -> apply(customerId, values -> values.remove(customerId)));
+        }
+    }
+
+    // Queries
+
+    // Page `page` of the spend ranking (highest first), restricted to customers above minSpent;
+    // only the customers of the requested page are read from the database
+    public List<CustomerSummaryDTO> getRanking(double minSpent, int page, int size) {
+        View view = store.get().view;
+        // In long: page * size can overflow an int; both bounds are clamped to the rows there are
+        long offset = (long) page * size;
+        int skip = (int) Math.min(offset, view.size);
+        int wanted = (int) Math.min(offset + size, view.size);
+        if (wanted <= skip) {
+            return List.of();
+        }
+        TopK top = pool.invoke(new TopKTask(view, 0, view.size, wanted, minSpent));
+        int[] ranked = top.sortedDescending(view);
+        if (ranked.length <= skip) {
+            return List.of();
+        }
+        List<String> ids = new ArrayList<>(ranked.length - skip);
+        for (int i = skip; i < ranked.length; i++) {
+            ids.add(view.ids[ranked[i]]);
+        }
+
+        Map<String, CustomerSummaryDTO> byId = new HashMap<>();
+        for (CustomerSummaryDTO summary : customerRepository.findCustomerSummariesByIdIn(ids)) {
+            byId.put(summary.getId(), summary);
+        }
+        List<CustomerSummaryDTO> result = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            CustomerSummaryDTO summary = byId.get(id);
+            if (summary != null) {
+                result.add(summary);
+            }
+        }
+        return result;
+    }
+
+    public long countAbove(double minSpent) {
+        View view = store.get().view;
+        return pool.invoke(new CountTask(view, 0, view.size, minSpent));
+    }
+
+    public CustomerRankDTO getRank(String customerId) {
+        View view = store.get().view;
+        Integer row = view.rows.get(customerId);
+        if (row == null || row >= view.size || !view.live(row)) {
+            return null;
+        }
+        double spent = view.spent[row];
+        long ahead = pool.invoke(new CountTask(view, 0, view.size, spent));
+        long total = pool.invoke(new CountTask(view, 0, view.size, Double.NEGATIVE_INFINITY));
+        double percentile = total > 0 ? 100.0 * (total - ahead - 1) / total : 0.0;
+        return new CustomerRankDTO(customerId, ahead + 1, total, percentile, spent, view.orderCount[row]);
+    }
+
+    // Spend bands between the given percentiles (e.g. 50, 75, 90, 99 -> p0-p50, p50-p75, ..., p99-p100)
+    public List<CustomerValueBandDTO> getValueBands(List<Double> percentiles) {
+        View view = store.get().view;
+        double[] sorted = pool.invoke(new CollectSpendTask(view, 0, view.size));
+        if (sorted.length == 0) {
+            return List.of();
+        }
+        Arrays.parallelSort(sorted);
+
+        List<Double> bounds = new ArrayList<>();
+        bounds.add(0.0);
+        percentiles.stream().filter(p -> p > 0 && p < 100).sorted().distinct().forEach(bounds::add);
+        bounds.add(100.0);
+
+        List<CustomerValueBandDTO> bands = new ArrayList<>();
+        for (int b = 0; b < bounds.size() - 1; b++) {
+            int from = (int) Math.floor(bounds.get(b) / 100.0 * sorted.length);
+            int to = (int) Math.floor(bounds.get(b + 1) / 100.0 * sorted.length);
+            double total = 0;
+            for (int i = from; i < to; i++) {
+                total += sorted[i];
+            }
+            long customers = to - from;
+            bands.add(new CustomerValueBandDTO(
+                    "p" + format(bounds.get(b)) + "-p" + format(bounds.get(b + 1)),
+                    customers > 0 ? sorted[from] : null,
+                    customers > 0 ? sorted[to - 1] : null,
+                    customers,
+                    total,
+                    customers > 0 ? total / customers : 0.0));
+        }
+        return bands;
+    }
+
+    // Customers grouped by the month of their first order
+    public List<CustomerCohortDTO> getCohorts() {
+        View view = store.get().view;
+        CohortTotals totals = pool.invoke(new CohortTask(view, 0, view.size));
+        List<CustomerCohortDTO> cohorts = new ArrayList<>();
+        for (int c = 0; c < view.cohortNames.length; c++) {
+            long customers = totals.customers[c];
+            if (customers > 0) {
+                cohorts.add(new CustomerCohortDTO(view.cohortNames[c], customers, totals.spent[c],
+                        totals.spent[c] / customers, (double) totals.orders[c] / customers));
+            }
+        }
+        cohorts.sort((a, b) -> a.getCohort().compareTo(b.getCohort()));
+        return cohorts;
+    }
+
+    private static String cohortOf(LocalDateTime firstOrderAt) {
+        if (firstOrderAt == null) {
+            return NO_ORDERS_COHORT;
+        }
+        return String.format("%04d-%02d", firstOrderAt.getYear(), firstOrderAt.getMonthValue());
+    }
+
+    private static String format(double percentile) {
+        return percentile == Math.rint(percentile) ? String.valueOf((long) percentile) : String.valueOf(percentile);
+    }
+
+    // Fork/join tasks over [from, to) of a view
+
+    private static final class TopKTask extends RecursiveTask<TopK> {
+        private final View view;
+        private final int from;
+        private final int to;
+        private final int k;
+        private final double minSpent;
+
+        TopKTask(View view, int from, int to, int k, double minSpent) {
+            this.view = view;
+            this.from = from;
+            this.to = to;
+            this.k = k;
+            this.minSpent = minSpent;
+        }
+
+        @Override
+        protected TopK compute() {
+            if (to - from <= LEAF_SIZE) {
+                // A leaf can't contribute more rows than it has
+                TopK top = new TopK(Math.min(k, to - from));
+                for (int i = from; i < to; i++) {
+                    if (view.live(i) && view.spent[i] > minSpent) {
+                        top.offer(i, view.spent);
+                    }
+                }
+                return top;
+            }
+            int mid = (from + to) >>> 1;
+            TopKTask left = new TopKTask(view, from, mid, k, minSpent);
+            left.fork();
+            TopK right = new TopKTask(view, mid, to, k, minSpent).compute();
+            return left.join().merge(right, k, view.spent);
+        }
+    }
+
+    // Counts live rows spending strictly more than the threshold
+    private static final class CountTask extends RecursiveTask<Long> {
+        private final View view;
+        private final int from;
+        private final int to;
+        private final double threshold;
+
+        CountTask(View view, int from, int to, double threshold) {
+            this.view = view;
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected Long compute() {
+            if (to - from <= LEAF_SIZE) {
+                long count = 0;
+                for (int i = from; i < to; i++) {
+                    if (view.live(i) && view.spent[i] > threshold) {
+                        count++;
+                    }
+                }
+                return count;
+            }
+            int mid = (from + to) >>> 1;
+            CountTask left = new CountTask(view, from, mid, threshold);
+            left.fork();
+            long right = new CountTask(view, mid, to, threshold).compute();
+            return left.join() + right;
+        }
+    }
+
+    private static final class CollectSpendTask extends RecursiveTask<double[]> {
+        private final View view;
+        private final int from;
+        private final int to;
+
+        CollectSpendTask(View view, int from, int to) {
+            this.view = view;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected double[] compute() {
+            if (to - from <= LEAF_SIZE) {
+                double[] values = new double[to - from];
+                int n = 0;
+                for (int i = from; i < to; i++) {
+                    if (view.live(i)) {
+                        values[n++] = view.spent[i];
+                    }
+                }
+                return n == values.length ? values : Arrays.copyOf(values, n);
+            }
+            int mid = (from + to) >>> 1;
+            CollectSpendTask left = new CollectSpendTask(view, from, mid);
+            left.fork();
+            double[] right = new CollectSpendTask(view, mid, to).compute();
+            double[] leftValues = left.join();
+            double[] merged = Arrays.copyOf(leftValues, leftValues.length + right.length);
+            System.arraycopy(right, 0, merged, leftValues.length, right.length);
+            return merged;
+        }
+    }
+
+    private static final class CohortTask extends RecursiveTask<CohortTotals> {
+        private final View view;
+        private final int from;
+        private final int to;
+
+        CohortTask(View view, int from, int to) {
+            this.view = view;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected CohortTotals compute() {
+            int cohorts = view.cohortNames.length;
+            if (to - from <= LEAF_SIZE) {
+                CohortTotals totals = new CohortTotals(cohorts);
+                for (int i = from; i < to; i++) {
+                    int cohort = view.cohort[i];
+                    if (view.live(i) && cohort < cohorts) {
+                        totals.customers[cohort]++;
+                        totals.spent[cohort] += view.spent[i];
+                        totals.orders[cohort] += view.orderCount[i];
+                    }
+                }
+                return totals;
+            }
+            int mid = (from + to) >>> 1;
+            CohortTask left = new CohortTask(view, from, mid);
+            left.fork();
+            CohortTotals right = new CohortTask(view, mid, to).compute();
+            return left.join().merge(right);
+        }
+    }
+
+    private static final class CohortTotals {
+        private final long[] customers;
+        private final double[] spent;
+        private final long[] orders;
+
+        CohortTotals(int cohorts) {
+            customers = new long[cohorts];
+            spent = new double[cohorts];
+            orders = new long[cohorts];
+        }
+
+        CohortTotals merge(CohortTotals other) {
+            for (int c = 0; c < customers.length; c++) {
+                customers[c] += other.customers[c];
+                spent[c] += other.spent[c];
+                orders[c] += other.orders[c];
+            }
+            return this;
+        }
+    }
+
+    /**
+     * Bounded min-heap of row positions ordered by spend: the root is the smallest
+     * of the k best rows seen so far, so each offer is O(log k).
+     */
+    private static final class TopK {
+        private final int[] heap;
+        private int size;
+
+        TopK(int k) {
+            heap = new int[k];
+        }
+
+        void offer(int row, double[] spent) {
+            if (size < heap.length) {
+                heap[size] = row;
+                siftUp(size++, spent);
+            } else if (spent[row] > spent[heap[0]]) {
+                heap[0] = row;
+                siftDown(0, spent);
+            }
+        }
+
+        // The best k rows of both heaps; heaps are sized by their rows, so the result may need a larger one
+        TopK merge(TopK other, int k, double[] spent) {
+            TopK merged = this;
+            int capacity = Math.min(k, size + other.size);
+            if (capacity > heap.length) {
+                merged = new TopK(capacity);
+                for (int i = 0; i < size; i++) {
+                    merged.offer(heap[i], spent);
+                }
+            }
+            for (int i = 0; i < other.size; i++) {
+                merged.offer(other.heap[i], spent);
+            }
+            return merged;
+        }
+
+        int[] sortedDescending(View view) {
+            Integer[] rows = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                rows[i] = heap[i];
+            }
+            Arrays.sort(rows, (a, b) -> {
+                int bySpend = Double.compare(view.spent[b], view.spent[a]);
+                return bySpend != 0 ? bySpend : view.ids[a].compareTo(view.ids[b]);
+            });
+            int[] result = new int[size];
+            for (int i = 0; i < size; i++) {
+                result[i] = rows[i];
+            }
+            return result;
+        }
+
+        private void siftUp(int i, double[] spent) {
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (spent[heap[i]] >= spent[heap[parent]]) {
+                    return;
+                }
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i, double[] spent) {
+            while (true) {
+                int left = 2 * i + 1;
+                int right = left + 1;
+                int smallest = i;
+                if (left < size && spent[heap[left]] < spent[heap[smallest]]) {
+                    smallest = left;
+                }
+                if (right < size && spent[heap[right]] < spent[heap[smallest]]) {
+                    smallest = right;
+                }
+                if (smallest == i) {
+                    return;
+                }
+                swap(i, smallest);
+                i = smallest;
+            }
+        }
+
+        private void swap(int a, int b) {
+            int tmp = heap[a];
+            heap[a] = heap[b];
+            heap[b] = tmp;
+        }
+    }
+
+    /**
+     * Published arrays plus row count. Spend and order count of existing rows are
+     * updated in place; appends and new cohorts publish a new view.
+     */
+    private static final class View {
+        private final String[] ids;
+        private final double[] spent;
+        private final int[] orderCount;
+        private final int[] cohort;
+        private final boolean[] deleted;
+        private final int size;
+        private final String[] cohortNames;
+        private final Map<String, Integer> rows;
+
+        View(String[] ids, double[] spent, int[] orderCount, int[] cohort, boolean[] deleted, int size,
+             String[] cohortNames, Map<String, Integer> rows) {
+            this.ids = ids;
+            this.spent = spent;
+            this.orderCount = orderCount;
+            this.cohort = cohort;
+            this.deleted = deleted;
+            this.size = size;
+            this.cohortNames = cohortNames;
+            this.rows = rows;
+        }
+
+        boolean live(int row) {
+            return !deleted[row];
+        }
+    }
+
+    // Single writer (instance lock); readers work on the last published view
+    private static final class ValueStore {
+        private String[] ids = new String[1024];
+        private double[] spent = new double[1024];
+        private int[] orderCount = new int[1024];
+        private int[] cohort = new int[1024];
+        private boolean[] deleted = new boolean[1024];
+        private int size;
+
+        private final List<String> cohortNames = new ArrayList<>();
+        private final Map<String, Integer> cohortCodes = new HashMap<>();
+        private final Map<String, Integer> rows = new ConcurrentHashMap<>();
+
+        private volatile View view = snapshot();
+
+        synchronized void publish() {
+            view = snapshot();
+        }
+
+        synchronized void put(String id, double totalSpent, int orders, String cohortName) {
+            if (size == ids.length) {
+                int capacity = ids.length * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                spent = Arrays.copyOf(spent, capacity);
+                orderCount = Arrays.copyOf(orderCount, capacity);
+                cohort = Arrays.copyOf(cohort, capacity);
+                deleted = Arrays.copyOf(deleted, capacity);
+            }
+            ids[size] = id;
+            spent[size] = totalSpent;
+            orderCount[size] = orders;
+            cohort[size] = cohortCode(cohortName);
+            rows.put(id, size);
+            size++;
+        }
+
+        // Absolute values of a customer, from the database
+        synchronized void set(String id, double totalSpent, int orders, String cohortName) {
+            Integer row = rows.get(id);
+            if (row == null) {
+                put(id, totalSpent, orders, cohortName);
+                return;
+            }
+            spent[row] = totalSpent;
+            orderCount[row] = orders;
+            cohort[row] = cohortCode(cohortName);
+            deleted[row] = false;
+        }
+
+        synchronized void updateSpend(String id, double totalSpent) {
+            Integer row = rows.get(id);
+            if (row == null) {
+                put(id, totalSpent, 0, NO_ORDERS_COHORT);
+                publish();
+            } else {
+                spent[row] = totalSpent;
+                deleted[row] = false;
+            }
+        }
+
+        synchronized void addOrders(String id, int delta, String cohortName) {
+            Integer row = rows.get(id);
+            if (row == null) {
+                put(id, 0.0, Math.max(delta, 0), cohortName != null ? cohortName : NO_ORDERS_COHORT);
+                publish();
+                return;
+            }
+            orderCount[row] = Math.max(orderCount[row] + delta, 0);
+            // First order of a customer moves it out of the "none" cohort
+            if (cohortName != null && cohortNames.get(cohort[row]).equals(NO_ORDERS_COHORT)) {
+                cohort[row] = cohortCode(cohortName);
+                publish();
+            }
+        }
+
+        synchronized void remove(String id) {
+            Integer row = rows.get(id);
+            if (row != null) {
+                deleted[row] = true;
+            }
+        }
+
+        private int cohortCode(String name) {
+            Integer code = cohortCodes.get(name);
+            if (code == null) {
+                code = cohortNames.size();
+                cohortNames.add(name);
+                cohortCodes.put(name, code);
+            }
+            return code;
+        }
+
+        private View snapshot() {
+            return new View(ids, spent, orderCount, cohort, deleted, size, cohortNames.toArray(new String[0]), rows);
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package com.wassimlagnaoui.Ecommerce.Service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.wassimlagnaoui.Ecommerce.Repository.CustomerRepository;
+import com.wassimlagnaoui.Ecommerce.Repository.OrderRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Guards point lookups by key (order id, order number, customer email) against keys that don't exist.
+ * A Bloom filter of every existing key, built at startup and added to on writes, answers "definitely
+ * absent" without a query; keys that pass the filter but are not found are remembered for a short
+ * TTL. Until a filter is loaded every lookup goes to the database.
+ *
+ * Only this instance's writes reach the filter, so it is rebuilt from the database every
+ * rebuild-interval: rows inserted by another instance, a migration or a SQL backfill are found again
+ * after at most one interval. The previous filter keeps answering while the next one is built.
+ */
+@Service
+public class LookupGuard {
+
+    private static final Logger logger = LoggerFactory.getLogger(LookupGuard.class);
+
+    public enum KeyType {
+        ORDER_ID("orderId"),
+        ORDER_NUMBER("orderNumber"),
+        CUSTOMER_EMAIL("customerEmail");
+
+        private final String tag;
+
+        KeyType(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    private record MissingKey(KeyType type, String key) {
+    }
+
+    private final OrderRepository orderRepository;
+    private final CustomerRepository customerRepository;
+    private final int loadBatchSize;
+    private final double falsePositiveRate;
+    // Filters are sized for this many times the keys present when they are loaded
+    private final double growthHeadroom;
+
+    private final Map<KeyType, KeyFilter> filters = new EnumMap<>(KeyType.class);
+    private final Cache<MissingKey, Boolean> missing;
+    // Bumped on every key write; a not-found result is only remembered if no write happened during its query
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicBoolean loading = new AtomicBoolean(false);
+
+    private final Map<KeyType, Counter> filteredOut = new EnumMap<>(KeyType.class);
+    private final Map<KeyType, Counter> negativeHits = new EnumMap<>(KeyType.class);
+    private final Map<KeyType, Counter> queriesFound = new EnumMap<>(KeyType.class);
+    private final Map<KeyType, Counter> queriesMissing = new EnumMap<>(KeyType.class);
+
+    private final ExecutorService loadExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "lookup-guard-load");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Autowired
+    public LookupGuard(OrderRepository orderRepository, CustomerRepository customerRepository, MeterRegistry meterRegistry,
+                       @Value("${app.lookup-guard.load-batch-size:10000}") int loadBatchSize,
+                       @Value("${app.lookup-guard.false-positive-rate:0.01}") double falsePositiveRate,
+                       @Value("${app.lookup-guard.growth-headroom:2.0}") double growthHeadroom,
+                       @Value("${app.lookup-guard.negative-ttl:30s}") Duration negativeTtl,
+                       @Value("${app.lookup-guard.negative-max-size:10000}") long negativeMaxSize) {
+        this.orderRepository = orderRepository;
+        this.customerRepository = customerRepository;
+        this.loadBatchSize = loadBatchSize;
+        this.falsePositiveRate = falsePositiveRate;
+        this.growthHeadroom = growthHeadroom;
+        this.missing = Caffeine.newBuilder()
+                .maximumSize(negativeMaxSize)
+                .expireAfterWrite(negativeTtl)
+                .build();
+        for (KeyType type : KeyType.values()) {
+            filters.put(type, new KeyFilter());
+            filteredOut.put(type, counter("app.lookup.guard.avoided", type, "reason", "filter", meterRegistry));
+            negativeHits.put(type, counter("app.lookup.guard.avoided", type, "reason", "negative-cache", meterRegistry));
+            queriesFound.put(type, counter("app.lookup.guard.queries", type, "result", "found", meterRegistry));
+            queriesMissing.put(type, counter("app.lookup.guard.queries", type, "result", "missing", meterRegistry));
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        loadExecutor.submit(this::rebuild);
+    }
+
+    // Picks up keys written outside this instance; skipped while a load is still running
+    @Scheduled(fixedDelayString = "${app.lookup-guard.rebuild-interval:10m}", initialDelayString = "${app.lookup-guard.rebuild-interval:10m}")
+    public void rebuild() {
+        if (!loading.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            load(KeyType.ORDER_ID, orderRepository.count(), orderRepository::findIdsAfter);
+            load(KeyType.ORDER_NUMBER, orderRepository.count(), orderRepository::findOrderNumbersAfter);
+            load(KeyType.CUSTOMER_EMAIL, customerRepository.count(), customerRepository::findEmailsAfter);
+            // Not-found entries may predate rows the rebuild just found
+            missing.invalidateAll();
+        } catch (RuntimeException e) {
+            logger.error("Lookup guard load failed; the previous filters stay in use", e);
+        } finally {
+            loading.set(false);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        loadExecutor.shutdownNow();
+    }
+
+    // Runs the query unless the key is known not to exist; a not-found result is remembered for the negative TTL
+    public <T> Optional<T> find(KeyType type, String key, Supplier<Optional<T>> query) {
+        if (key == null) {
+            return query.get();
+        }
+        if (isKnownMissing(type, key)) {
+            return Optional.empty();
+        }
+        long stamp = writes.get();
+        Optional<T> result = query.get();
+        recordResult(type, key, result.isPresent(), stamp);
+        return result;
+    }
+
+    public boolean exists(KeyType type, String key, BooleanSupplier query) {
+        if (key == null) {
+            return query.getAsBoolean();
+        }
+        if (isKnownMissing(type, key)) {
+            return false;
+        }
+        long stamp = writes.get();
+        boolean found = query.getAsBoolean();
+        recordResult(type, key, found, stamp);
+        return found;
+    }
+
+    // Called from the write paths with every key a saved row now has. The filter is added to at once
+    // (a key of a rolled back write is only a false positive); the not-found entry is dropped again
+    // after commit so a lookup racing the commit can't leave it behind.
+    public void recordKey(KeyType type, String key) {
+        if (key == null) {
+            return;
+        }
+        filters.get(type).put(key);
+        forget(type, key);
+        AfterCommit.run(() -> forget(type, key));
+    }
+
+    private boolean isKnownMissing(KeyType type, String key) {
+        if (!filters.get(type).mightContain(key)) {
+            filteredOut.get(type).increment();
+            return true;
+        }
+        if (missing.getIfPresent(new MissingKey(type, key)) != null) {
+            negativeHits.get(type).increment();
+            return true;
+        }
+        return false;
+    }
+
+    private void recordResult(KeyType type, String key, boolean found, long stamp) {
+        if (found) {
+            queriesFound.get(type).increment();
+            return;
+        }
+        queriesMissing.get(type).increment();
+        if (writes.get() == stamp) {
+            missing.put(new MissingKey(type, key), Boolean.TRUE);
+        }
+    }
+
+    private void forget(KeyType type, String key) {
+        writes.incrementAndGet();
+        missing.invalidate(new MissingKey(type, key));
+    }
+
+    private void load(KeyType type, long rowCount, BiFunction<String, Pageable, List<String>> keysAfter) {
+        long start = System.currentTimeMillis();
+        long expectedKeys = Math.max(1024, (long) (rowCount * growthHeadroom));
+        KeyFilter filter = filters.get(type);
+        BloomFilter next = new BloomFilter(expectedKeys, falsePositiveRate);
+        // Registered before the scan: keys written while it runs go into the new filter as well
+        filter.start(next);
+        PageRequest batch = PageRequest.of(0, loadBatchSize);
+        String after = "";
+        long loaded = 0;
+        List<String> keys;
+        try {
+            do {
+                keys = keysAfter.apply(after, batch);
+                for (String key : keys) {
+                    next.put(key);
+                    after = key;
+                }
+                loaded += keys.size();
+            } while (keys.size() == loadBatchSize);
+        } catch (RuntimeException e) {
+            filter.abandon(next);
+            throw e;
+        }
+        filter.finish(next);
+        logger.info("Lookup guard loaded {} {} keys in {} ms (sized for {})",
+                loaded, type.tag, System.currentTimeMillis() - start, expectedKeys);
+    }
+
+    private static Counter counter(String name, KeyType type, String tag, String value, MeterRegistry meterRegistry) {
+        return Counter.builder(name)
+                .tag("key", type.tag)
+                .tag(tag, value)
+                .register(meterRegistry);
+    }
+
+    // A key type's filter: the one answering lookups, and the one a scan is filling. Written keys go
+    // into both; keys written before the first scan starts are held until it does.
+    private static final class KeyFilter {
+
+        private volatile BloomFilter serving;
+        private BloomFilter building;
+        private List<String> pending = new ArrayList<>();
+
+        synchronized void start(BloomFilter created) {
+            if (pending != null) {
+                pending.forEach(created::put);
+                pending = null;
+            }
+            building = created;
+        }
+
+        synchronized void finish(BloomFilter built) {
+            if (building == built) {
+                serving = built;
+                building = null;
+            }
+        }
+
+        synchronized void abandon(BloomFilter built) {
+            if (building == built) {
+                building = null;
+            }
+        }
+
+        synchronized void put(String key) {
+            if (serving != null) {
+                serving.put(key);
+            }
+            if (building != null) {
+                building.put(key);
+            } else if (pending != null) {
+                pending.add(key);
+            }
+        }
+
+        // Everything might exist until the first scan has been through all keys
+        boolean mightContain(String key) {
+            BloomFilter current = serving;
+            return current == null || current.mightContain(key);
+        }
+    }
+}
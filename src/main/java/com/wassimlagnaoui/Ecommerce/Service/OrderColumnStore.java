@@ -0,0 +1,574 @@
+package com.wassimlagnaoui.Ecommerce.Service;
+
+import com.wassimlagnaoui.Ecommerce.DTO.ColumnarOrderReport;
+import com.wassimlagnaoui.Ecommerce.DTO.ColumnarReportRow;
+import com.wassimlagnaoui.Ecommerce.DTO.ColumnarSnapshotInfo;
+import com.wassimlagnaoui.Ecommerce.DTO.OrderDTO;
+import com.wassimlagnaoui.Ecommerce.DTO.OrderItemDTO;
+import com.wassimlagnaoui.Ecommerce.Repository.OrderItemRepository;
+import com.wassimlagnaoui.Ecommerce.Repository.OrderRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+/**
+ * Optional column-oriented copy of orders and order_items for admin reporting
+ * (app.analytics.columnar.enabled). Product names and statuses are dictionary-encoded,
+ * measures live in primitive arrays, and scans run as tight loops over fixed-size
+ * row chunks in parallel. The snapshot is loaded once, then kept current from the
+ * order write paths after commit; a reload rebuilds it from the database and compacts it.
+ * Changes committed while a reload runs are replayed on the reloaded copy before it is swapped in.
+ */
+@Service
+public class OrderColumnStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderColumnStore.class);
+
+    // Rows per parallel scan task
+    private static final int CHUNK_SIZE = 1 << 16;
+
+    // Status code of orders that were deleted or replaced by a newer row
+    private static final int TOMBSTONE = -1;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Value("${app.analytics.columnar.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.analytics.columnar.load-batch-size:10000}")
+    private int loadBatchSize;
+
+    private final AtomicReference<ColumnStore> store = new AtomicReference<>(new ColumnStore());
+    private final AtomicBoolean loading = new AtomicBoolean(false);
+    // Guarded by this: changes received while a reload is running, replayed on the reloaded store.
+    // Every change sets an order to its committed state, so replaying one the reload already read is harmless.
+    private final List<Consumer<ColumnStore>> pendingChanges = new ArrayList<>();
+    private final ExecutorService loadExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "columnar-load");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile LocalDateTime loadedAt;
+    private volatile long loadDurationMs;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        if (enabled) {
+            loadExecutor.submit(() -> {
+                try {
+                    reload();
+                } catch (RuntimeException e) {
+                    logger.error("Initial columnar snapshot load failed", e);
+                }
+            });
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        loadExecutor.shutdownNow();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public ColumnarSnapshotInfo reload() {
+        if (!enabled) {
+            throw new IllegalStateException("The columnar snapshot is disabled");
+        }
+        if (!loading.compareAndSet(false, true)) {
+            throw new IllegalStateException("A columnar snapshot load is already running");
+        }
+        long start = System.currentTimeMillis();
+        try {
+            ColumnStore loaded = new ColumnStore();
+            PageRequest batch = PageRequest.of(0, loadBatchSize);
+
+            String afterId = "";
+            List<OrderDTO> orders;
+            do {
+                orders = orderRepository.findOrderDTOsAfter(afterId, batch);
+                for (OrderDTO order : orders) {
+                    loaded.appendOrder(order, 0);
+                }
+                if (!orders.isEmpty()) {
+                    afterId = orders.get(orders.size() - 1).getId();
+                }
+            } while (orders.size() == loadBatchSize);
+
+            afterId = "";
+            List<OrderItemDTO> items;
+            do {
+                items = orderItemRepository.findItemDTOsAfter(afterId, batch);
+                for (OrderItemDTO item : items) {
+                    loaded.appendItem(item);
+                }
+                if (!items.isEmpty()) {
+                    afterId = items.get(items.size() - 1).getId();
+                }
+            } while (items.size() == loadBatchSize);
+
+            synchronized (this) {
+                for (Consumer<ColumnStore> change : pendingChanges) {
+                    change.accept(loaded);
+                }
+                loaded.seal();
+                store.set(loaded);
+                loadedAt = LocalDateTime.now();
+                loadDurationMs = System.currentTimeMillis() - start;
+                logger.info("Columnar snapshot loaded: {} orders, {} items in {} ms (replayed {} concurrent changes)",
+                        loaded.columns.orderCount, loaded.columns.itemCount, loadDurationMs, pendingChanges.size());
+            }
+            return getInfo();
+        } finally {
+            synchronized (this) {
+                loading.set(false);
+                pendingChanges.clear();
+            }
+        }
+    }
+
+    public ColumnarSnapshotInfo getInfo() {
+        Columns columns = store.get().columns;
+        return new ColumnarSnapshotInfo(enabled, columns.orderCount, columns.itemCount, columns.productNames.length,
+                loadedAt, loadDurationMs);
+    }
+
+    // Called with the committed state of a created or updated order, items included
+    public void recordOrder(OrderDTO order) {
+        if (enabled && order != null && order.getId() != null) {
+            AfterCommit.run(() -> apply(columns -> columns.upsertOrder(order)));
+        }
+    }
+
+    public void removeOrder(String orderId) {
+        if (enabled && orderId != null) {
+            AfterCommit.run(() -> apply(columns -> columns.removeOrder(orderId)));
+        }
+    }
+
+    private synchronized void apply(Consumer<ColumnStore> change) {
+        if (loading.get()) {
+            pendingChanges.add(change);
+        }
+        change.accept(store.get());
+    }
+
+    // Units and revenue of one product, optionally restricted to an order status
+    public ColumnarReportRow getProductSummary(String productName, String status) {
+        Columns columns = snapshot();
+        int product = columns.productCode(productName);
+        int statusFilter = statusFilter(columns, status);
+        if (product < 0 || statusFilter == Integer.MIN_VALUE) {
+            return new ColumnarReportRow(productName, 0L, 0L, 0.0);
+        }
+
+        GroupTotals totals = IntStream.range(0, chunks(columns.itemCount)).parallel()
+                .mapToObj(chunk -> {
+                    GroupTotals partial = new GroupTotals(1);
+                    int end = Math.min((chunk + 1) * CHUNK_SIZE, columns.itemCount);
+                    for (int i = chunk * CHUNK_SIZE; i < end; i++) {
+                        if (columns.itemProduct[i] != product) {
+                            continue;
+                        }
+                        int orderStatus = columns.orderStatus[columns.itemOrder[i]];
+                        if (orderStatus == TOMBSTONE || (statusFilter >= 0 && orderStatus != statusFilter)) {
+                            continue;
+                        }
+                        partial.rows[0]++;
+                        partial.units[0] += columns.itemQuantity[i];
+                        partial.revenue[0] += columns.itemRevenue[i];
+                    }
+                    return partial;
+                })
+                .reduce(GroupTotals::merge)
+                .orElseGet(() -> new GroupTotals(1));
+
+        return new ColumnarReportRow(productName, totals.rows[0], totals.units[0], totals.revenue[0]);
+    }
+
+    // Group-by product over items of orders matching the optional status and [from, to) filters
+    public List<ColumnarReportRow> getSalesByProduct(String status, LocalDateTime from, LocalDateTime to, int limit) {
+        Columns columns = snapshot();
+        int statusFilter = statusFilter(columns, status);
+        if (statusFilter == Integer.MIN_VALUE) {
+            return List.of();
+        }
+        long fromSeconds = from != null ? from.toEpochSecond(ZoneOffset.UTC) : Long.MIN_VALUE;
+        long toSeconds = to != null ? to.toEpochSecond(ZoneOffset.UTC) : Long.MAX_VALUE;
+        int products = columns.productNames.length;
+
+        GroupTotals totals = IntStream.range(0, chunks(columns.itemCount)).parallel()
+                .mapToObj(chunk -> {
+                    GroupTotals partial = new GroupTotals(products);
+                    int end = Math.min((chunk + 1) * CHUNK_SIZE, columns.itemCount);
+                    for (int i = chunk * CHUNK_SIZE; i < end; i++) {
+                        int order = columns.itemOrder[i];
+                        int orderStatus = columns.orderStatus[order];
+                        long createdAt = columns.orderCreatedAt[order];
+                        int product = columns.itemProduct[i];
+                        if (orderStatus == TOMBSTONE || (statusFilter >= 0 && orderStatus != statusFilter)
+                                || createdAt < fromSeconds || createdAt >= toSeconds || product >= products) {
+                            continue;
+                        }
+                        partial.rows[product]++;
+                        partial.units[product] += columns.itemQuantity[i];
+                        partial.revenue[product] += columns.itemRevenue[i];
+                    }
+                    return partial;
+                })
+                .reduce(GroupTotals::merge)
+                .orElseGet(() -> new GroupTotals(products));
+
+        return totals.toRows(columns.productNames, limit);
+    }
+
+    // Order count and revenue per status
+    public List<ColumnarReportRow> getOrdersByStatus() {
+        Columns columns = snapshot();
+        int statuses = columns.statusNames.length;
+
+        GroupTotals totals = IntStream.range(0, chunks(columns.orderCount)).parallel()
+                .mapToObj(chunk -> {
+                    GroupTotals partial = new GroupTotals(statuses);
+                    int end = Math.min((chunk + 1) * CHUNK_SIZE, columns.orderCount);
+                    for (int i = chunk * CHUNK_SIZE; i < end; i++) {
+                        int status = columns.orderStatus[i];
+                        if (status == TOMBSTONE || status >= statuses) {
+                            continue;
+                        }
+                        partial.rows[status]++;
+                        partial.units[status] += columns.orderItemCount[i];
+                        partial.revenue[status] += columns.orderTotal[i];
+                    }
+                    return partial;
+                })
+                .reduce(GroupTotals::merge)
+                .orElseGet(() -> new GroupTotals(statuses));
+
+        return totals.toRows(columns.statusNames, statuses);
+    }
+
+    public ColumnarOrderReport getOrdersAboveAmount(double amount, int limit) {
+        Columns columns = snapshot();
+
+        List<OrderMatches> partials = IntStream.range(0, chunks(columns.orderCount)).parallel()
+                .mapToObj(chunk -> {
+                    OrderMatches partial = new OrderMatches();
+                    int end = Math.min((chunk + 1) * CHUNK_SIZE, columns.orderCount);
+                    for (int i = chunk * CHUNK_SIZE; i < end; i++) {
+                        if (columns.orderStatus[i] == TOMBSTONE || columns.orderTotal[i] <= amount) {
+                            continue;
+                        }
+                        partial.count++;
+                        partial.revenue += columns.orderTotal[i];
+                        if (partial.ids.size() < limit) {
+                            partial.ids.add(columns.orderIds[i]);
+                        }
+                    }
+                    return partial;
+                })
+                .toList();
+
+        long count = 0;
+        double revenue = 0;
+        List<String> ids = new ArrayList<>();
+        for (OrderMatches partial : partials) {
+            count += partial.count;
+            revenue += partial.revenue;
+            for (String id : partial.ids) {
+                if (ids.size() < limit) {
+                    ids.add(id);
+                }
+            }
+        }
+        return new ColumnarOrderReport(count, revenue, ids);
+    }
+
+    private Columns snapshot() {
+        if (!enabled) {
+            throw new IllegalStateException("The columnar snapshot is disabled");
+        }
+        return store.get().columns;
+    }
+
+    // -1 = no filter, MIN_VALUE = status never seen (nothing can match)
+    private static int statusFilter(Columns columns, String status) {
+        if (status == null || status.isBlank()) {
+            return -1;
+        }
+        int code = columns.statusCode(status.toUpperCase());
+        return code < 0 ? Integer.MIN_VALUE : code;
+    }
+
+    private static int chunks(int rows) {
+        return (rows + CHUNK_SIZE - 1) / CHUNK_SIZE;
+    }
+
+    private static final class GroupTotals {
+        private final long[] rows;
+        private final long[] units;
+        private final double[] revenue;
+
+        GroupTotals(int groups) {
+            rows = new long[groups];
+            units = new long[groups];
+            revenue = new double[groups];
+        }
+
+        // Each partial belongs to one chunk, so the left side can be merged into in place
+        GroupTotals merge(GroupTotals other) {
+            for (int g = 0; g < rows.length; g++) {
+                rows[g] += other.rows[g];
+                units[g] += other.units[g];
+                revenue[g] += other.revenue[g];
+            }
+            return this;
+        }
+
+        List<ColumnarReportRow> toRows(String[] names, int limit) {
+            List<ColumnarReportRow> result = new ArrayList<>();
+            for (int g = 0; g < rows.length; g++) {
+                if (rows[g] > 0) {
+                    result.add(new ColumnarReportRow(names[g], rows[g], units[g], revenue[g]));
+                }
+            }
+            result.sort(Comparator.comparingDouble(ColumnarReportRow::getRevenue).reversed());
+            return result.size() > limit ? result.subList(0, limit) : result;
+        }
+    }
+
+    private static final class OrderMatches {
+        private long count;
+        private double revenue;
+        private final List<String> ids = new ArrayList<>();
+    }
+
+    /**
+     * Published view of the columns. Arrays may be longer than the counts; rows at or past
+     * the counts belong to later appends and are never read through this view.
+     */
+    private static final class Columns {
+        private final String[] orderIds;
+        private final int[] orderStatus;
+        private final double[] orderTotal;
+        private final long[] orderCreatedAt;
+        private final int[] orderItemCount;
+        private final int orderCount;
+
+        private final int[] itemOrder;
+        private final int[] itemProduct;
+        private final int[] itemQuantity;
+        private final double[] itemRevenue;
+        private final int itemCount;
+
+        private final String[] productNames;
+        private final String[] statusNames;
+        private final Map<String, Integer> productCodes;
+        private final Map<String, Integer> statusCodes;
+
+        Columns(String[] orderIds, int[] orderStatus, double[] orderTotal, long[] orderCreatedAt, int[] orderItemCount, int orderCount,
+                int[] itemOrder, int[] itemProduct, int[] itemQuantity, double[] itemRevenue, int itemCount,
+                String[] productNames, String[] statusNames, Map<String, Integer> productCodes, Map<String, Integer> statusCodes) {
+            this.orderIds = orderIds;
+            this.orderStatus = orderStatus;
+            this.orderTotal = orderTotal;
+            this.orderCreatedAt = orderCreatedAt;
+            this.orderItemCount = orderItemCount;
+            this.orderCount = orderCount;
+            this.itemOrder = itemOrder;
+            this.itemProduct = itemProduct;
+            this.itemQuantity = itemQuantity;
+            this.itemRevenue = itemRevenue;
+            this.itemCount = itemCount;
+            this.productNames = productNames;
+            this.statusNames = statusNames;
+            this.productCodes = productCodes;
+            this.statusCodes = statusCodes;
+        }
+
+        int productCode(String name) {
+            Integer code = name != null ? productCodes.get(name) : null;
+            return code != null && code < productNames.length ? code : -1;
+        }
+
+        int statusCode(String name) {
+            Integer code = statusCodes.get(name);
+            return code != null && code < statusNames.length ? code : -1;
+        }
+    }
+
+    /**
+     * Single-writer column storage. Writers append under the instance lock and publish
+     * a new {@link Columns} view through a volatile field; readers never lock.
+     * Status and total changes of an existing row are written in place.
+     */
+    private static final class ColumnStore {
+
+        private String[] orderIds = new String[1024];
+        private int[] orderStatus = new int[1024];
+        private double[] orderTotal = new double[1024];
+        private long[] orderCreatedAt = new long[1024];
+        private int[] orderItemCount = new int[1024];
+        private int orderCount;
+
+        private int[] itemOrder = new int[4096];
+        private int[] itemProduct = new int[4096];
+        private int[] itemQuantity = new int[4096];
+        private double[] itemRevenue = new double[4096];
+        private int itemCount;
+
+        private String[] productNames = new String[256];
+        private int productCount;
+        private String[] statusNames = new String[8];
+        private int statusCount;
+        private final Map<String, Integer> productCodes = new ConcurrentHashMap<>();
+        private final Map<String, Integer> statusCodes = new ConcurrentHashMap<>();
+        private final Map<String, Integer> orderRows = new ConcurrentHashMap<>();
+
+        private volatile Columns columns = publish();
+
+        synchronized void upsertOrder(OrderDTO order) {
+            List<OrderItemDTO> items = order.getOrderItems() != null ? order.getOrderItems() : List.of();
+            Integer row = orderRows.get(order.getId());
+            if (row != null && orderItemCount[row] == items.size()) {
+                orderStatus[row] = encodeStatus(order.getStatus());
+                orderTotal[row] = order.getTotalAmount() != null ? order.getTotalAmount() : 0.0;
+                columns = publish();
+                return;
+            }
+            // New order, or its items changed: retire the old row and append a fresh one
+            if (row != null) {
+                orderStatus[row] = TOMBSTONE;
+            }
+            int newRow = appendOrder(order, items.size());
+            for (OrderItemDTO item : items) {
+                appendItemRow(newRow, item);
+            }
+            columns = publish();
+        }
+
+        synchronized void removeOrder(String orderId) {
+            Integer row = orderRows.remove(orderId);
+            if (row != null) {
+                orderStatus[row] = TOMBSTONE;
+                columns = publish();
+            }
+        }
+
+        // Publishes everything appended by the bulk load
+        synchronized void seal() {
+            columns = publish();
+        }
+
+        // Bulk load path: items are counted as they arrive, views are published once at the end
+        int appendOrder(OrderDTO order, int itemCount) {
+            if (orderCount == orderIds.length) {
+                int capacity = orderIds.length * 2;
+                orderIds = Arrays.copyOf(orderIds, capacity);
+                orderStatus = Arrays.copyOf(orderStatus, capacity);
+                orderTotal = Arrays.copyOf(orderTotal, capacity);
+                orderCreatedAt = Arrays.copyOf(orderCreatedAt, capacity);
+                orderItemCount = Arrays.copyOf(orderItemCount, capacity);
+            }
+            int row = orderCount;
+            orderIds[row] = order.getId();
+            orderStatus[row] = encodeStatus(order.getStatus());
+            orderTotal[row] = order.getTotalAmount() != null ? order.getTotalAmount() : 0.0;
+            orderCreatedAt[row] = order.getCreatedAt() != null ? order.getCreatedAt().toEpochSecond(ZoneOffset.UTC) : 0L;
+            orderItemCount[row] = itemCount;
+            orderRows.put(order.getId(), row);
+            orderCount++;
+            return row;
+        }
+
+        synchronized void appendItem(OrderItemDTO item) {
+            Integer row = orderRows.get(item.getOrderId());
+            // Items of orders created after the order pass come with the replayed write hooks
+            if (row == null) {
+                return;
+            }
+            appendItemRow(row, item);
+            orderItemCount[row]++;
+        }
+
+        private void appendItemRow(int orderRow, OrderItemDTO item) {
+            if (itemCount == itemOrder.length) {
+                int capacity = itemOrder.length * 2;
+                itemOrder = Arrays.copyOf(itemOrder, capacity);
+                itemProduct = Arrays.copyOf(itemProduct, capacity);
+                itemQuantity = Arrays.copyOf(itemQuantity, capacity);
+                itemRevenue = Arrays.copyOf(itemRevenue, capacity);
+            }
+            int quantity = item.getQuantity() != null ? item.getQuantity() : 0;
+            double price = item.getPrice() != null ? item.getPrice() : 0.0;
+            itemOrder[itemCount] = orderRow;
+            itemProduct[itemCount] = encodeProduct(item.getProductName());
+            itemQuantity[itemCount] = quantity;
+            itemRevenue[itemCount] = price * quantity;
+            itemCount++;
+        }
+
+        private int encodeProduct(String name) {
+            String key = name != null ? name : "";
+            Integer code = productCodes.get(key);
+            if (code != null) {
+                return code;
+            }
+            if (productCount == productNames.length) {
+                productNames = Arrays.copyOf(productNames, productNames.length * 2);
+            }
+            productNames[productCount] = key;
+            productCodes.put(key, productCount);
+            return productCount++;
+        }
+
+        private int encodeStatus(String status) {
+            String key = status != null ? status.toUpperCase() : "";
+            Integer code = statusCodes.get(key);
+            if (code != null) {
+                return code;
+            }
+            if (statusCount == statusNames.length) {
+                statusNames = Arrays.copyOf(statusNames, statusNames.length * 2);
+            }
+            statusNames[statusCount] = key;
+            statusCodes.put(key, statusCount);
+            return statusCount++;
+        }
+
+        private Columns publish() {
+            return new Columns(orderIds, orderStatus, orderTotal, orderCreatedAt, orderItemCount, orderCount,
+                    itemOrder, itemProduct, itemQuantity, itemRevenue, itemCount,
+                    Arrays.copyOf(productNames, productCount), Arrays.copyOf(statusNames, statusCount),
+                    productCodes, statusCodes);
+        }
+    }
+}
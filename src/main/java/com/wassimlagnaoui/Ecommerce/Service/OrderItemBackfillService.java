@@ -0,0 +1,94 @@
+package com.wassimlagnaoui.Ecommerce.Service;
+
+import com.wassimlagnaoui.Ecommerce.DTO.OrderItemBackfillResult;
+import com.wassimlagnaoui.Ecommerce.Repository.OrderItemRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Links historical order items to their product row.
+ * Item IDs are paged by keyset on the calling thread; each page is updated in its own
+ * transaction on a small worker pool, so a failed chunk never rolls back finished ones.
+ */
+@Service
+public class OrderItemBackfillService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderItemBackfillService.class);
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.backfill.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${app.backfill.parallelism:4}")
+    private int parallelism;
+
+    public OrderItemBackfillResult backfillProductReferences() {
+        long start = System.currentTimeMillis();
+        AtomicLong linked = new AtomicLong();
+        long scanned = 0;
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        List<Future<?>> pending = new ArrayList<>();
+        try {
+            String lastId = "";
+            List<String> ids = orderItemRepository.findIdsWithoutProductAfter(lastId, PageRequest.of(0, chunkSize));
+            while (!ids.isEmpty()) {
+                scanned += ids.size();
+                lastId = ids.get(ids.size() - 1);
+                List<String> chunk = ids;
+                pending.add(executor.submit(() -> {
+                    Integer updated = transactionTemplate.execute(status -> orderItemRepository.linkProductsByName(chunk));
+                    linked.addAndGet(updated != null ? updated : 0);
+                }));
+
+                // Keep at most `parallelism` chunks in flight so memory stays bounded
+                if (pending.size() >= parallelism) {
+                    waitFor(pending);
+                }
+                ids = orderItemRepository.findIdsWithoutProductAfter(lastId, PageRequest.of(0, chunkSize));
+            }
+            waitFor(pending);
+        } finally {
+            executor.shutdown();
+        }
+
+        long duration = System.currentTimeMillis() - start;
+        logger.info("Order item backfill: {} scanned, {} linked in {} ms", scanned, linked.get(), duration);
+        return new OrderItemBackfillResult(scanned, linked.get(), scanned - linked.get(), duration);
+    }
+
+    private void waitFor(List<Future<?>> pending) {
+        try {
+            for (Future<?> future : pending) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Order item backfill interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Order item backfill failed", e.getCause());
+        } finally {
+            pending.clear();
+        }
+    }
+}
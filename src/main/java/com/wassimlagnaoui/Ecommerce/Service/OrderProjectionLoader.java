@@ -0,0 +1,45 @@
+package com.wassimlagnaoui.Ecommerce.Service;
+
+import com.wassimlagnaoui.Ecommerce.DTO.OrderDTO;
+import com.wassimlagnaoui.Ecommerce.DTO.OrderItemDTO;
+import com.wassimlagnaoui.Ecommerce.Repository.OrderItemRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Attaches items to order projections with one IN query per chunk of orders,
+ * so order lists are built from two set-based queries instead of entity graphs.
+ */
+@Component
+public class OrderProjectionLoader {
+
+    // Keeps the IN list within common database parameter limits
+    private static final int IN_CHUNK_SIZE = 1000;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    public List<OrderDTO> withItems(List<OrderDTO> orders) {
+        if (orders.isEmpty()) {
+            return orders;
+        }
+        Map<String, OrderDTO> ordersById = new HashMap<>(orders.size() * 2);
+        for (OrderDTO order : orders) {
+            ordersById.put(order.getId(), order);
+        }
+
+        List<String> orderIds = new ArrayList<>(ordersById.keySet());
+        for (int from = 0; from < orderIds.size(); from += IN_CHUNK_SIZE) {
+            List<String> chunk = orderIds.subList(from, Math.min(from + IN_CHUNK_SIZE, orderIds.size()));
+            for (OrderItemDTO item : orderItemRepository.findItemDTOsByOrderIdIn(chunk)) {
+                ordersById.get(item.getOrderId()).getOrderItems().add(item);
+            }
+        }
+        return orders;
+    }
+}
@@ -1,5 +1,6 @@
 package com.wassimlagnaoui.Ecommerce.Service;
 
+import com.wassimlagnaoui.Ecommerce.Configuration.ReadYourWritesTracker;
 import com.wassimlagnaoui.Ecommerce.Domain.Customer;
 import com.wassimlagnaoui.Ecommerce.Domain.Order;
 import com.wassimlagnaoui.Ecommerce.Domain.OrderItem;
@@ -15,6 +16,9 @@ import com.wassimlagnaoui.Ecommerce.Repository.OrderItemRepository;
 import com.wassimlagnaoui.Ecommerce.Repository.OrderRepository;
 import com.wassimlagnaoui.Ecommerce.Repository.ProductRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
@@ -22,9 +26,14 @@ import org.springframework.cache.annotation.Caching;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 @Service
 public class OrderService {
@@ -50,42 +59,103 @@ public class OrderService {
     @Autowired
     private DTOMapper dtoMapper;
 
+    @Autowired
+    private ReadYourWritesTracker readYourWritesTracker;
+
+    @Autowired
+    private OrderProjectionLoader orderProjectionLoader;
+
+    @Autowired
+    private CustomerOrderHistoryService customerOrderHistoryService;
+
+    @Autowired
+    private SalesAnalyticsService salesAnalyticsService;
+
+    @Autowired
+    private OrderColumnStore orderColumnStore;
+
+    @Autowired
+    private CustomerValueIndex customerValueIndex;
+
+    @Autowired
+    private ProductFacetIndex productFacetIndex;
+
+    @Autowired
+    private ProductCatalogStore productCatalogStore;
+
+    @Autowired
+    private LookupGuard lookupGuard;
+
+    @Autowired
+    @Qualifier("orderCacheManager")
+    private CacheManager orderCacheManager;
+
     // Basic CRUD operations - now with caching
-    @Cacheable(value = "orders", cacheManager = "orderCacheManager")
+    @Cacheable(value = "orders", cacheManager = "orderCacheManager", sync = true)
+    @Transactional(readOnly = true)
     public List<OrderDTO> getAllOrders() {
-        List<Order> orders = orderRepository.findAllWithOrderItems();
-        return dtoMapper.toOrderDTOList(orders);
+        return orderProjectionLoader.withItems(orderRepository.findAllOrderDTOs());
     }
 
-    @Cacheable(value = "order", key = "#id", cacheManager = "orderCacheManager")
+    @Cacheable(value = "order", key = "#id", cacheManager = "orderCacheManager", sync = true)
     public Optional<OrderDTO> getOrderById(String id) {
-        Optional<Order> order = orderRepository.findByIdWithOrderItems(id);
+        Optional<Order> order = lookupGuard.find(LookupGuard.KeyType.ORDER_ID, id, () -> orderRepository.findByIdWithOrderItems(id));
         return order.map(dtoMapper::toOrderDTO);
     }
 
     @Caching(evict = {
         @CacheEvict(value = "orders", cacheManager = "orderCacheManager"),
-        @CacheEvict(value = "order", key = "#result.id", cacheManager = "orderCacheManager", condition = "#result != null")
+        @CacheEvict(value = "order", key = "#result.id", cacheManager = "orderCacheManager", condition = "#result != null"),
+        @CacheEvict(value = "order", key = "'orderNumber:' + #result.orderNumber", cacheManager = "orderCacheManager", condition = "#result != null")
     })
     public OrderDTO saveOrder(OrderDTO orderDTO) {
         Order order = dtoMapper.toOrderEntity(orderDTO);
         Order savedOrder = orderRepository.save(order);
-        return dtoMapper.toOrderDTO(savedOrder);
+        lookupGuard.recordKey(LookupGuard.KeyType.ORDER_ID, savedOrder.getId());
+        lookupGuard.recordKey(LookupGuard.KeyType.ORDER_NUMBER, savedOrder.getOrderNumber());
+        customerOrderHistoryService.invalidate(orderDTO.getCustomerId());
+        OrderDTO savedOrderDTO = dtoMapper.toOrderDTO(savedOrder);
+        orderColumnStore.recordOrder(savedOrderDTO);
+        return savedOrderDTO;
     }
 
     @Caching(evict = {
         @CacheEvict(value = "orders", cacheManager = "orderCacheManager"),
-        @CacheEvict(value = "order", key = "#id", cacheManager = "orderCacheManager"),
-        @CacheEvict(value = "userOrders", cacheManager = "orderCacheManager")
+        @CacheEvict(value = "order", key = "#id", cacheManager = "orderCacheManager")
     })
+    @Transactional
     public void deleteOrder(String id) {
+        Optional<Order> order = orderRepository.findByIdWithOrderItemsAndProducts(id);
+        String customerId = order
+                .map(o -> o.getCustomer() != null ? o.getCustomer().getId() : null)
+                .orElse(null);
+        // A deleted order leaves the sales rollups like a cancelled one (cancelled orders are already out)
+        order.filter(o -> !"CANCELLED".equals(o.getStatus()))
+                .ifPresent(salesAnalyticsService::recordOrderCancelled);
         orderRepository.deleteById(id);
+        order.ifPresent(o -> evictOrderNumber(o.getOrderNumber()));
+        customerOrderHistoryService.removeOrder(customerId, id);
+        orderColumnStore.removeOrder(id);
+        customerValueIndex.recordOrderRemoved(customerId);
+    }
+
+    // ETags for conditional GETs, from the order version only: no order or items are loaded.
+    // Unknown ids and order numbers are answered by the lookup guard without a query.
+    public Optional<String> getOrderETag(String id) {
+        return lookupGuard.find(LookupGuard.KeyType.ORDER_ID, id, () -> orderRepository.findVersionById(id))
+                .map(version -> id + "-" + version);
+    }
+
+    public Optional<String> getOrderETagByOrderNumber(String orderNumber) {
+        return lookupGuard.find(LookupGuard.KeyType.ORDER_NUMBER, orderNumber,
+                        () -> orderRepository.findIdAndVersionByOrderNumber(orderNumber).stream().findFirst())
+                .map(row -> row[0] + "-" + row[1]);
     }
 
     // Order search and filtering - with caching
-    @Cacheable(value = "order", key = "'orderNumber:' + #orderNumber", cacheManager = "orderCacheManager")
+    @Cacheable(value = "order", key = "'orderNumber:' + #orderNumber", cacheManager = "orderCacheManager", sync = true)
     public Optional<OrderDTO> findByOrderNumber(String orderNumber) {
-        Optional<Order> order = orderRepository.findByOrderNumber(orderNumber);
+        Optional<Order> order = lookupGuard.find(LookupGuard.KeyType.ORDER_NUMBER, orderNumber, () -> orderRepository.findByOrderNumber(orderNumber));
         // If order exists, fetch it with order items for complete DTO mapping
         if (order.isPresent()) {
             Optional<Order> orderWithItems = orderRepository.findByIdWithOrderItems(order.get().getId());
@@ -94,26 +164,27 @@ public class OrderService {
         return Optional.empty();
     }
 
-    @Cacheable(value = "userOrders", key = "'customer:' + #customerId", cacheManager = "orderCacheManager")
+    // Customer order views are served by the per-customer history read model
     public List<OrderDTO> getOrdersByCustomer(String customerId) {
-        List<Order> orders = orderRepository.findByCustomerId(customerId);
-        return dtoMapper.toOrderDTOList(orders);
+        return customerOrderHistoryService.getOrders(customerId);
     }
 
-    @Cacheable(value = "orders", key = "'status:' + #status", cacheManager = "orderCacheManager")
+    public List<OrderDTO> getOrdersByCustomer(String customerId, Integer page, Integer size) {
+        return customerOrderHistoryService.getOrders(customerId, null, page, size);
+    }
+
+    @Cacheable(value = "orders", key = "'status:' + #status", cacheManager = "orderCacheManager", sync = true)
+    @Transactional(readOnly = true)
     public List<OrderDTO> getOrdersByStatus(String status) {
-        List<Order> orders = orderRepository.findByStatus(status);
-        return dtoMapper.toOrderDTOList(orders);
+        return orderProjectionLoader.withItems(orderRepository.findOrderDTOsByStatus(status));
     }
 
-    @Cacheable(value = "userOrders", key = "'customer:' + #customerId + ':status:' + #status", cacheManager = "orderCacheManager")
     public List<OrderDTO> getCustomerOrdersByStatus(String customerId, String status) {
-        List<Order> orders = orderRepository.findByCustomerIdAndStatus(customerId, status);
-        return dtoMapper.toOrderDTOList(orders);
+        return customerOrderHistoryService.getOrders(customerId, status);
     }
 
     // Order item management - with caching
-    @Cacheable(value = "order", key = "'items:' + #orderId", cacheManager = "orderCacheManager")
+    @Cacheable(value = "order", key = "'items:' + #orderId", cacheManager = "orderCacheManager", sync = true)
     public List<OrderItemDTO> getOrderItems(String orderId) {
         Optional<Order> order = orderRepository.findByIdWithOrderItems(orderId);
         if (order.isPresent()) {
@@ -122,9 +193,13 @@ public class OrderService {
         return List.of();
     }
 
-    @Cacheable(value = "orders", key = "'itemsByProduct:' + #productName", cacheManager = "orderCacheManager")
+    @Cacheable(value = "orders", key = "'itemsByProduct:' + #productName", cacheManager = "orderCacheManager", sync = true)
     public List<OrderItemDTO> findOrderItemsByProductName(String productName) {
-        List<OrderItem> orderItems = orderItemRepository.findByProductName(productName);
+        // Match on the product ID so renamed products keep their history; fall back to the stored name
+        Optional<Product> product = productRepository.findByName(productName);
+        List<OrderItem> orderItems = product
+                .map(p -> orderItemRepository.findByProductIdOrLegacyName(p.getId(), productName))
+                .orElseGet(() -> orderItemRepository.findByProductName(productName));
         return dtoMapper.toOrderItemDTOList(orderItems);
     }
 
@@ -132,8 +207,9 @@ public class OrderService {
     @Transactional
     @Caching(evict = {
         @CacheEvict(value = "orders", cacheManager = "orderCacheManager"),
-        @CacheEvict(value = "userOrders", key = "'customer:' + #orderRequest.customerId", cacheManager = "orderCacheManager", condition = "#orderRequest.customerId != null")
+        @CacheEvict(value = "order", key = "'orderNumber:' + #result.orderNumber", cacheManager = "orderCacheManager", condition = "#result != null")
     })
+    @RetryOnConflict
     public OrderDTO createOrder(OrderCreateRequest orderRequest) {
         // Validation is now handled in service layer
         if (orderRequest.getCustomerId() == null || orderRequest.getCustomerId().trim().isEmpty()) {
@@ -162,7 +238,7 @@ public class OrderService {
         // Convert OrderItemCreateRequest to OrderItemDTO for internal processing
         List<OrderItemDTO> orderItemDTOs = orderItemRequests.stream()
             .map(request -> new OrderItemDTO(null, request.getProductName(),
-                                           request.getQuantity(), request.getPrice(), null))
+                                           request.getQuantity(), request.getPrice(), null, null))
             .toList();
 
         return createOrder(customerId, orderItemDTOs);
@@ -172,8 +248,9 @@ public class OrderService {
     @Transactional
     @Caching(evict = {
         @CacheEvict(value = "orders", cacheManager = "orderCacheManager"),
-        @CacheEvict(value = "userOrders", key = "'customer:' + #customerId", cacheManager = "orderCacheManager")
+        @CacheEvict(value = "order", key = "'orderNumber:' + #result.orderNumber", cacheManager = "orderCacheManager", condition = "#result != null")
     })
+    @RetryOnConflict
     public OrderDTO createOrder(String customerId, List<OrderItemDTO> orderItemDTOs) {
         // Use optimized customer query if available
         Optional<Customer> customerOpt = customerRepository.findById(customerId);
@@ -199,13 +276,26 @@ public class OrderService {
                 })
                 .toList();
 
+        // Resolve every product of the order in a single query
+        Set<String> productNames = orderItems.stream()
+                .map(OrderItem::getProductName)
+                .collect(Collectors.toSet());
+        Map<String, Product> productsByName = productRepository.findByNameIn(productNames).stream()
+                .collect(Collectors.toMap(Product::getName, product -> product, (first, second) -> first));
+
         for (OrderItem item : orderItems) {
+            Product product = productsByName.get(item.getProductName());
+            if (product == null) {
+                throw new ProductNotFoundException(item.getProductName(), true);
+            }
             // Validate product availability
-            if (!productService.isProductAvailable(getProductIdFromName(item.getProductName()), item.getQuantity())) {
+            if (product.getStock() == null || product.getStock() < item.getQuantity()) {
                 throw new InsufficientStockException("Insufficient stock for product: " + item.getProductName());
             }
 
-            totalAmount += item.getPrice() * item.getQuantity();
+            item.setProduct(product);
+            item.setUnitPrice(product.getPrice());
+            totalAmount += item.chargedUnitPrice() * item.getQuantity();
         }
 
         order.setTotalAmount(totalAmount);
@@ -213,21 +303,31 @@ public class OrderService {
 
         // Save order
         Order savedOrder = orderRepository.save(order);
+        lookupGuard.recordKey(LookupGuard.KeyType.ORDER_ID, savedOrder.getId());
+        lookupGuard.recordKey(LookupGuard.KeyType.ORDER_NUMBER, savedOrder.getOrderNumber());
 
         // Update product stock and sales count
         for (OrderItem item : orderItems) {
-            String productId = getProductIdFromName(item.getProductName());
+            String productId = item.getProduct().getId();
             productService.reduceStock(productId, item.getQuantity());
-            productService.increaseSalesCount(productId, item.getQuantity());
+            productService.recordSale(productId, item.getQuantity());
         }
 
         // Update customer total spent
         customerService.updateTotalSpent(customerId, totalAmount);
 
+        // Keep this customer's reads on the primary until replicas have the new order
+        readYourWritesTracker.recordWrite(customerId);
+
         // Return the order with all items loaded
         Optional<Order> orderWithItems = orderRepository.findByIdWithOrderItems(savedOrder.getId());
-        return orderWithItems.map(dtoMapper::toOrderDTO)
+        OrderDTO createdOrder = orderWithItems.map(dtoMapper::toOrderDTO)
                 .orElse(dtoMapper.toOrderDTO(savedOrder));
+        customerOrderHistoryService.recordOrder(createdOrder);
+        orderColumnStore.recordOrder(createdOrder);
+        salesAnalyticsService.recordOrderCreated(savedOrder);
+        customerValueIndex.recordOrderPlaced(customerId, savedOrder.getCreatedAt());
+        return createdOrder;
     }
 
     // Order status management - with cache updates
@@ -235,16 +335,22 @@ public class OrderService {
         put = @CachePut(value = "order", key = "#orderId", cacheManager = "orderCacheManager"),
         evict = {
             @CacheEvict(value = "orders", cacheManager = "orderCacheManager"),
-            @CacheEvict(value = "userOrders", cacheManager = "orderCacheManager")
+            @CacheEvict(value = "order", key = "'orderNumber:' + #result.orderNumber", cacheManager = "orderCacheManager", condition = "#result != null")
         }
     )
+    @Transactional
+    @RetryOnConflict
     public OrderDTO updateOrderStatus(String orderId, String newStatus) {
         Optional<Order> orderOpt = orderRepository.findByIdWithOrderItems(orderId);
         if (orderOpt.isPresent()) {
             Order order = orderOpt.get();
+            recordStatusChange(order, newStatus);
             order.setStatus(newStatus);
             Order savedOrder = orderRepository.save(order);
-            return dtoMapper.toOrderDTO(savedOrder);
+            OrderDTO updatedOrder = dtoMapper.toOrderDTO(savedOrder);
+            customerOrderHistoryService.recordOrder(updatedOrder);
+            orderColumnStore.recordOrder(updatedOrder);
+            return updatedOrder;
         }
         throw new OrderNotFoundException(orderId);
     }
@@ -254,9 +360,10 @@ public class OrderService {
         evict = {
             @CacheEvict(value = "orders", key = "'status:PENDING'", cacheManager = "orderCacheManager"),
             @CacheEvict(value = "orders", key = "'status:PROCESSING'", cacheManager = "orderCacheManager"),
-            @CacheEvict(value = "userOrders", cacheManager = "orderCacheManager")
+            @CacheEvict(value = "order", key = "'orderNumber:' + #result.orderNumber", cacheManager = "orderCacheManager", condition = "#result != null")
         }
     )
+    @RetryOnConflict
     public OrderDTO processOrder(String orderId) {
         return updateOrderStatus(orderId, "PROCESSING");
     }
@@ -266,9 +373,10 @@ public class OrderService {
         evict = {
             @CacheEvict(value = "orders", key = "'status:PROCESSING'", cacheManager = "orderCacheManager"),
             @CacheEvict(value = "orders", key = "'status:SHIPPED'", cacheManager = "orderCacheManager"),
-            @CacheEvict(value = "userOrders", cacheManager = "orderCacheManager")
+            @CacheEvict(value = "order", key = "'orderNumber:' + #result.orderNumber", cacheManager = "orderCacheManager", condition = "#result != null")
         }
     )
+    @RetryOnConflict
     public OrderDTO shipOrder(String orderId) {
         return updateOrderStatus(orderId, "SHIPPED");
     }
@@ -278,9 +386,10 @@ public class OrderService {
         evict = {
             @CacheEvict(value = "orders", key = "'status:SHIPPED'", cacheManager = "orderCacheManager"),
             @CacheEvict(value = "orders", key = "'status:DELIVERED'", cacheManager = "orderCacheManager"),
-            @CacheEvict(value = "userOrders", cacheManager = "orderCacheManager")
+            @CacheEvict(value = "order", key = "'orderNumber:' + #result.orderNumber", cacheManager = "orderCacheManager", condition = "#result != null")
         }
     )
+    @RetryOnConflict
     public OrderDTO deliverOrder(String orderId) {
         return updateOrderStatus(orderId, "DELIVERED");
     }
@@ -289,11 +398,13 @@ public class OrderService {
         put = @CachePut(value = "order", key = "#orderId", cacheManager = "orderCacheManager"),
         evict = {
             @CacheEvict(value = "orders", cacheManager = "orderCacheManager"),
-            @CacheEvict(value = "userOrders", cacheManager = "orderCacheManager")
+            @CacheEvict(value = "order", key = "'orderNumber:' + #result.orderNumber", cacheManager = "orderCacheManager", condition = "#result != null")
         }
     )
+    @Transactional
+    @RetryOnConflict
     public OrderDTO cancelOrder(String orderId) {
-        Optional<Order> orderOpt = orderRepository.findByIdWithOrderItems(orderId);
+        Optional<Order> orderOpt = orderRepository.findByIdWithOrderItemsAndProducts(orderId);
         if (orderOpt.isPresent()) {
             Order order = orderOpt.get();
 
@@ -301,12 +412,16 @@ public class OrderService {
             if ("PENDING".equals(order.getStatus()) || "PROCESSING".equals(order.getStatus())) {
                 // Restore product stock
                 for (OrderItem item : order.getOrderItems()) {
-                    String productId = getProductIdFromName(item.getProductName());
-                    Optional<Product> productOpt = productRepository.findById(productId);
-                    if (productOpt.isPresent()) {
-                        Product product = productOpt.get();
+                    Product product = item.getProduct();
+                    if (product == null) {
+                        // Items created before the product reference existed
+                        product = productRepository.findByName(item.getProductName()).orElse(null);
+                    }
+                    if (product != null) {
                         product.setStock(product.getStock() + item.getQuantity());
-                        productRepository.save(product);
+                        Product savedProduct = productRepository.save(product);
+                        productFacetIndex.recordProduct(savedProduct, false);
+                        productCatalogStore.recordProduct(savedProduct, false);
                     }
                 }
 
@@ -314,10 +429,15 @@ public class OrderService {
                 Customer customer = order.getCustomer();
                 customer.setTotalSpent(customer.getTotalSpent() - order.getTotalAmount());
                 customerRepository.save(customer);
+                customerValueIndex.recordSpend(customer.getId(), customer.getTotalSpent());
 
                 order.setStatus("CANCELLED");
                 Order savedOrder = orderRepository.save(order);
-                return dtoMapper.toOrderDTO(savedOrder);
+                OrderDTO cancelledOrder = dtoMapper.toOrderDTO(savedOrder);
+                customerOrderHistoryService.recordOrder(cancelledOrder);
+                orderColumnStore.recordOrder(cancelledOrder);
+                salesAnalyticsService.recordOrderCancelled(savedOrder);
+                return cancelledOrder;
             } else {
                 throw new InvalidOrderStatusException(order.getStatus(), "cancel");
             }
@@ -329,9 +449,10 @@ public class OrderService {
     @Caching(evict = {
         @CacheEvict(value = "order", key = "#orderId", cacheManager = "orderCacheManager"),
         @CacheEvict(value = "order", key = "'items:' + #orderId", cacheManager = "orderCacheManager"),
-        @CacheEvict(value = "orders", cacheManager = "orderCacheManager"),
-        @CacheEvict(value = "userOrders", cacheManager = "orderCacheManager")
+        @CacheEvict(value = "orders", cacheManager = "orderCacheManager")
     })
+    @RetryOnConflict
+    @Transactional
     public OrderItemDTO addOrderItem(String orderId, OrderItemCreateRequest orderItemRequest) {
         // Validation for order item
         if (orderItemRequest.getProductName() == null || orderItemRequest.getProductName().trim().isEmpty()) {
@@ -346,7 +467,7 @@ public class OrderService {
 
         // Convert to OrderItemDTO for internal processing
         OrderItemDTO orderItemDTO = new OrderItemDTO(null, orderItemRequest.getProductName(),
-                                                    orderItemRequest.getQuantity(), orderItemRequest.getPrice(), orderId);
+                                                    orderItemRequest.getQuantity(), orderItemRequest.getPrice(), orderId, null);
         return addOrderItem(orderId, orderItemDTO);
     }
 
@@ -354,9 +475,10 @@ public class OrderService {
     @Caching(evict = {
         @CacheEvict(value = "order", key = "#orderId", cacheManager = "orderCacheManager"),
         @CacheEvict(value = "order", key = "'items:' + #orderId", cacheManager = "orderCacheManager"),
-        @CacheEvict(value = "orders", cacheManager = "orderCacheManager"),
-        @CacheEvict(value = "userOrders", cacheManager = "orderCacheManager")
+        @CacheEvict(value = "orders", cacheManager = "orderCacheManager")
     })
+    @RetryOnConflict
+    @Transactional
     public OrderItemDTO addOrderItem(String orderId, OrderItemDTO orderItemDTO) {
         Optional<Order> orderOpt = orderRepository.findByIdWithOrderItems(orderId);
         if (orderOpt.isPresent()) {
@@ -369,30 +491,44 @@ public class OrderService {
 
             OrderItem orderItem = dtoMapper.toOrderItemEntity(orderItemDTO);
             orderItem.setOrder(order);
+            Product product = productRepository.findByName(orderItem.getProductName())
+                    .orElseThrow(() -> new ProductNotFoundException(orderItem.getProductName(), true));
+            orderItem.setProduct(product);
+            orderItem.setUnitPrice(product.getPrice());
             OrderItem savedItem = orderItemRepository.save(orderItem);
-
-            // Update order total
-            order.setTotalAmount(order.getTotalAmount() + (orderItem.getPrice() * orderItem.getQuantity()));
-            orderRepository.save(order);
-
-            return dtoMapper.toOrderItemDTO(savedItem);
+            salesAnalyticsService.recordOrderItemAdded(order, savedItem);
+
+            // Update order total; flushed here so a concurrent change of the order fails before the in-memory updates below
+            order.setTotalAmount(order.getTotalAmount() + (orderItem.chargedUnitPrice() * orderItem.getQuantity()));
+            orderRepository.saveAndFlush(order);
+            evictOrderNumber(order.getOrderNumber());
+            customerOrderHistoryService.invalidate(order.getCustomer() != null ? order.getCustomer().getId() : null);
+
+            OrderItemDTO savedItemDTO = dtoMapper.toOrderItemDTO(savedItem);
+            // The column store takes the whole order, so a reload can replay the change without counting the item twice
+            OrderDTO updatedOrder = dtoMapper.toOrderDTO(order);
+            List<OrderItemDTO> items = updatedOrder.getOrderItems() != null ? new ArrayList<>(updatedOrder.getOrderItems()) : new ArrayList<>();
+            items.add(savedItemDTO);
+            updatedOrder.setOrderItems(items);
+            orderColumnStore.recordOrder(updatedOrder);
+            return savedItemDTO;
         }
         throw new OrderNotFoundException(orderId);
     }
 
     // Order calculations - with caching
-    @Cacheable(value = "order", key = "'total:' + #orderId", cacheManager = "orderCacheManager")
+    @Cacheable(value = "order", key = "'total:' + #orderId", cacheManager = "orderCacheManager", sync = true)
     public Double calculateOrderTotal(String orderId) {
         Optional<Order> order = orderRepository.findByIdWithOrderItems(orderId);
         if (order.isPresent()) {
             return order.get().getOrderItems().stream()
-                    .mapToDouble(item -> item.getPrice() * item.getQuantity())
+                    .mapToDouble(item -> item.chargedUnitPrice() * item.getQuantity())
                     .sum();
         }
         return 0.0;
     }
 
-    @Cacheable(value = "order", key = "'itemCount:' + #orderId", cacheManager = "orderCacheManager")
+    @Cacheable(value = "order", key = "'itemCount:' + #orderId", cacheManager = "orderCacheManager", sync = true)
     public Integer getOrderItemCount(String orderId) {
         Optional<Order> order = orderRepository.findByIdWithOrderItems(orderId);
         return order.map(o -> o.getOrderItems().size()).orElse(0);
@@ -403,22 +539,34 @@ public class OrderService {
         return "ORD-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
     }
 
-    private String getProductIdFromName(String productName) {
-        Optional<Product> product = productRepository.findByName(productName);
-        if (product.isPresent()) {
-            return product.get().getId();
+    // The findByOrderNumber entry of an order whose number is not among the method arguments, dropped once the change commits
+    private void evictOrderNumber(String orderNumber) {
+        Cache cache = orderCacheManager.getCache("order");
+        if (orderNumber == null || cache == null) {
+            return;
+        }
+        AfterCommit.run(() -> cache.evict("orderNumber:" + orderNumber));
+    }
+
+    // Cancelled orders are left out of the sales rollups; called before the new status is set
+    private void recordStatusChange(Order order, String newStatus) {
+        boolean wasCancelled = "CANCELLED".equals(order.getStatus());
+        boolean isCancelled = "CANCELLED".equals(newStatus);
+        if (!wasCancelled && isCancelled) {
+            salesAnalyticsService.recordOrderCancelled(order);
+        } else if (wasCancelled && !isCancelled) {
+            salesAnalyticsService.recordOrderCreated(order);
         }
-        throw new ProductNotFoundException(productName, true);
     }
 
     // Order validation - with caching
-    @Cacheable(value = "order", key = "'canProcess:' + #orderId", cacheManager = "orderCacheManager")
+    @Cacheable(value = "order", key = "'canProcess:' + #orderId", cacheManager = "orderCacheManager", sync = true)
     public boolean canProcessOrder(String orderId) {
         Optional<Order> order = orderRepository.findById(orderId);
         return order.isPresent() && "PENDING".equals(order.get().getStatus());
     }
 
-    @Cacheable(value = "order", key = "'canCancel:' + #orderId", cacheManager = "orderCacheManager")
+    @Cacheable(value = "order", key = "'canCancel:' + #orderId", cacheManager = "orderCacheManager", sync = true)
     public boolean canCancelOrder(String orderId) {
         Optional<Order> order = orderRepository.findById(orderId);
         if (order.isPresent()) {
@@ -433,9 +581,10 @@ public class OrderService {
         put = @CachePut(value = "order", key = "#id", cacheManager = "orderCacheManager"),
         evict = {
             @CacheEvict(value = "orders", cacheManager = "orderCacheManager"),
-            @CacheEvict(value = "userOrders", cacheManager = "orderCacheManager")
+            @CacheEvict(value = "order", key = "'orderNumber:' + #result.orderNumber", cacheManager = "orderCacheManager", condition = "#result != null")
         }
     )
+    @Transactional
     public OrderDTO updateOrder(String id, OrderUpdateRequest orderRequest) {
         // Validation for update request
         if (orderRequest.getStatus() == null || orderRequest.getStatus().trim().isEmpty()) {
@@ -454,12 +603,16 @@ public class OrderService {
                 throw new InvalidOrderStatusException(order.getStatus(), "update");
             }
 
+            recordStatusChange(order, orderRequest.getStatus());
             order.setStatus(orderRequest.getStatus());
             if (orderRequest.getTotalAmount() != null) {
                 order.setTotalAmount(orderRequest.getTotalAmount());
             }
             Order savedOrder = orderRepository.save(order);
-            return dtoMapper.toOrderDTO(savedOrder);
+            OrderDTO updatedOrder = dtoMapper.toOrderDTO(savedOrder);
+            customerOrderHistoryService.recordOrder(updatedOrder);
+            orderColumnStore.recordOrder(updatedOrder);
+            return updatedOrder;
         }
         throw new OrderNotFoundException(id);
     }
@@ -469,9 +622,10 @@ public class OrderService {
         put = @CachePut(value = "order", key = "#id", cacheManager = "orderCacheManager"),
         evict = {
             @CacheEvict(value = "orders", cacheManager = "orderCacheManager"),
-            @CacheEvict(value = "userOrders", cacheManager = "orderCacheManager")
+            @CacheEvict(value = "order", key = "'orderNumber:' + #result.orderNumber", cacheManager = "orderCacheManager", condition = "#result != null")
         }
     )
+    @Transactional
     public OrderDTO updateOrder(String id, OrderDTO updatedOrderDTO) {
         Optional<Order> orderOpt = orderRepository.findByIdWithOrderItems(id);
         if (orderOpt.isPresent()) {
@@ -482,60 +636,26 @@ public class OrderService {
                 throw new InvalidOrderStatusException(order.getStatus(), "update");
             }
 
+            recordStatusChange(order, updatedOrderDTO.getStatus());
             order.setStatus(updatedOrderDTO.getStatus());
             if (updatedOrderDTO.getTotalAmount() != null) {
                 order.setTotalAmount(updatedOrderDTO.getTotalAmount());
             }
             Order savedOrder = orderRepository.save(order);
-            return dtoMapper.toOrderDTO(savedOrder);
+            OrderDTO updatedOrder = dtoMapper.toOrderDTO(savedOrder);
+            customerOrderHistoryService.recordOrder(updatedOrder);
+            orderColumnStore.recordOrder(updatedOrder);
+            return updatedOrder;
         }
         throw new OrderNotFoundException(id);
     }
 
-    // Customer-specific order queries - with caching
-    @Cacheable(value = "userOrders", key = "'customer:' + #customerId + ':completed'", cacheManager = "orderCacheManager")
-    public List<OrderDTO> getCompletedOrdersByCustomer(String customerId) {
-        List<Order> orders = orderRepository.findCompletedOrdersByCustomerId(customerId);
-        return dtoMapper.toOrderDTOList(orders);
-    }
-
-    @Cacheable(value = "userOrders", key = "'customer:' + #customerId + ':pending'", cacheManager = "orderCacheManager")
-    public List<OrderDTO> getPendingOrdersByCustomer(String customerId) {
-        List<Order> orders = orderRepository.findPendingOrdersByCustomerId(customerId);
-        return dtoMapper.toOrderDTOList(orders);
-    }
-
-    @Cacheable(value = "userOrders", key = "'customer:' + #customerId + ':cancelled'", cacheManager = "orderCacheManager")
-    public List<OrderDTO> getCancelledOrdersByCustomer(String customerId) {
-        List<Order> orders = orderRepository.findCancelledOrdersByCustomerId(customerId);
-        return dtoMapper.toOrderDTOList(orders);
-    }
-
-    @Cacheable(value = "userOrders", key = "'customer:' + #customerId + ':shipped'", cacheManager = "orderCacheManager")
-    public List<OrderDTO> getShippedOrdersByCustomer(String customerId) {
-        List<Order> orders = orderRepository.findShippedOrdersByCustomerId(customerId);
-        return dtoMapper.toOrderDTOList(orders);
-    }
-
-    @Cacheable(value = "userOrders", key = "'customer:' + #customerId + ':delivered'", cacheManager = "orderCacheManager")
-    public List<OrderDTO> getDeliveredOrdersByCustomer(String customerId) {
-        List<Order> orders = orderRepository.findDeliveredOrdersByCustomerId(customerId);
-        return dtoMapper.toOrderDTOList(orders);
-    }
-
-    @Cacheable(value = "userOrders", key = "'customer:' + #customerId + ':returned'", cacheManager = "orderCacheManager")
-    public List<OrderDTO> getReturnedOrdersByCustomer(String customerId) {
-        List<Order> orders = orderRepository.findReturnedOrdersByCustomerId(customerId);
-        return dtoMapper.toOrderDTOList(orders);
-    }
-
-    @Cacheable(value = "userOrders", key = "'customer:' + #customerId + ':refunded'", cacheManager = "orderCacheManager")
-    public List<OrderDTO> getRefundedOrdersByCustomer(String customerId) {
-        List<Order> orders = orderRepository.findRefundedOrdersByCustomerId(customerId);
-        return dtoMapper.toOrderDTOList(orders);
+    // Customer dashboard: every requested status bucket from the customer's single history entry
+    public Map<String, List<OrderDTO>> getCustomerOrdersGroupedByStatus(String customerId, Collection<String> statuses) {
+        return customerOrderHistoryService.getOrdersGroupedByStatus(customerId, statuses);
     }
 
-    @Cacheable(value = "orders", key = "'aboveAmount:' + #amount", cacheManager = "orderCacheManager")
+    @Cacheable(value = "orders", key = "'aboveAmount:' + #amount", cacheManager = "orderCacheManager", sync = true)
     public List<OrderDTO> getOrdersAboveAmount(Double amount) {
         List<Order> orders = orderRepository.findByTotalAmountGreaterThan(amount);
         return dtoMapper.toOrderDTOList(orders);
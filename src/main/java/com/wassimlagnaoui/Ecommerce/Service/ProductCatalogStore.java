@@ -0,0 +1,559 @@
+package com.wassimlagnaoui.Ecommerce.Service;
+
+import com.wassimlagnaoui.Ecommerce.DTO.ProductDTO;
+import com.wassimlagnaoui.Ecommerce.Domain.Category;
+import com.wassimlagnaoui.Ecommerce.Domain.Product;
+import com.wassimlagnaoui.Ecommerce.Repository.ProductRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Immutable in-memory snapshot of the product catalog. Products live in fixed-size chunks of
+ * primitive/array columns; a write copies the chunk pointer array and the one chunk it touches
+ * and publishes the new snapshot with a single volatile write, so readers never lock and every
+ * other chunk is shared between versions. Loaded at startup and kept current after commit from
+ * the product write paths; until the first load completes callers fall back to the database.
+ * Each snapshot also carries order-independent fingerprints of the (id, version, sales count) of the
+ * whole catalog and of each category, which the list endpoints use as ETags.
+ */
+@Service
+public class ProductCatalogStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductCatalogStore.class);
+
+    private static final int CHUNK_BITS = 10;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    // Sentinel for null stock / sales count; null prices are stored as NaN
+    private static final int NULL_INT = Integer.MIN_VALUE;
+    private static final String[] NO_CATEGORIES = new String[0];
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Value("${app.catalog.snapshot.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.catalog.snapshot.load-batch-size:10000}")
+    private int loadBatchSize;
+
+    private volatile Snapshot snapshot;
+
+    // Guarded by this: deltas received while a load is running, replayed on the loaded snapshot
+    private boolean loading;
+    private final List<Runnable> pendingDeltas = new ArrayList<>();
+
+    // Category names are few and repeated on every product: keep one instance of each
+    private final Map<String, String> categoryNames = new ConcurrentHashMap<>();
+
+    private final ExecutorService loadExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "catalog-load");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        if (enabled) {
+            loadExecutor.submit(() -> {
+                try {
+                    load();
+                } catch (Exception e) {
+                    logger.error("Product catalog snapshot load failed; product reads stay on the database", e);
+                }
+            });
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        loadExecutor.shutdownNow();
+    }
+
+    public boolean isReady() {
+        return snapshot != null;
+    }
+
+    public void load() {
+        long start = System.currentTimeMillis();
+        synchronized (this) {
+            loading = true;
+        }
+        try {
+            Map<String, List<String>> categoriesById = new HashMap<>();
+            for (Object[] row : productRepository.findProductCategoryNames()) {
+                categoriesById.computeIfAbsent((String) row[0], id -> new ArrayList<>()).add(canonical((String) row[1]));
+            }
+
+            Builder builder = new Builder();
+            PageRequest batch = PageRequest.of(0, loadBatchSize);
+            String afterId = "";
+            List<Object[]> rows;
+            do {
+                rows = productRepository.findCatalogRowsAfter(afterId, batch);
+                for (Object[] row : rows) {
+                    ProductDTO product = new ProductDTO((String) row[0], (String) row[1], (String) row[2],
+                            (Double) row[3], (Integer) row[4], (Integer) row[5]);
+                    List<String> categories = categoriesById.get(product.getId());
+                    builder.append(product, eTagVersion((Long) row[6], product.getSalesCount()),
+                            categories != null ? categories.toArray(NO_CATEGORIES) : NO_CATEGORIES);
+                }
+                if (!rows.isEmpty()) {
+                    afterId = (String) rows.get(rows.size() - 1)[0];
+                }
+            } while (rows.size() == loadBatchSize);
+
+            synchronized (this) {
+                Snapshot loaded = builder.build();
+                snapshot = loaded;
+                for (Runnable delta : pendingDeltas) {
+                    delta.run();
+                }
+                logger.info("Product catalog snapshot loaded {} products in {} ms (replayed {} concurrent changes)",
+                        loaded.live, System.currentTimeMillis() - start, pendingDeltas.size());
+            }
+        } finally {
+            synchronized (this) {
+                loading = false;
+                pendingDeltas.clear();
+            }
+        }
+    }
+
+    // Called with the product as saved; categories are only read (and replaced) when they changed.
+    // Columns are read after commit, once the flush has assigned the new version.
+    public void recordProduct(Product product, boolean categoriesChanged) {
+        if (!enabled || product == null || product.getId() == null) {
+            return;
+        }
+        String[] categories = null;
+        if (categoriesChanged && product.getCategories() != null) {
+            categories = product.getCategories().stream()
+                    .map(Category::getName)
+                    .map(this::canonical)
+                    .toArray(String[]::new);
+        }
+        String[] productCategories = categories;
+        AfterCommit.run(() -> {
+            ProductDTO row = new ProductDTO(product.getId(), product.getName(), product.getDescription(),
+                    product.getPrice(), product.getStock(), product.getSalesCount());
+            long version = eTagVersion(product.getVersion(), product.getSalesCount());
+            apply(() -> snapshot = snapshot.with(row, version, productCategories));
+        });
+    }
+
+    public void removeProduct(String productId) {
+        if (!enabled) {
+            return;
+        }
+        AfterCommit.run(() -> apply(() -> snapshot = snapshot.without(productId)));
+    }
+
+    // Read side: every method works on the snapshot current at the call
+
+    public Optional<ProductDTO> findById(String id) {
+        Snapshot current = snapshot;
+        Integer slot = current.slotById.get(id);
+        return slot != null && current.isLive(slot) && id.equals(current.id(slot))
+                ? Optional.of(current.toDTO(slot))
+                : Optional.empty();
+    }
+
+    public Optional<ProductDTO> findByName(String name) {
+        Snapshot current = snapshot;
+        Integer slot = current.slotByName.get(name);
+        return slot != null && current.isLive(slot) && name.equals(current.chunk(slot).names[slot & CHUNK_MASK])
+                ? Optional.of(current.toDTO(slot))
+                : Optional.empty();
+    }
+
+    public OptionalLong getVersion(String id) {
+        Snapshot current = snapshot;
+        Integer slot = current.slotById.get(id);
+        return slot != null && current.isLive(slot)
+                ? OptionalLong.of(current.chunk(slot).versions[slot & CHUNK_MASK])
+                : OptionalLong.empty();
+    }
+
+    // Fingerprint of every live (id, version); changes whenever any product is added, updated or removed
+    public long getCatalogFingerprint() {
+        Snapshot current = snapshot;
+        return current.fingerprint ^ current.live;
+    }
+
+    public long getCategoryFingerprint(String categoryName) {
+        return snapshot.categoryFingerprints.getOrDefault(categoryName, 0L);
+    }
+
+    public boolean existsByName(String name) {
+        return findByName(name).isPresent();
+    }
+
+    public boolean isAvailable(String id, int requestedQuantity) {
+        Snapshot current = snapshot;
+        Integer slot = current.slotById.get(id);
+        if (slot == null || !current.isLive(slot)) {
+            return false;
+        }
+        int stock = current.chunk(slot).stocks[slot & CHUNK_MASK];
+        return stock != NULL_INT && stock >= requestedQuantity;
+    }
+
+    public List<ProductDTO> findAll() {
+        return snapshot.all();
+    }
+
+    public List<ProductDTO> findPage(int page, int size) {
+        Snapshot current = snapshot;
+        long skip = (long) page * size;
+        if (skip >= current.live) {
+            return List.of();
+        }
+        List<ProductDTO> result = new ArrayList<>((int) Math.min(size, current.live - skip));
+        for (int slot = 0; slot < current.slots && result.size() < size; slot++) {
+            if (current.isLive(slot) && skip-- <= 0) {
+                result.add(current.toDTO(slot));
+            }
+        }
+        return result;
+    }
+
+    public long count() {
+        return snapshot.live;
+    }
+
+    // Same semantics as the LIKE %keyword% query: case-sensitive substring of name or description
+    public List<ProductDTO> search(String keyword) {
+        return snapshot.filter((chunk, i) -> contains(chunk.names[i], keyword) || contains(chunk.descriptions[i], keyword));
+    }
+
+    public List<ProductDTO> findByPriceBetween(double minPrice, double maxPrice) {
+        // NaN (null price) fails both comparisons
+        return snapshot.filter((chunk, i) -> chunk.prices[i] >= minPrice && chunk.prices[i] <= maxPrice);
+    }
+
+    public List<ProductDTO> findByCategory(String categoryName) {
+        String category = categoryNames.get(categoryName);
+        if (category == null) {
+            return List.of();
+        }
+        return snapshot.filter((chunk, i) -> {
+            for (String name : chunk.categories[i]) {
+                if (name == category) {
+                    return true;
+                }
+            }
+            return false;
+        });
+    }
+
+    public List<ProductDTO> findByStockGreaterThan(int stock) {
+        return snapshot.filter((chunk, i) -> chunk.stocks[i] != NULL_INT && chunk.stocks[i] > stock);
+    }
+
+    public List<ProductDTO> findByStockLessThan(int stock) {
+        return snapshot.filter((chunk, i) -> chunk.stocks[i] != NULL_INT && chunk.stocks[i] < stock);
+    }
+
+    public List<ProductDTO> findTopByStock(int limit) {
+        Snapshot current = snapshot;
+        // Min-heap of slots by stock, bounded to limit
+        Comparator<Integer> byStock = Comparator.comparingInt(slot -> current.chunk(slot).stocks[slot & CHUNK_MASK]);
+        PriorityQueue<Integer> top = new PriorityQueue<>(limit + 1, byStock);
+        for (int slot = 0; slot < current.slots; slot++) {
+            if (current.isLive(slot) && current.chunk(slot).stocks[slot & CHUNK_MASK] != NULL_INT) {
+                top.add(slot);
+                if (top.size() > limit) {
+                    top.poll();
+                }
+            }
+        }
+        List<Integer> slots = new ArrayList<>(top);
+        slots.sort(byStock.reversed());
+        return slots.stream().map(current::toDTO).toList();
+    }
+
+    private synchronized void apply(Runnable delta) {
+        if (loading) {
+            pendingDeltas.add(delta);
+        }
+        if (snapshot != null) {
+            delta.run();
+        }
+    }
+
+    // Entity version in the high bits, sales count in the low bits: the sales count is written by
+    // SalesCountAggregator's batched flush without touching the optimistic-lock version, and must
+    // still change the product's ETag and the catalog fingerprints
+    public static long eTagVersion(Long version, Integer salesCount) {
+        return ((version != null ? version : 0) << 32) | ((salesCount != null ? salesCount : 0) & 0xFFFFFFFFL);
+    }
+
+    // SplitMix64 finalizer over (id, version); summed per product so removal is a subtraction
+    private static long contribution(String id, long version) {
+        long z = ((long) id.hashCode() << 32) ^ (version * 0x9E3779B97F4A7C15L);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static Map<String, Long> adjust(Map<String, Long> fingerprints, String[] removed, long removedContribution,
+                                            String[] added, long addedContribution) {
+        Map<String, Long> adjusted = new HashMap<>(fingerprints);
+        if (removed != null) {
+            for (String category : removed) {
+                adjusted.merge(category, -removedContribution, Long::sum);
+            }
+        }
+        if (added != null) {
+            for (String category : added) {
+                adjusted.merge(category, addedContribution, Long::sum);
+            }
+        }
+        return adjusted;
+    }
+
+    private String canonical(String categoryName) {
+        return categoryName == null ? null : categoryNames.computeIfAbsent(categoryName, name -> name);
+    }
+
+    private static boolean contains(String value, String keyword) {
+        return value != null && value.contains(keyword);
+    }
+
+    @FunctionalInterface
+    private interface SlotFilter {
+        boolean test(Chunk chunk, int index);
+    }
+
+    /**
+     * One block of CHUNK_SIZE product slots stored column-wise. Never modified once it is part
+     * of a published snapshot; writers work on a copy.
+     */
+    private static final class Chunk {
+        private final String[] ids = new String[CHUNK_SIZE];
+        private final String[] names = new String[CHUNK_SIZE];
+        private final String[] descriptions = new String[CHUNK_SIZE];
+        private final double[] prices = new double[CHUNK_SIZE];
+        private final int[] stocks = new int[CHUNK_SIZE];
+        private final int[] salesCounts = new int[CHUNK_SIZE];
+        private final long[] versions = new long[CHUNK_SIZE];
+        private final String[][] categories = new String[CHUNK_SIZE][];
+
+        Chunk copy() {
+            Chunk copy = new Chunk();
+            System.arraycopy(ids, 0, copy.ids, 0, CHUNK_SIZE);
+            System.arraycopy(names, 0, copy.names, 0, CHUNK_SIZE);
+            System.arraycopy(descriptions, 0, copy.descriptions, 0, CHUNK_SIZE);
+            System.arraycopy(prices, 0, copy.prices, 0, CHUNK_SIZE);
+            System.arraycopy(stocks, 0, copy.stocks, 0, CHUNK_SIZE);
+            System.arraycopy(salesCounts, 0, copy.salesCounts, 0, CHUNK_SIZE);
+            System.arraycopy(versions, 0, copy.versions, 0, CHUNK_SIZE);
+            System.arraycopy(categories, 0, copy.categories, 0, CHUNK_SIZE);
+            return copy;
+        }
+
+        void set(int index, ProductDTO product, long version, String[] productCategories) {
+            ids[index] = product.getId();
+            names[index] = product.getName();
+            descriptions[index] = product.getDescription();
+            prices[index] = product.getPrice() != null ? product.getPrice() : Double.NaN;
+            stocks[index] = product.getStock() != null ? product.getStock() : NULL_INT;
+            salesCounts[index] = product.getSalesCount() != null ? product.getSalesCount() : NULL_INT;
+            versions[index] = version;
+            if (productCategories != null) {
+                categories[index] = productCategories;
+            } else if (categories[index] == null) {
+                categories[index] = NO_CATEGORIES;
+            }
+        }
+
+        void clear(int index) {
+            ids[index] = null;
+            names[index] = null;
+            descriptions[index] = null;
+            categories[index] = null;
+        }
+    }
+
+    /**
+     * A published catalog version. Slots are assigned once per product and never reused until the
+     * next load; the id and name maps are shared by every version of one load, so a lookup always
+     * re-checks the slot against the snapshot it reads.
+     */
+    private static final class Snapshot {
+        private final Chunk[] chunks;
+        private final int slots;
+        private final int live;
+        private final Map<String, Integer> slotById;
+        private final Map<String, Integer> slotByName;
+        private final long fingerprint;
+        private final Map<String, Long> categoryFingerprints;
+        // Materialized on first findAll() of this version
+        private volatile List<ProductDTO> all;
+
+        Snapshot(Chunk[] chunks, int slots, int live, Map<String, Integer> slotById, Map<String, Integer> slotByName,
+                 long fingerprint, Map<String, Long> categoryFingerprints) {
+            this.chunks = chunks;
+            this.slots = slots;
+            this.live = live;
+            this.slotById = slotById;
+            this.slotByName = slotByName;
+            this.fingerprint = fingerprint;
+            this.categoryFingerprints = categoryFingerprints;
+        }
+
+        Chunk chunk(int slot) {
+            return chunks[slot >>> CHUNK_BITS];
+        }
+
+        String id(int slot) {
+            return chunk(slot).ids[slot & CHUNK_MASK];
+        }
+
+        boolean isLive(int slot) {
+            return slot < slots && id(slot) != null;
+        }
+
+        ProductDTO toDTO(int slot) {
+            Chunk chunk = chunk(slot);
+            int i = slot & CHUNK_MASK;
+            return new ProductDTO(chunk.ids[i], chunk.names[i], chunk.descriptions[i],
+                    Double.isNaN(chunk.prices[i]) ? null : chunk.prices[i],
+                    chunk.stocks[i] == NULL_INT ? null : chunk.stocks[i],
+                    chunk.salesCounts[i] == NULL_INT ? null : chunk.salesCounts[i]);
+        }
+
+        List<ProductDTO> filter(SlotFilter filter) {
+            List<ProductDTO> result = new ArrayList<>();
+            for (int c = 0; c * CHUNK_SIZE < slots; c++) {
+                Chunk chunk = chunks[c];
+                int end = Math.min(CHUNK_SIZE, slots - c * CHUNK_SIZE);
+                for (int i = 0; i < end; i++) {
+                    if (chunk.ids[i] != null && filter.test(chunk, i)) {
+                        result.add(toDTO((c << CHUNK_BITS) | i));
+                    }
+                }
+            }
+            return result;
+        }
+
+        List<ProductDTO> all() {
+            List<ProductDTO> products = all;
+            if (products == null) {
+                products = List.copyOf(filter((chunk, i) -> true));
+                all = products;
+            }
+            return products;
+        }
+
+        // Copy-on-write upsert: copies the chunk pointers and the touched chunk only
+        Snapshot with(ProductDTO product, long version, String[] categories) {
+            Integer existing = slotById.get(product.getId());
+            boolean added = existing == null || !isLive(existing);
+            int slot = existing != null ? existing : slots;
+            int newSlots = Math.max(slots, slot + 1);
+
+            Chunk[] newChunks = chunks.length > slot >>> CHUNK_BITS
+                    ? chunks.clone()
+                    : Arrays.copyOf(chunks, Math.max(chunks.length * 2, (slot >>> CHUNK_BITS) + 1));
+            Chunk target = newChunks[slot >>> CHUNK_BITS];
+            target = target != null ? target.copy() : new Chunk();
+            int index = slot & CHUNK_MASK;
+            String previousName = target.names[index];
+            String[] previousCategories = added ? null : target.categories[index];
+            long previousContribution = added ? 0 : contribution(product.getId(), target.versions[index]);
+            target.set(index, product, version, categories);
+            newChunks[slot >>> CHUNK_BITS] = target;
+
+            long newContribution = contribution(product.getId(), version);
+            Snapshot next = new Snapshot(newChunks, newSlots, added ? live + 1 : live, slotById, slotByName,
+                    fingerprint - previousContribution + newContribution,
+                    adjust(categoryFingerprints, previousCategories, previousContribution, target.categories[index], newContribution));
+            // Maps are updated after the new version is built; lookups re-check the slot
+            slotById.put(product.getId(), slot);
+            if (previousName != null && !previousName.equals(product.getName())) {
+                slotByName.remove(previousName, slot);
+            }
+            if (product.getName() != null) {
+                slotByName.put(product.getName(), slot);
+            }
+            return next;
+        }
+
+        Snapshot without(String productId) {
+            Integer slot = slotById.get(productId);
+            if (slot == null || !isLive(slot)) {
+                return this;
+            }
+            Chunk[] newChunks = chunks.clone();
+            Chunk target = newChunks[slot >>> CHUNK_BITS].copy();
+            int index = slot & CHUNK_MASK;
+            String name = target.names[index];
+            String[] categories = target.categories[index];
+            long removedContribution = contribution(productId, target.versions[index]);
+            target.clear(index);
+            newChunks[slot >>> CHUNK_BITS] = target;
+            Snapshot next = new Snapshot(newChunks, slots, live - 1, slotById, slotByName,
+                    fingerprint - removedContribution,
+                    adjust(categoryFingerprints, categories, removedContribution, null, 0));
+            slotById.remove(productId, slot);
+            if (name != null) {
+                slotByName.remove(name, slot);
+            }
+            return next;
+        }
+    }
+
+    // Fills chunks in place while loading, before anything is published
+    private static final class Builder {
+        private final List<Chunk> chunks = new ArrayList<>();
+        private final Map<String, Integer> slotById = new ConcurrentHashMap<>();
+        private final Map<String, Integer> slotByName = new ConcurrentHashMap<>();
+        private final Map<String, Long> categoryFingerprints = new HashMap<>();
+        private int slots;
+        private long fingerprint;
+
+        void append(ProductDTO product, long version, String[] categories) {
+            if ((slots & CHUNK_MASK) == 0) {
+                chunks.add(new Chunk());
+            }
+            chunks.get(chunks.size() - 1).set(slots & CHUNK_MASK, product, version, categories);
+            long contribution = contribution(product.getId(), version);
+            fingerprint += contribution;
+            for (String category : categories) {
+                categoryFingerprints.merge(category, contribution, Long::sum);
+            }
+            slotById.put(product.getId(), slots);
+            if (product.getName() != null) {
+                slotByName.put(product.getName(), slots);
+            }
+            slots++;
+        }
+
+        Snapshot build() {
+            return new Snapshot(chunks.toArray(new Chunk[0]), slots, slots, slotById, slotByName,
+                    fingerprint, categoryFingerprints);
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package com.wassimlagnaoui.Ecommerce.Service;
+
+import com.wassimlagnaoui.Ecommerce.Domain.Category;
+import com.wassimlagnaoui.Ecommerce.Domain.Product;
+import com.wassimlagnaoui.Ecommerce.Repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Bitmap index of product facets: one bit per product (dense ordinal) in a bitmap per category,
+ * per price bucket and for in-stock. Filters are evaluated as AND/OR/NOT over the bitmaps and
+ * facet counts are cardinalities of intersections with the result. Loaded at startup and kept
+ * current after commit from the product write paths.
+ */
+@Service
+public class ProductFacetIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductFacetIndex.class);
+
+    public static final String CATEGORY_FACET = "category";
+    public static final String PRICE_FACET = "price";
+    public static final String STOCK_FACET = "stock";
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    // Upper bounds of the price buckets; the last bucket is open-ended
+    @Value("${app.catalog.facets.price-buckets:10,25,50,100,250,500}")
+    private double[] priceBounds;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, Integer> ordinals = new HashMap<>();
+    private final List<String> productIds = new ArrayList<>();
+    private final BitSet live = new BitSet();
+    private final BitSet inStock = new BitSet();
+    private final Map<String, BitSet> byCategory = new TreeMap<>();
+    private final Map<String, BitSet> byPriceBucket = new LinkedHashMap<>();
+    // Current facet values per ordinal, to clear the old bits on update
+    private final Map<Integer, Set<String>> categoriesByOrdinal = new HashMap<>();
+    private final Map<Integer, String> priceBucketByOrdinal = new HashMap<>();
+
+    public record BrowseResult(int total, List<String> productIds, Map<String, Map<String, Integer>> facets) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long start = System.currentTimeMillis();
+        List<Object[]> products = productRepository.findProductFacetRows();
+        Map<String, Set<String>> categories = new HashMap<>();
+        for (Object[] row : productRepository.findProductCategoryNames()) {
+            categories.computeIfAbsent((String) row[0], id -> new HashSet<>()).add((String) row[1]);
+        }
+
+        lock.writeLock().lock();
+        try {
+            ordinals.clear();
+            productIds.clear();
+            live.clear();
+            inStock.clear();
+            byCategory.clear();
+            byPriceBucket.clear();
+            categoriesByOrdinal.clear();
+            priceBucketByOrdinal.clear();
+            for (String bucket : bucketLabels()) {
+                byPriceBucket.put(bucket, new BitSet());
+            }
+            for (Object[] row : products) {
+                String id = (String) row[0];
+                apply(id, (Double) row[1], (Integer) row[2], categories.getOrDefault(id, Set.of()));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Product facet index loaded {} products in {} ms", products.size(), System.currentTimeMillis() - start);
+    }
+
+    // Called with the product as saved; categories are only read (and replaced) when they changed
+    public void recordProduct(Product product, boolean categoriesChanged) {
+        if (product == null || product.getId() == null) {
+            return;
+        }
+        Set<String> categories = null;
+        if (categoriesChanged && product.getCategories() != null) {
+            categories = new HashSet<>();
+            for (Category category : product.getCategories()) {
+                categories.add(category.getName());
+            }
+        }
+        String id = product.getId();
+        Double price = product.getPrice();
+        Integer stock = product.getStock();
+        Set<String> categoryNames = categories;
+        AfterCommit.run(() -> {
+            lock.writeLock().lock();
+            try {
+                apply(id, price, stock, categoryNames);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    public void removeProduct(String productId) {
+        AfterCommit.run(() -> {
+            lock.writeLock().lock();
+            try {
+                Integer ordinal = ordinals.get(productId);
+                if (ordinal != null) {
+                    live.clear(ordinal);
+                    inStock.clear(ordinal);
+                    setCategories(ordinal, Set.of());
+                    setPriceBucket(ordinal, null);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Products in any (or, with matchAll, every) of the given categories, in none of the excluded
+     * ones, in any of the given price buckets, optionally filtered on stock. Empty filters match all.
+     * Returns the total, the ids of the requested page (in index order) and facet counts over the result.
+     */
+    public BrowseResult browse(Collection<String> categories, boolean matchAll, Collection<String> excludedCategories,
+                               Collection<String> priceBuckets, Boolean onlyInStock, int page, int size) {
+        lock.readLock().lock();
+        try {
+            BitSet result = (BitSet) live.clone();
+
+            if (categories != null && !categories.isEmpty()) {
+                BitSet categoryMatch = null;
+                for (String category : categories) {
+                    BitSet bits = byCategory.getOrDefault(category, new BitSet());
+                    if (categoryMatch == null) {
+                        categoryMatch = (BitSet) bits.clone();
+                    } else if (matchAll) {
+                        categoryMatch.and(bits);
+                    } else {
+                        categoryMatch.or(bits);
+                    }
+                }
+                result.and(categoryMatch);
+            }
+            if (excludedCategories != null) {
+                for (String category : excludedCategories) {
+                    BitSet bits = byCategory.get(category);
+                    if (bits != null) {
+                        result.andNot(bits);
+                    }
+                }
+            }
+            if (priceBuckets != null && !priceBuckets.isEmpty()) {
+                BitSet priceMatch = new BitSet();
+                for (String bucket : priceBuckets) {
+                    BitSet bits = byPriceBucket.get(bucket);
+                    if (bits != null) {
+                        priceMatch.or(bits);
+                    }
+                }
+                result.and(priceMatch);
+            }
+            if (onlyInStock != null) {
+                if (onlyInStock) {
+                    result.and(inStock);
+                } else {
+                    result.andNot(inStock);
+                }
+            }
+
+            int total = result.cardinality();
+            // page * size can overflow an int; past the last match the page is just empty
+            int skip = (int) Math.min((long) page * size, total);
+            List<String> pageIds = new ArrayList<>(Math.min(size, total - skip));
+            for (int ordinal = result.nextSetBit(0); ordinal >= 0 && pageIds.size() < size; ordinal = result.nextSetBit(ordinal + 1)) {
+                if (skip > 0) {
+                    skip--;
+                } else {
+                    pageIds.add(productIds.get(ordinal));
+                }
+            }
+
+            Map<String, Map<String, Integer>> facets = new LinkedHashMap<>();
+            facets.put(CATEGORY_FACET, counts(byCategory, result));
+            facets.put(PRICE_FACET, counts(byPriceBucket, result));
+            Map<String, Integer> stockCounts = new LinkedHashMap<>();
+            int inStockCount = intersectionSize(result, inStock);
+            stockCounts.put("inStock", inStockCount);
+            stockCounts.put("outOfStock", total - inStockCount);
+            facets.put(STOCK_FACET, stockCounts);
+
+            return new BrowseResult(total, pageIds, facets);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<String> getPriceBuckets() {
+        return bucketLabels();
+    }
+
+    // Caller holds the write lock; null categories keep the current memberships
+    private void apply(String id, Double price, Integer stock, Set<String> categories) {
+        Integer ordinal = ordinals.get(id);
+        if (ordinal == null) {
+            ordinal = productIds.size();
+            productIds.add(id);
+            ordinals.put(id, ordinal);
+        }
+        live.set(ordinal);
+        inStock.set(ordinal, stock != null && stock > 0);
+        setPriceBucket(ordinal, price != null ? bucketOf(price) : null);
+        if (categories != null) {
+            setCategories(ordinal, categories);
+        }
+    }
+
+    private void setCategories(int ordinal, Set<String> categories) {
+        Set<String> previous = categoriesByOrdinal.getOrDefault(ordinal, Set.of());
+        for (String category : previous) {
+            if (!categories.contains(category)) {
+                byCategory.get(category).clear(ordinal);
+            }
+        }
+        for (String category : categories) {
+            byCategory.computeIfAbsent(category, name -> new BitSet()).set(ordinal);
+        }
+        categoriesByOrdinal.put(ordinal, Set.copyOf(categories));
+    }
+
+    private void setPriceBucket(int ordinal, String bucket) {
+        String previous = priceBucketByOrdinal.get(ordinal);
+        if (previous != null) {
+            byPriceBucket.get(previous).clear(ordinal);
+        }
+        if (bucket != null) {
+            byPriceBucket.get(bucket).set(ordinal);
+            priceBucketByOrdinal.put(ordinal, bucket);
+        } else {
+            priceBucketByOrdinal.remove(ordinal);
+        }
+    }
+
+    private String bucketOf(double price) {
+        List<String> labels = bucketLabels();
+        for (int i = 0; i < priceBounds.length; i++) {
+            if (price < priceBounds[i]) {
+                return labels.get(i);
+            }
+        }
+        return labels.get(priceBounds.length);
+    }
+
+    private List<String> bucketLabels() {
+        List<String> labels = new ArrayList<>(priceBounds.length + 1);
+        double lower = 0;
+        for (double bound : priceBounds) {
+            labels.add(format(lower) + "-" + format(bound));
+            lower = bound;
+        }
+        labels.add(format(lower) + "+");
+        return labels;
+    }
+
+    private static String format(double value) {
+        return value == Math.rint(value) ? String.valueOf((long) value) : String.valueOf(value);
+    }
+
+    private static Map<String, Integer> counts(Map<String, BitSet> bitmaps, BitSet result) {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        bitmaps.forEach((value, bits) -> {
+            int count = intersectionSize(result, bits);
+            if (count > 0) {
+                counts.put(value, count);
+            }
+        });
+        return counts;
+    }
+
+    private static int intersectionSize(BitSet a, BitSet b) {
+        BitSet intersection = (BitSet) a.clone();
+        intersection.and(b);
+        return intersection.cardinality();
+    }
+}
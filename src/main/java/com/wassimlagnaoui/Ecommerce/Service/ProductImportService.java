@@ -0,0 +1,567 @@
+package com.wassimlagnaoui.Ecommerce.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.wassimlagnaoui.Ecommerce.DTO.ProductImportError;
+import com.wassimlagnaoui.Ecommerce.DTO.ProductImportResult;
+import com.wassimlagnaoui.Ecommerce.DTO.ProductImportRow;
+import com.wassimlagnaoui.Ecommerce.Domain.Category;
+import com.wassimlagnaoui.Ecommerce.Domain.Product;
+import com.wassimlagnaoui.Ecommerce.Repository.CategoryRepository;
+import com.wassimlagnaoui.Ecommerce.Repository.ProductRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Streaming catalog import for ERP feeds (CSV or NDJSON).
+ * Rows are read in bounded chunks, parsed and validated in parallel, then upserted by name
+ * with one lookup query and one batched save per chunk; a chunk that rolls back is saved again
+ * row by row so only the failing rows are rejected. Every row read ends up inserted, updated or
+ * failed. Product caches are flushed once at the end.
+ */
+@Service
+public class ProductImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductImportService.class);
+
+    private static final int MAX_REPORTED_ERRORS = 1000;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductFacetIndex productFacetIndex;
+
+    @Autowired
+    private ProductCatalogStore productCatalogStore;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    @Qualifier("productCacheManager")
+    private CacheManager productCacheManager;
+
+    @Value("${app.import.chunk-size:1000}")
+    private int chunkSize;
+
+    // Imports are serialized: one job at a time keeps DB pressure predictable
+    private final ExecutorService importExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "product-import");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final com.github.benmanes.caffeine.cache.Cache<String, ImportJob> jobs = Caffeine.newBuilder()
+            .maximumSize(100)
+            .expireAfterWrite(24, TimeUnit.HOURS)
+            .build();
+
+    // Asynchronous import of an uploaded file - progress is available through getImportStatus
+    public ProductImportResult startImport(MultipartFile file, String format, boolean createMissingCategories) throws IOException {
+        ImportFormat importFormat = ImportFormat.resolve(format, file.getOriginalFilename());
+        Path tempFile = Files.createTempFile("product-import-", importFormat.extension);
+        file.transferTo(tempFile);
+
+        ImportJob job = new ImportJob(importFormat);
+        jobs.put(job.id, job);
+        importExecutor.submit(() -> {
+            try (BufferedReader reader = Files.newBufferedReader(tempFile, StandardCharsets.UTF_8)) {
+                runImport(job, reader, createMissingCategories);
+            } catch (IOException e) {
+                job.fail("Could not read import file: " + e.getMessage());
+            } finally {
+                try {
+                    Files.deleteIfExists(tempFile);
+                } catch (IOException e) {
+                    logger.warn("Could not delete import file {}", tempFile, e);
+                }
+            }
+        });
+        return job.toResult();
+    }
+
+    // Synchronous import from any stream (used for small feeds and scripted loads)
+    public ProductImportResult importProducts(InputStream inputStream, String format, boolean createMissingCategories) throws IOException {
+        ImportJob job = new ImportJob(ImportFormat.resolve(format, null));
+        jobs.put(job.id, job);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+            runImport(job, reader, createMissingCategories);
+        }
+        return job.toResult();
+    }
+
+    public Optional<ProductImportResult> getImportStatus(String jobId) {
+        return Optional.ofNullable(jobs.getIfPresent(jobId)).map(ImportJob::toResult);
+    }
+
+    private void runImport(ImportJob job, BufferedReader reader, boolean createMissingCategories) {
+        job.status = "RUNNING";
+        try {
+            long lineNumber = 0;
+            Function<String, ProductImportRow> parser;
+            if (job.format == ImportFormat.CSV) {
+                String header = reader.readLine();
+                lineNumber++;
+                if (header == null) {
+                    job.complete();
+                    return;
+                }
+                parser = new CsvRowParser(header);
+            } else {
+                parser = line -> readJsonRow(line);
+            }
+
+            List<RawLine> chunk = new ArrayList<>(chunkSize);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                chunk.add(new RawLine(lineNumber, line));
+                if (chunk.size() >= chunkSize) {
+                    processChunk(job, chunk, parser, createMissingCategories);
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                processChunk(job, chunk, parser, createMissingCategories);
+            }
+            job.complete();
+        } catch (Exception e) {
+            logger.error("Product import {} failed", job.id, e);
+            job.fail(e.getMessage());
+        } finally {
+            // Single cache refresh for the whole import instead of one flush per product
+            evictProductCaches();
+        }
+        logger.info("Product import {} {}: {} rows read, {} inserted, {} updated, {} failed",
+                job.id, job.status, job.rowsRead.get(), job.inserted.get(), job.updated.get(), job.failed.get());
+    }
+
+    private void processChunk(ImportJob job, List<RawLine> chunk, Function<String, ProductImportRow> parser,
+                              boolean createMissingCategories) {
+        // Parsing and field validation are CPU-bound and independent per row
+        List<ParsedRow> parsedRows = chunk.parallelStream()
+                .map(raw -> parseAndValidate(raw, parser))
+                .toList();
+        job.rowsRead.addAndGet(chunk.size());
+
+        // Later rows win when the same name appears twice in a chunk
+        Map<String, ParsedRow> rowsByName = new LinkedHashMap<>();
+        for (ParsedRow row : parsedRows) {
+            if (row.error != null) {
+                job.reject(row.rowNumber, row.data != null ? row.data.getName() : null, row.error);
+                continue;
+            }
+            ParsedRow superseded = rowsByName.put(row.data.getName(), row);
+            if (superseded != null) {
+                job.reject(superseded.rowNumber, row.data.getName(), "Superseded by row " + row.rowNumber + " with the same name");
+            }
+        }
+        if (rowsByName.isEmpty()) {
+            return;
+        }
+
+        // Outcomes are only counted once their transaction has committed, so no row is counted twice
+        ChunkOutcome outcome;
+        try {
+            outcome = upsert(rowsByName.values(), createMissingCategories);
+        } catch (RuntimeException e) {
+            logger.warn("Product import {}: chunk ending at row {} rolled back, saving its rows one by one", job.id,
+                    chunk.get(chunk.size() - 1).rowNumber, e);
+            outcome = new ChunkOutcome();
+            for (ParsedRow row : rowsByName.values()) {
+                try {
+                    outcome.add(upsert(List.of(row), createMissingCategories));
+                } catch (RuntimeException rowFailure) {
+                    outcome.rejected.add(new ProductImportError(row.rowNumber, row.data.getName(),
+                            "Row rolled back: " + rowFailure.getMessage()));
+                }
+            }
+        }
+        job.record(outcome);
+        logger.debug("Product import {}: {} rows read, {} inserted, {} updated, {} failed",
+                job.id, job.rowsRead.get(), job.inserted.get(), job.updated.get(), job.failed.get());
+    }
+
+    private ChunkOutcome upsert(Collection<ParsedRow> rows, boolean createMissingCategories) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        return transactionTemplate.execute(status -> upsertChunk(rows, createMissingCategories));
+    }
+
+    // Runs inside one transaction per chunk: one product lookup, one category lookup, one batched save
+    private ChunkOutcome upsertChunk(Collection<ParsedRow> rows, boolean createMissingCategories) {
+        Set<String> names = rows.stream().map(row -> row.data.getName()).collect(Collectors.toSet());
+        Map<String, Product> existingProducts = productRepository.findByNameInWithCategories(names).stream()
+                .collect(Collectors.toMap(Product::getName, product -> product, (first, second) -> first));
+
+        Set<String> categoryNames = rows.stream()
+                .filter(row -> row.data.getCategories() != null)
+                .flatMap(row -> row.data.getCategories().stream())
+                .collect(Collectors.toSet());
+        Map<String, Category> categories = resolveCategories(categoryNames, createMissingCategories);
+
+        List<Product> productsToSave = new ArrayList<>(rows.size());
+        ChunkOutcome outcome = new ChunkOutcome();
+        for (ParsedRow row : rows) {
+            ProductImportRow data = row.data;
+            List<String> rowCategories = data.getCategories() != null ? data.getCategories() : List.of();
+            List<String> unknownCategories = rowCategories.stream()
+                    .filter(name -> !categories.containsKey(name))
+                    .toList();
+            if (!unknownCategories.isEmpty()) {
+                outcome.rejected.add(new ProductImportError(row.rowNumber, data.getName(), "Unknown categories: " + unknownCategories));
+                continue;
+            }
+
+            Product product = existingProducts.get(data.getName());
+            if (product == null) {
+                product = new Product();
+                product.setName(data.getName());
+                product.setSalesCount(0);
+                outcome.inserted++;
+            } else {
+                outcome.updated++;
+            }
+            product.setDescription(data.getDescription());
+            product.setPrice(data.getPrice());
+            product.setStock(data.getStock());
+            if (!rowCategories.isEmpty()) {
+                if (product.getCategories() == null) {
+                    product.setCategories(new HashSet<>());
+                }
+                for (String categoryName : rowCategories) {
+                    product.getCategories().add(categories.get(categoryName));
+                }
+            }
+            productsToSave.add(product);
+        }
+
+        for (Product savedProduct : productRepository.saveAll(productsToSave)) {
+            productFacetIndex.recordProduct(savedProduct, true);
+            productCatalogStore.recordProduct(savedProduct, true);
+        }
+        return outcome;
+    }
+
+    private Map<String, Category> resolveCategories(Set<String> names, boolean createMissing) {
+        if (names.isEmpty()) {
+            return Map.of();
+        }
+        Map<String, Category> categories = new HashMap<>();
+        for (Category category : categoryRepository.findByNameIn(names)) {
+            categories.put(category.getName(), category);
+        }
+        if (createMissing && categories.size() < names.size()) {
+            List<Category> missing = names.stream()
+                    .filter(name -> !categories.containsKey(name))
+                    .map(name -> {
+                        Category category = new Category();
+                        category.setName(name);
+                        return category;
+                    })
+                    .toList();
+            for (Category category : categoryRepository.saveAll(missing)) {
+                categories.put(category.getName(), category);
+            }
+        }
+        return categories;
+    }
+
+    private ParsedRow parseAndValidate(RawLine raw, Function<String, ProductImportRow> parser) {
+        ProductImportRow row;
+        try {
+            row = parser.apply(raw.line);
+        } catch (RuntimeException e) {
+            return new ParsedRow(raw.rowNumber, null, "Unparseable row: " + e.getMessage());
+        }
+        // Same rules as ProductService.validateProduct, minus the per-row name lookup
+        if (row.getName() == null || row.getName().trim().isEmpty()) {
+            return new ParsedRow(raw.rowNumber, row, "Product name is required");
+        }
+        row.setName(row.getName().trim());
+        if (row.getDescription() == null || row.getDescription().trim().isEmpty()) {
+            return new ParsedRow(raw.rowNumber, row, "Product description is required");
+        }
+        if (row.getPrice() == null || row.getPrice() <= 0) {
+            return new ParsedRow(raw.rowNumber, row, "Product price must be positive");
+        }
+        if (row.getStock() == null || row.getStock() < 0) {
+            return new ParsedRow(raw.rowNumber, row, "Product stock must be zero or positive");
+        }
+        return new ParsedRow(raw.rowNumber, row, null);
+    }
+
+    private ProductImportRow readJsonRow(String line) {
+        try {
+            return objectMapper.readValue(line, ProductImportRow.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException(e.getOriginalMessage(), e);
+        }
+    }
+
+    private void evictProductCaches() {
+        Cache cache = productCacheManager.getCache("product");
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        importExecutor.shutdownNow();
+    }
+
+    private enum ImportFormat {
+        CSV(".csv"),
+        NDJSON(".ndjson");
+
+        private final String extension;
+
+        ImportFormat(String extension) {
+            this.extension = extension;
+        }
+
+        static ImportFormat resolve(String format, String fileName) {
+            String value = format;
+            if ((value == null || value.isBlank()) && fileName != null && fileName.contains(".")) {
+                value = fileName.substring(fileName.lastIndexOf('.') + 1);
+            }
+            if (value == null || value.isBlank()) {
+                throw new IllegalArgumentException("Import format is required (csv or ndjson)");
+            }
+            return switch (value.trim().toLowerCase(Locale.ROOT)) {
+                case "csv" -> CSV;
+                case "ndjson", "jsonl", "json" -> NDJSON;
+                default -> throw new IllegalArgumentException("Unsupported import format: " + value);
+            };
+        }
+    }
+
+    // CSV with a header row: name,description,price,stock,categories (categories separated by '|')
+    private static class CsvRowParser implements Function<String, ProductImportRow> {
+
+        private final int nameIndex;
+        private final int descriptionIndex;
+        private final int priceIndex;
+        private final int stockIndex;
+        private final int categoriesIndex;
+
+        CsvRowParser(String header) {
+            List<String> columns = splitCsvLine(header).stream()
+                    .map(column -> column.trim().toLowerCase(Locale.ROOT))
+                    .toList();
+            this.nameIndex = columns.indexOf("name");
+            this.descriptionIndex = columns.indexOf("description");
+            this.priceIndex = columns.indexOf("price");
+            this.stockIndex = columns.indexOf("stock");
+            this.categoriesIndex = columns.indexOf("categories");
+            if (nameIndex < 0) {
+                throw new IllegalArgumentException("CSV header must contain a 'name' column");
+            }
+        }
+
+        @Override
+        public ProductImportRow apply(String line) {
+            List<String> fields = splitCsvLine(line);
+            ProductImportRow row = new ProductImportRow();
+            row.setName(field(fields, nameIndex));
+            row.setDescription(field(fields, descriptionIndex));
+            String price = field(fields, priceIndex);
+            if (price != null && !price.isBlank()) {
+                try {
+                    row.setPrice(Double.parseDouble(price.trim()));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Invalid price: " + price);
+                }
+            }
+            String stock = field(fields, stockIndex);
+            if (stock != null && !stock.isBlank()) {
+                try {
+                    row.setStock(Integer.parseInt(stock.trim()));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Invalid stock: " + stock);
+                }
+            }
+            String categories = field(fields, categoriesIndex);
+            if (categories != null && !categories.isBlank()) {
+                row.setCategories(Arrays.stream(categories.split("\\|"))
+                        .map(String::trim)
+                        .filter(name -> !name.isEmpty())
+                        .toList());
+            }
+            return row;
+        }
+
+        private static String field(List<String> fields, int index) {
+            return index >= 0 && index < fields.size() ? fields.get(index) : null;
+        }
+
+        // Minimal RFC 4180 field splitting (quoted fields, doubled quotes); records must fit on one line
+        private static List<String> splitCsvLine(String line) {
+            List<String> fields = new ArrayList<>();
+            StringBuilder current = new StringBuilder();
+            boolean quoted = false;
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (quoted) {
+                    if (c == '"') {
+                        if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                            current.append('"');
+                            i++;
+                        } else {
+                            quoted = false;
+                        }
+                    } else {
+                        current.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(current.toString());
+                    current.setLength(0);
+                } else {
+                    current.append(c);
+                }
+            }
+            if (quoted) {
+                throw new IllegalArgumentException("Unterminated quoted field");
+            }
+            fields.add(current.toString());
+            return fields;
+        }
+    }
+
+    private static class RawLine {
+        private final long rowNumber;
+        private final String line;
+
+        RawLine(long rowNumber, String line) {
+            this.rowNumber = rowNumber;
+            this.line = line;
+        }
+    }
+
+    private static class ParsedRow {
+        private final long rowNumber;
+        private final ProductImportRow data;
+        private final String error;
+
+        ParsedRow(long rowNumber, ProductImportRow data, String error) {
+            this.rowNumber = rowNumber;
+            this.data = data;
+            this.error = error;
+        }
+    }
+
+    // What one committed transaction did with its rows
+    private static class ChunkOutcome {
+        private long inserted;
+        private long updated;
+        private final List<ProductImportError> rejected = new ArrayList<>();
+
+        void add(ChunkOutcome other) {
+            inserted += other.inserted;
+            updated += other.updated;
+            rejected.addAll(other.rejected);
+        }
+    }
+
+    private static class ImportJob {
+        private final String id = UUID.randomUUID().toString();
+        private final ImportFormat format;
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        private final AtomicLong rowsRead = new AtomicLong();
+        private final AtomicLong inserted = new AtomicLong();
+        private final AtomicLong updated = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong errorsDropped = new AtomicLong();
+        private final ConcurrentLinkedQueue<ProductImportError> errors = new ConcurrentLinkedQueue<>();
+        private volatile String status = "QUEUED";
+        private volatile LocalDateTime finishedAt;
+
+        ImportJob(ImportFormat format) {
+            this.format = format;
+        }
+
+        void reject(long rowNumber, String name, String message) {
+            // Only the first errors are kept so a bad feed cannot exhaust memory
+            if (failed.incrementAndGet() <= MAX_REPORTED_ERRORS) {
+                errors.add(new ProductImportError(rowNumber, name, message));
+            } else {
+                errorsDropped.incrementAndGet();
+            }
+        }
+
+        void record(ChunkOutcome outcome) {
+            inserted.addAndGet(outcome.inserted);
+            updated.addAndGet(outcome.updated);
+            for (ProductImportError error : outcome.rejected) {
+                reject(error.getRowNumber(), error.getName(), error.getMessage());
+            }
+        }
+
+        void complete() {
+            status = "COMPLETED";
+            finishedAt = LocalDateTime.now();
+        }
+
+        void fail(String message) {
+            status = "FAILED";
+            finishedAt = LocalDateTime.now();
+            errors.add(new ProductImportError(null, null, message));
+        }
+
+        ProductImportResult toResult() {
+            return new ProductImportResult(id, status, format.name(), rowsRead.get(), inserted.get(), updated.get(),
+                    failed.get(), errorsDropped.get(), new ArrayList<>(errors), startedAt, finishedAt);
+        }
+    }
+}
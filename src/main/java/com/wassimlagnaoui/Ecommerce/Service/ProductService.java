@@ -13,15 +13,20 @@ import com.wassimlagnaoui.Ecommerce.Repository.ReviewRepository;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.cache.annotation.Caching;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.stream.Collectors;
 
 @Service
 public class ProductService {
@@ -38,29 +43,46 @@ public class ProductService {
     @Autowired
     private DTOMapper dtoMapper;
 
+    @Autowired
+    private BestSellerTracker bestSellerTracker;
+
+    @Autowired
+    private ProductFacetIndex productFacetIndex;
+
+    @Autowired
+    private ProductCatalogStore productCatalogStore;
+
+    @Autowired
+    private SalesCountAggregator salesCountAggregator;
+
     // Basic CRUD operations - now returning DTOs
-    @Cacheable(value = "products", cacheManager = "productCacheManager")
+    // Catalog reads are served from the in-memory snapshot once it is loaded, from the database before that
+    @Transactional(readOnly = true)
     public List<ProductDTO> getAllProducts() {
-        List<Product> products = productRepository.findAll();
-        return dtoMapper.toProductDTOList(products);
+        if (productCatalogStore.isReady()) {
+            return productCatalogStore.findAll();
+        }
+        return productRepository.findAllProductDTOs();
     }
 
+    @Transactional(readOnly = true)
     public Page<ProductDTO> getAllProductsPaginated(Pageable pageable) {
-        Page<Product> products = productRepository.findAll(pageable);
-        return products.map(dtoMapper::toProductDTO);
+        if (productCatalogStore.isReady()) {
+            List<ProductDTO> content = productCatalogStore.findPage(pageable.getPageNumber(), pageable.getPageSize());
+            return new PageImpl<>(content, pageable, productCatalogStore.count());
+        }
+        return productRepository.findAllProductDTOs(pageable);
     }
 
-    @Cacheable(value = "product", key = "#id", cacheManager = "productCacheManager")
     public Optional<ProductDTO> getProductById(String id) {
+        if (productCatalogStore.isReady()) {
+            return productCatalogStore.findById(id);
+        }
         Optional<Product> product = productRepository.findById(id);
         return product.map(dtoMapper::toProductDTO);
     }
 
     // Updated to accept Request DTOs with built-in validation
-    @Caching(evict = {
-        @CacheEvict(value = "products", cacheManager = "productCacheManager"),
-        @CacheEvict(value = "product", key = "#result.id", cacheManager = "productCacheManager", condition = "#result != null")
-    })
     public ProductDTO saveProduct(ProductCreateRequest productRequest) {
         // Validation is now handled in service layer
         if (!validateProduct(productRequest)) {
@@ -68,83 +90,132 @@ public class ProductService {
         }
         Product product = dtoMapper.toProductEntity(productRequest);
         Product savedProduct = productRepository.save(product);
+        productFacetIndex.recordProduct(savedProduct, true);
+        productCatalogStore.recordProduct(savedProduct, true);
         return dtoMapper.toProductDTO(savedProduct);
     }
 
     // Keep the old method for backward compatibility
-    @Caching(evict = {
-        @CacheEvict(value = "products", cacheManager = "productCacheManager"),
-        @CacheEvict(value = "product", key = "#result.id", cacheManager = "productCacheManager", condition = "#result != null")
-    })
     public ProductDTO saveProduct(ProductDTO productDTO) {
         Product product = dtoMapper.toProductEntity(productDTO);
         Product savedProduct = productRepository.save(product);
+        productFacetIndex.recordProduct(savedProduct, true);
+        productCatalogStore.recordProduct(savedProduct, true);
         return dtoMapper.toProductDTO(savedProduct);
     }
 
     @Caching(evict = {
-        @CacheEvict(value = "products", cacheManager = "productCacheManager"),
-        @CacheEvict(value = "product", key = "#id", cacheManager = "productCacheManager")
+        @CacheEvict(value = "product", key = "'summary:' + #id", cacheManager = "productCacheManager"),
+        @CacheEvict(value = ResponseBytesCache.CACHE_NAME, key = "'id:' + #id", cacheManager = "productCacheManager")
     })
     public void deleteProduct(String id) {
         productRepository.deleteById(id);
+        bestSellerTracker.removeProduct(id);
+        productFacetIndex.removeProduct(id);
+        productCatalogStore.removeProduct(id);
+    }
+
+    // ETags for conditional GETs, from entity versions and sales counts only: no DTO is loaded or serialized.
+    // List tags need the catalog snapshot; without it the list endpoints answer unconditionally.
+    public Optional<String> getProductETag(String id) {
+        if (productCatalogStore.isReady()) {
+            OptionalLong version = productCatalogStore.getVersion(id);
+            return version.isPresent() ? Optional.of(id + "-" + version.getAsLong()) : Optional.empty();
+        }
+        return productRepository.findVersionAndSalesCountById(id).stream()
+                .findFirst()
+                .map(row -> id + "-" + ProductCatalogStore.eTagVersion((Long) row[0], (Integer) row[1]));
+    }
+
+    public Optional<String> getCatalogETag() {
+        if (productCatalogStore.isReady()) {
+            return Optional.of("catalog-" + Long.toHexString(productCatalogStore.getCatalogFingerprint()));
+        }
+        return Optional.empty();
+    }
+
+    public Optional<String> getCategoryETag(String categoryName) {
+        if (productCatalogStore.isReady()) {
+            return Optional.of("category-" + Long.toHexString(productCatalogStore.getCategoryFingerprint(categoryName)));
+        }
+        return Optional.empty();
     }
 
     // Product search and filtering - now returning DTOs
-    @Cacheable(value = "product", key = "'name:' + #name", cacheManager = "productCacheManager")
     public Optional<ProductDTO> findByName(String name) {
+        if (productCatalogStore.isReady()) {
+            return productCatalogStore.findByName(name);
+        }
         Optional<Product> product = productRepository.findByName(name);
         return product.map(dtoMapper::toProductDTO);
     }
 
-    @Cacheable(value = "products", key = "'search:' + #keyword", cacheManager = "productCacheManager")
+    @Transactional(readOnly = true)
     public List<ProductDTO> searchByKeyword(String keyword) {
-        List<Product> products = productRepository.searchByKeyword(keyword);
-        return dtoMapper.toProductDTOList(products);
+        if (productCatalogStore.isReady()) {
+            return productCatalogStore.search(keyword);
+        }
+        return productRepository.searchProductDTOsByKeyword(keyword);
     }
 
-    @Cacheable(value = "products", key = "'priceRange:' + #minPrice + '-' + #maxPrice", cacheManager = "productCacheManager")
     public List<ProductDTO> findByPriceRange(Double minPrice, Double maxPrice) {
-        List<Product> products = productRepository.findByPriceBetween(minPrice, maxPrice);
-        return dtoMapper.toProductDTOList(products);
+        if (productCatalogStore.isReady()) {
+            return productCatalogStore.findByPriceBetween(minPrice, maxPrice);
+        }
+        return productRepository.findProductDTOsByPriceBetween(minPrice, maxPrice);
     }
 
-    @Cacheable(value = "products", key = "'category:' + #categoryName", cacheManager = "productCacheManager")
     public List<ProductDTO> findByCategoryName(String categoryName) {
-        List<Product> products = productRepository.findByCategoryName(categoryName);
-        return dtoMapper.toProductDTOList(products);
+        if (productCatalogStore.isReady()) {
+            return productCatalogStore.findByCategory(categoryName);
+        }
+        return productRepository.findProductDTOsByCategoryName(categoryName);
     }
 
     // Stock management - now returning DTOs
-    @Cacheable(value = "products", key = "'inStock'", cacheManager = "productCacheManager")
     public List<ProductDTO> getProductsInStock() {
+        if (productCatalogStore.isReady()) {
+            return productCatalogStore.findByStockGreaterThan(0);
+        }
         List<Product> products = productRepository.findByStockGreaterThan(0);
         return dtoMapper.toProductDTOList(products);
     }
 
-    @Cacheable(value = "products", key = "'outOfStock'", cacheManager = "productCacheManager")
     public List<ProductDTO> getOutOfStockProducts() {
+        if (productCatalogStore.isReady()) {
+            return productCatalogStore.findByStockLessThan(1);
+        }
         List<Product> products = productRepository.findByStockLessThan(1);
         return dtoMapper.toProductDTOList(products);
     }
 
-    @Cacheable(value = "products", key = "'lowStock:' + #threshold", cacheManager = "productCacheManager")
     public List<ProductDTO> getLowStockProducts(Integer threshold) {
+        if (productCatalogStore.isReady()) {
+            return productCatalogStore.findByStockLessThan(threshold);
+        }
         List<Product> products = productRepository.findProductsWithLowStock(threshold);
         return dtoMapper.toProductDTOList(products);
     }
 
-    @Cacheable(value = "products", key = "'topStock'", cacheManager = "productCacheManager")
     public List<ProductDTO> getTopStockProducts() {
+        if (productCatalogStore.isReady()) {
+            return productCatalogStore.findTopByStock(5);
+        }
         List<Product> products = productRepository.findTop5ByOrderByStockDesc();
         return dtoMapper.toProductDTOList(products);
     }
 
-    // Sales and popularity - now returning DTOs
-    @Cacheable(value = "products", key = "'topSelling'", cacheManager = "productCacheManager")
-    public List<ProductSummaryDTO> getTopSellingProducts() {
-        List<Product> products = productRepository.findTopSellingProducts();
-        return products.stream()
+    // Sales and popularity - ranking comes from the in-memory best-seller tracker,
+    // only the top `limit` products are read from the database
+    public List<ProductSummaryDTO> getTopSellingProducts(BestSellerTracker.Window window, int limit) {
+        List<String> ids = bestSellerTracker.getTop(window, limit).stream()
+                .map(BestSellerTracker.BestSeller::productId)
+                .toList();
+        Map<String, Product> productsById = productRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Product::getId, product -> product));
+        return ids.stream()
+                .map(productsById::get)
+                .filter(Objects::nonNull)
                 .map(product -> {
                     Double avgRating = reviewRepository.findAverageRatingByProductId(product.getId());
                     Long reviewCount = reviewRepository.countReviewsByProductId(product.getId());
@@ -153,36 +224,44 @@ public class ProductService {
                 .toList();
     }
 
+    // Faceted browsing: filtering and facet counts come from the bitmap index, only the page is loaded
+    public ProductBrowseResult browseProducts(List<String> categories, boolean matchAllCategories, List<String> excludedCategories,
+                                              List<String> priceBuckets, Boolean inStock, int page, int size) {
+        ProductFacetIndex.BrowseResult result = productFacetIndex.browse(categories, matchAllCategories, excludedCategories,
+                priceBuckets, inStock, page, size);
+        Map<String, ProductDTO> productsById = productRepository.findProductDTOsByIdIn(result.productIds()).stream()
+                .collect(Collectors.toMap(ProductDTO::getId, product -> product));
+        List<ProductDTO> products = result.productIds().stream()
+                .map(productsById::get)
+                .filter(Objects::nonNull)
+                .toList();
+        return new ProductBrowseResult(result.total(), page, size, products, result.facets());
+    }
+
     // Stock operations - now returning DTOs
-    @Caching(
-        put = @CachePut(value = "product", key = "#productId", cacheManager = "productCacheManager"),
-        evict = {
-            @CacheEvict(value = "products", cacheManager = "productCacheManager"),
-            @CacheEvict(value = "products", key = "'inStock'", cacheManager = "productCacheManager"),
-            @CacheEvict(value = "products", key = "'outOfStock'", cacheManager = "productCacheManager"),
-            @CacheEvict(value = "products", key = "'topStock'", cacheManager = "productCacheManager")
-        }
-    )
+    @Caching(evict = {
+        @CacheEvict(value = "product", key = "'summary:' + #productId", cacheManager = "productCacheManager"),
+        @CacheEvict(value = ResponseBytesCache.CACHE_NAME, key = "'id:' + #productId", cacheManager = "productCacheManager")
+    })
+    @RetryOnConflict
     public ProductDTO updateStock(String productId, Integer newStock) {
         Optional<Product> productOpt = productRepository.findById(productId);
         if (productOpt.isPresent()) {
             Product product = productOpt.get();
             product.setStock(newStock);
             Product savedProduct = productRepository.save(product);
+            productFacetIndex.recordProduct(savedProduct, false);
+            productCatalogStore.recordProduct(savedProduct, false);
             return dtoMapper.toProductDTO(savedProduct);
         }
         throw new ProductNotFoundException(productId);
     }
 
-    @Caching(
-        put = @CachePut(value = "product", key = "#productId", cacheManager = "productCacheManager"),
-        evict = {
-            @CacheEvict(value = "products", cacheManager = "productCacheManager"),
-            @CacheEvict(value = "products", key = "'inStock'", cacheManager = "productCacheManager"),
-            @CacheEvict(value = "products", key = "'outOfStock'", cacheManager = "productCacheManager"),
-            @CacheEvict(value = "products", key = "'topStock'", cacheManager = "productCacheManager")
-        }
-    )
+    @Caching(evict = {
+        @CacheEvict(value = "product", key = "'summary:' + #productId", cacheManager = "productCacheManager"),
+        @CacheEvict(value = ResponseBytesCache.CACHE_NAME, key = "'id:' + #productId", cacheManager = "productCacheManager")
+    })
+    @RetryOnConflict
     public ProductDTO reduceStock(String productId, Integer quantity) {
         Optional<Product> productOpt = productRepository.findById(productId);
         if (productOpt.isPresent()) {
@@ -190,6 +269,8 @@ public class ProductService {
             if (product.getStock() >= quantity) {
                 product.setStock(product.getStock() - quantity);
                 Product savedProduct = productRepository.save(product);
+                productFacetIndex.recordProduct(savedProduct, false);
+                productCatalogStore.recordProduct(savedProduct, false);
                 return dtoMapper.toProductDTO(savedProduct);
             }
             throw new InsufficientStockException(product.getName(), quantity, product.getStock());
@@ -197,42 +278,41 @@ public class ProductService {
         throw new ProductNotFoundException(productId);
     }
 
-    @Caching(
-        put = @CachePut(value = "product", key = "#productId", cacheManager = "productCacheManager"),
-        evict = {
-            @CacheEvict(value = "products", key = "'topSelling'", cacheManager = "productCacheManager")
-        }
-    )
+    // Sales counts are buffered and written in batches by SalesCountAggregator, which also refreshes
+    // the catalog snapshot and product caches once per flush
+    public void recordSale(String productId, int quantity) {
+        salesCountAggregator.recordSale(productId, quantity);
+        bestSellerTracker.recordSale(productId, quantity);
+    }
+
     public ProductDTO increaseSalesCount(String productId, Integer quantity) {
-        Optional<Product> productOpt = productRepository.findById(productId);
-        if (productOpt.isPresent()) {
-            Product product = productOpt.get();
-            Integer currentSales = product.getSalesCount() != null ? product.getSalesCount() : 0;
-            product.setSalesCount(currentSales + quantity);
-            Product savedProduct = productRepository.save(product);
-            return dtoMapper.toProductDTO(savedProduct);
-        }
-        throw new ProductNotFoundException(productId);
+        Product product = productRepository.findById(productId)
+                .orElseThrow(() -> new ProductNotFoundException(productId));
+        recordSale(productId, quantity);
+        ProductDTO productDTO = dtoMapper.toProductDTO(product);
+        long salesCount = (product.getSalesCount() != null ? product.getSalesCount() : 0) + salesCountAggregator.getPending(productId);
+        productDTO.setSalesCount((int) salesCount);
+        return productDTO;
     }
 
     // Review management - now returning DTOs
-    @Cacheable(value = "product", key = "'reviews:' + #productId", cacheManager = "productCacheManager")
+    @Cacheable(value = "product", key = "'reviews:' + #productId", cacheManager = "productCacheManager", sync = true)
     public List<ReviewDTO> getProductReviews(String productId) {
         List<Review> reviews = reviewRepository.findByProductId(productId);
         return dtoMapper.toReviewDTOList(reviews);
     }
 
-    @Cacheable(value = "product", key = "'avgRating:' + #productId", cacheManager = "productCacheManager")
+    @Cacheable(value = "product", key = "'avgRating:' + #productId", cacheManager = "productCacheManager", sync = true)
     public Double getProductAverageRating(String productId) {
         return reviewRepository.findAverageRatingByProductId(productId);
     }
 
-    @Cacheable(value = "product", key = "'reviewCount:' + #productId", cacheManager = "productCacheManager")
+    @Cacheable(value = "product", key = "'reviewCount:' + #productId", cacheManager = "productCacheManager", sync = true)
     public Long getProductReviewCount(String productId) {
         return reviewRepository.countReviewsByProductId(productId);
     }
 
-    @Cacheable(value = "product", key = "'reviewsByRating:' + #productId + ':' + #minRating", cacheManager = "productCacheManager")
+    @Cacheable(value = "product", key = "'reviewsByRating:' + #productId + ':' + #minRating", cacheManager = "productCacheManager", sync = true)
     public List<ReviewDTO> getProductReviewsByRating(String productId, Integer minRating) {
         List<Review> productReviews = reviewRepository.findByProductId(productId);
         List<Review> filteredReviews = productReviews.stream()
@@ -242,7 +322,7 @@ public class ProductService {
     }
 
     // Get product with rating summary
-    @Cacheable(value = "product", key = "'summary:' + #productId", cacheManager = "productCacheManager")
+    @Cacheable(value = "product", key = "'summary:' + #productId", cacheManager = "productCacheManager", sync = true)
     public ProductSummaryDTO getProductSummary(String productId) {
         Optional<Product> productOpt = productRepository.findById(productId);
         if (productOpt.isPresent()) {
@@ -255,13 +335,11 @@ public class ProductService {
     }
 
     // Category management - now returning DTOs
-    @Caching(
-        put = @CachePut(value = "product", key = "#productId", cacheManager = "productCacheManager"),
-        evict = {
-            @CacheEvict(value = "products", cacheManager = "productCacheManager"),
-            @CacheEvict(value = "products", key = "'category:' + #categoryName", cacheManager = "productCacheManager")
-        }
-    )
+    @Caching(evict = {
+        @CacheEvict(value = ResponseBytesCache.CACHE_NAME, key = "'id:' + #productId", cacheManager = "productCacheManager"),
+        @CacheEvict(value = ResponseBytesCache.CACHE_NAME, key = "'category:' + #categoryName", cacheManager = "productCacheManager")
+    })
+    @RetryOnConflict
     public ProductDTO addCategoryToProduct(String productId, String categoryName) {
         Optional<Product> productOpt = productRepository.findById(productId);
         Optional<Category> categoryOpt = categoryRepository.findByName(categoryName);
@@ -276,29 +354,32 @@ public class ProductService {
         Product product = productOpt.get();
         product.getCategories().add(categoryOpt.get());
         Product savedProduct = productRepository.save(product);
+        productFacetIndex.recordProduct(savedProduct, true);
+        productCatalogStore.recordProduct(savedProduct, true);
         return dtoMapper.toProductDTO(savedProduct);
     }
 
     // Product validation and business logic
-    @Cacheable(value = "product", key = "'exists:' + #name", cacheManager = "productCacheManager")
     public boolean existsByName(String name) {
+        if (productCatalogStore.isReady()) {
+            return productCatalogStore.existsByName(name);
+        }
         return productRepository.existsByName(name);
     }
 
-    @Cacheable(value = "product", key = "'available:' + #productId + ':' + #requestedQuantity", cacheManager = "productCacheManager")
     public boolean isProductAvailable(String productId, Integer requestedQuantity) {
+        if (productCatalogStore.isReady()) {
+            return productCatalogStore.isAvailable(productId, requestedQuantity);
+        }
         Optional<Product> productOpt = productRepository.findById(productId);
         return productOpt.isPresent() && productOpt.get().getStock() >= requestedQuantity;
     }
 
     // Update product - updated to accept Request DTOs with validation
-    @Caching(
-        put = @CachePut(value = "product", key = "#id", cacheManager = "productCacheManager"),
-        evict = {
-            @CacheEvict(value = "products", cacheManager = "productCacheManager"),
-            @CacheEvict(value = "product", key = "'exists:' + #productRequest.name", cacheManager = "productCacheManager", condition = "#productRequest.name != null")
-        }
-    )
+    @Caching(evict = {
+        @CacheEvict(value = "product", key = "'summary:' + #id", cacheManager = "productCacheManager"),
+        @CacheEvict(value = ResponseBytesCache.CACHE_NAME, key = "'id:' + #id", cacheManager = "productCacheManager")
+    })
     public ProductDTO updateProduct(String id, ProductUpdateRequest productRequest) {
         // Validation for update request
         if (productRequest.getName() == null || productRequest.getName().trim().isEmpty()) {
@@ -333,19 +414,18 @@ public class ProductService {
                 product.setSalesCount(productRequest.getSalesCount());
             }
             Product savedProduct = productRepository.save(product);
+            productFacetIndex.recordProduct(savedProduct, false);
+            productCatalogStore.recordProduct(savedProduct, false);
             return dtoMapper.toProductDTO(savedProduct);
         }
         throw new ProductNotFoundException(id);
     }
 
     // Keep the old method for backward compatibility
-    @Caching(
-        put = @CachePut(value = "product", key = "#id", cacheManager = "productCacheManager"),
-        evict = {
-            @CacheEvict(value = "products", cacheManager = "productCacheManager"),
-            @CacheEvict(value = "product", key = "'exists:' + #updatedProductDTO.name", cacheManager = "productCacheManager", condition = "#updatedProductDTO.name != null")
-        }
-    )
+    @Caching(evict = {
+        @CacheEvict(value = "product", key = "'summary:' + #id", cacheManager = "productCacheManager"),
+        @CacheEvict(value = ResponseBytesCache.CACHE_NAME, key = "'id:' + #id", cacheManager = "productCacheManager")
+    })
     public ProductDTO updateProduct(String id, ProductDTO updatedProductDTO) {
         Optional<Product> productOpt = productRepository.findById(id);
         if (productOpt.isPresent()) {
@@ -360,6 +440,8 @@ public class ProductService {
                 product.setSalesCount(updatedProductDTO.getSalesCount());
             }
             Product savedProduct = productRepository.save(product);
+            productFacetIndex.recordProduct(savedProduct, false);
+            productCatalogStore.recordProduct(savedProduct, false);
             return dtoMapper.toProductDTO(savedProduct);
         }
         throw new ProductNotFoundException(id);
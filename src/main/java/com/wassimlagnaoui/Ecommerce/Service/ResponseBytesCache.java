@@ -0,0 +1,218 @@
+package com.wassimlagnaoui.Ecommerce.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cache of encoded response bodies for the hot product reads. Entries hold the UTF-8 JSON bytes,
+ * plus a gzipped copy for large bodies, the CBOR bytes once a binary client asked for them, and
+ * the ETag they were encoded for; an entry is only served while its ETag is still current, so a
+ * changed product never returns stale bytes. Each representation gets its own strong ETag (the
+ * entity ETag, with "-gz" for the gzipped JSON and "-cbor" for CBOR), and every 200 and 304 varies
+ * on Accept and Accept-Encoding.
+ * Lives in productCacheManager as "productResponses" and is evicted by the product write paths.
+ */
+@Service
+public class ResponseBytesCache {
+
+    public static final String CACHE_NAME = "productResponses";
+
+    private static final String GZIP_SUFFIX = "-gz";
+    private static final String CBOR_SUFFIX = "-cbor";
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    @Qualifier("productCacheManager")
+    private CacheManager productCacheManager;
+
+    @Autowired
+    private MappingJackson2CborHttpMessageConverter cborConverter;
+
+    // Bodies smaller than this are not worth a gzipped copy
+    @Value("${app.response-cache.gzip-min-bytes:2048}")
+    private int gzipMinBytes;
+
+    // Either encoding may be missing: JSON is encoded for JSON clients, CBOR for binary clients
+    public record Payload(String eTag, byte[] json, byte[] gzip, byte[] cbor) {
+
+        public int size() {
+            return length(json) + length(gzip) + length(cbor);
+        }
+
+        private static int length(byte[] bytes) {
+            return bytes != null ? bytes.length : 0;
+        }
+    }
+
+    // Cached bytes of the body for this key and ETag, encoding it on a miss; no ETag means no caching.
+    // Returns null when the supplier has no body (e.g. the product is gone).
+    public Payload get(String key, String eTag, boolean binary, Supplier<?> body) {
+        Cache cache = eTag != null ? productCacheManager.getCache(CACHE_NAME) : null;
+        Payload cached = cache != null ? cache.get(key, Payload.class) : null;
+        if (cached != null && !eTag.equals(cached.eTag())) {
+            cached = null;
+        }
+        if (cached != null && (binary ? cached.cbor() : cached.json()) != null) {
+            return cached;
+        }
+        Object value = body.get();
+        if (value == null) {
+            return null;
+        }
+        Payload payload = binary
+                ? new Payload(eTag, cached != null ? cached.json() : null, cached != null ? cached.gzip() : null, encodeCbor(value))
+                : encodeJson(eTag, value, cached != null ? cached.cbor() : null);
+        if (cache != null) {
+            cache.put(key, payload);
+        }
+        return payload;
+    }
+
+    // CBOR only when the client ranks it above JSON in its Accept header
+    public boolean prefersBinary(String accept) {
+        if (accept == null) {
+            return false;
+        }
+        List<MediaType> mediaTypes;
+        try {
+            mediaTypes = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            return false;
+        }
+        // Stable sort: equal quality keeps the client's order
+        mediaTypes.sort(Comparator.comparingDouble(MediaType::getQualityValue).reversed());
+        for (MediaType mediaType : mediaTypes) {
+            if (mediaType.getQualityValue() == 0) {
+                continue;
+            }
+            if (mediaType.equalsTypeAndSubtype(MediaType.APPLICATION_CBOR)) {
+                return true;
+            }
+            if (mediaType.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    // 304 when If-None-Match names the representation this request negotiates, else null. For JSON either
+    // encoding matches (the identity and gzipped bytes decode to the same body), the gzipped one only
+    // when the client still accepts gzip
+    public ResponseEntity<byte[]> notModified(String eTag, boolean binary, String acceptEncoding, String ifNoneMatch) {
+        if (eTag == null || ifNoneMatch == null) {
+            return null;
+        }
+        List<String> candidates = binary
+                ? List.of(eTag + CBOR_SUFFIX)
+                : acceptsGzip(acceptEncoding) ? List.of(eTag, eTag + GZIP_SUFFIX) : List.of(eTag);
+        for (String candidate : candidates) {
+            if (ifNoneMatch.trim().equals("*") || listsETag(ifNoneMatch, candidate)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .header(HttpHeaders.VARY, HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING)
+                        .eTag(candidate)
+                        .build();
+            }
+        }
+        return null;
+    }
+
+    // 200 response writing the stored bytes as-is; for JSON, the gzipped copy when the client accepts it
+    public ResponseEntity<byte[]> toResponse(Payload payload, boolean binary, String acceptEncoding) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+        if (binary) {
+            eTag(response, payload, CBOR_SUFFIX);
+            return response.contentType(MediaType.APPLICATION_CBOR).body(payload.cbor());
+        }
+        response.contentType(MediaType.APPLICATION_JSON);
+        if (payload.gzip() != null && acceptsGzip(acceptEncoding)) {
+            eTag(response, payload, GZIP_SUFFIX);
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(payload.gzip());
+        }
+        eTag(response, payload, "");
+        return response.body(payload.json());
+    }
+
+    private static void eTag(ResponseEntity.BodyBuilder response, Payload payload, String suffix) {
+        if (payload.eTag() != null) {
+            response.eTag(payload.eTag() + suffix);
+        }
+    }
+
+    // Weak comparison, as If-None-Match requires: a W/ prefix on the listed tag is ignored
+    private static boolean listsETag(String ifNoneMatch, String eTag) {
+        String quoted = "\"" + eTag + "\"";
+        for (String listed : ifNoneMatch.split(",")) {
+            String tag = listed.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(quoted)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Payload encodeJson(String eTag, Object body, byte[] cbor) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(body);
+            return new Payload(eTag, json, json.length >= gzipMinBytes ? gzip(json) : null, cbor);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize response body", e);
+        }
+    }
+
+    private byte[] encodeCbor(Object body) {
+        try {
+            return cborConverter.getObjectMapper().writeValueAsBytes(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize response body", e);
+        }
+    }
+
+    private static byte[] gzip(byte[] bytes) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(bytes.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(buffer)) {
+            gzip.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer.toByteArray();
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip") || parts[0].trim().equals("*")) {
+                return parts.length == 1 || !parts[1].replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+}
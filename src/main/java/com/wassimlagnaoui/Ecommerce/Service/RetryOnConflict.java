@@ -0,0 +1,21 @@
+package com.wassimlagnaoui.Ecommerce.Service;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a service method that reads, modifies and saves versioned entities.
+ * ConflictRetryAspect runs it again, with backoff, when the save hits an optimistic lock conflict.
+ * Only the outermost call retries: inside a running transaction the conflict is left to the caller.
+ * Only for changes that are recomputed from the row they read (stock, totals, items). Methods that
+ * overwrite fields with client-supplied values are not annotated: a retry would silently replace the
+ * concurrent change, so their conflict surfaces as a 409 instead.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RetryOnConflict {
+}
@@ -0,0 +1,432 @@
+package com.wassimlagnaoui.Ecommerce.Service;
+
+import com.wassimlagnaoui.Ecommerce.DTO.AnalyticsRebuildResult;
+import com.wassimlagnaoui.Ecommerce.DTO.SalesFactRow;
+import com.wassimlagnaoui.Ecommerce.DTO.SalesRollupDTO;
+import com.wassimlagnaoui.Ecommerce.Domain.Category;
+import com.wassimlagnaoui.Ecommerce.Domain.Order;
+import com.wassimlagnaoui.Ecommerce.Domain.OrderItem;
+import com.wassimlagnaoui.Ecommerce.Repository.OrderItemRepository;
+import com.wassimlagnaoui.Ecommerce.Repository.OrderRepository;
+import com.wassimlagnaoui.Ecommerce.Repository.ProductRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory sales rollups (revenue, units, order count and AOV) per hour and per day,
+ * broken down by product, category and customer plus an overall total.
+ * Order creation adds to the buckets, cancellation and deletion subtract and an added item replaces
+ * the order's contribution; all of them are applied after commit.
+ * A rebuild recomputes everything from orders/order_items in parallel day partitions
+ * and swaps the new store in when done. Days whose orders change while it runs are scanned again
+ * before the swap, so no committed change is lost with the old store.
+ */
+@Service
+public class SalesAnalyticsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SalesAnalyticsService.class);
+
+    public enum Granularity {
+        HOUR(ChronoUnit.HOURS), DAY(ChronoUnit.DAYS);
+
+        private final ChronoUnit unit;
+
+        Granularity(ChronoUnit unit) {
+            this.unit = unit;
+        }
+
+        long bucketOf(LocalDateTime time) {
+            return time.truncatedTo(unit).toEpochSecond(ZoneOffset.UTC);
+        }
+    }
+
+    public enum Dimension { TOTAL, PRODUCT, CATEGORY, CUSTOMER }
+
+    private static final String TOTAL_KEY = "all";
+
+    // Re-scans of changed days before the one that holds off the write hooks
+    private static final int CATCH_UP_PASSES = 3;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Value("${app.analytics.rebuild-parallelism:4}")
+    private int rebuildParallelism;
+
+    @Value("${app.analytics.hourly-retention-days:90}")
+    private int hourlyRetentionDays;
+
+    @Value("${app.analytics.rebuild-on-startup:true}")
+    private boolean rebuildOnStartup;
+
+    private final AtomicReference<RollupStore> store = new AtomicReference<>(new RollupStore());
+    private final AtomicBoolean rebuilding = new AtomicBoolean(false);
+    // Write hooks apply under the read lock; a rebuild swaps its store in under the write lock
+    private final ReentrantReadWriteLock swap = new ReentrantReadWriteLock();
+    // Day buckets of changes committed while a rebuild runs
+    private final Set<Long> changedDays = ConcurrentHashMap.newKeySet();
+    private final ExecutorService startupExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "analytics-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        if (rebuildOnStartup) {
+            startupExecutor.submit(() -> {
+                try {
+                    rebuild();
+                } catch (RuntimeException e) {
+                    logger.error("Initial sales analytics rebuild failed", e);
+                }
+            });
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        startupExecutor.shutdownNow();
+    }
+
+    // Called from the order write paths while the order graph is still attached
+    public void recordOrderCreated(Order order) {
+        applyAfterCommit(factsOf(order), 1);
+    }
+
+    public void recordOrderCancelled(Order order) {
+        applyAfterCommit(factsOf(order), -1);
+    }
+
+    // Called before the item is added to the order's item list; the order is counted once per key either way
+    public void recordOrderItemAdded(Order order, OrderItem item) {
+        if ("CANCELLED".equals(order.getStatus())) {
+            return;
+        }
+        List<OrderFact> before = factsOf(order);
+        List<OrderFact> after = new ArrayList<>(before);
+        after.add(factOf(order, item));
+        applyAfterCommit(before, -1);
+        applyAfterCommit(after, 1);
+    }
+
+    public List<SalesRollupDTO> getRollups(Granularity granularity, Dimension dimension, String key,
+                                           LocalDateTime from, LocalDateTime to) {
+        NavigableMap<Long, ConcurrentHashMap<String, Rollup>> buckets = store.get().buckets(granularity, dimension)
+                .subMap(granularity.bucketOf(from), true, granularity.bucketOf(to), false);
+
+        List<SalesRollupDTO> result = new ArrayList<>();
+        buckets.forEach((bucketStart, rollups) -> rollups.forEach((rollupKey, rollup) -> {
+            if (key == null || key.equals(rollupKey)) {
+                result.add(rollup.toDTO(bucketStart, granularity, dimension, rollupKey));
+            }
+        }));
+        return result;
+    }
+
+    // Largest revenue contributors of a dimension over the range, summed over day buckets
+    public List<SalesRollupDTO> getTopByRevenue(Dimension dimension, LocalDateTime from, LocalDateTime to, int limit) {
+        Map<String, Rollup> totals = new HashMap<>();
+        store.get().buckets(Granularity.DAY, dimension)
+                .subMap(Granularity.DAY.bucketOf(from), true, Granularity.DAY.bucketOf(to), false)
+                .values()
+                .forEach(rollups -> rollups.forEach((key, rollup) -> totals.computeIfAbsent(key, k -> new Rollup()).add(rollup)));
+
+        return totals.entrySet().stream()
+                .sorted(Comparator.comparingDouble((Map.Entry<String, Rollup> entry) -> entry.getValue().revenue.sum()).reversed())
+                .limit(limit)
+                .map(entry -> entry.getValue().toDTO(null, Granularity.DAY, dimension, entry.getKey()))
+                .toList();
+    }
+
+    public AnalyticsRebuildResult rebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            throw new IllegalStateException("A sales analytics rebuild is already running");
+        }
+        long start = System.currentTimeMillis();
+        ExecutorService executor = Executors.newFixedThreadPool(rebuildParallelism);
+        try {
+            RollupStore rebuilt = new RollupStore();
+            Map<String, List<String>> categoriesByProduct = new HashMap<>();
+            for (Object[] row : productRepository.findProductCategoryNames()) {
+                categoriesByProduct.computeIfAbsent((String) row[0], id -> new ArrayList<>()).add((String) row[1]);
+            }
+
+            // One partition per day; partitions only share the concurrent rollup store
+            AtomicLong scanned = new AtomicLong();
+            List<Future<?>> partitions = new ArrayList<>();
+            LocalDateTime earliest = orderRepository.findEarliestCreatedAt();
+            LocalDateTime latest = orderRepository.findLatestCreatedAt();
+            if (earliest != null && latest != null) {
+                LocalDateTime lastDay = latest.truncatedTo(ChronoUnit.DAYS);
+                for (LocalDateTime day = earliest.truncatedTo(ChronoUnit.DAYS); !day.isAfter(lastDay); day = day.plusDays(1)) {
+                    LocalDateTime from = day;
+                    partitions.add(executor.submit(() -> scanned.addAndGet(scanDay(rebuilt, from, categoriesByProduct))));
+                }
+                for (Future<?> partition : partitions) {
+                    partition.get();
+                }
+            }
+
+            // A day scanned before a change committed misses it; scanning it again after the change's hook
+            // ran can't. The last pass runs with the hooks held off, so nothing lands between it and the swap.
+            for (int pass = 0; pass < CATCH_UP_PASSES; pass++) {
+                Set<Long> days = drainChangedDays();
+                if (days.isEmpty()) {
+                    break;
+                }
+                rescanDays(rebuilt, days, categoriesByProduct);
+            }
+            swap.writeLock().lock();
+            try {
+                rescanDays(rebuilt, drainChangedDays(), categoriesByProduct);
+                rebuilt.pruneHourly(hourlyCutoff());
+                store.set(rebuilt);
+            } finally {
+                swap.writeLock().unlock();
+            }
+            long duration = System.currentTimeMillis() - start;
+            logger.info("Sales analytics rebuilt from {} order items in {} partitions ({} ms)", scanned.get(), partitions.size(), duration);
+            return new AnalyticsRebuildResult(partitions.size(), scanned.get(), duration);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Sales analytics rebuild interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Sales analytics rebuild failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+            swap.writeLock().lock();
+            try {
+                rebuilding.set(false);
+                changedDays.clear();
+            } finally {
+                swap.writeLock().unlock();
+            }
+        }
+    }
+
+    private int scanDay(RollupStore rollups, LocalDateTime day, Map<String, List<String>> categoriesByProduct) {
+        List<SalesFactRow> rows = orderItemRepository.findSalesFactsCreatedBetween(day, day.plusDays(1));
+        rollups.apply(toFacts(rows, categoriesByProduct), 1);
+        return rows.size();
+    }
+
+    private void rescanDays(RollupStore rollups, Set<Long> days, Map<String, List<String>> categoriesByProduct) {
+        for (long dayStart : days) {
+            rollups.clearDay(dayStart);
+            scanDay(rollups, LocalDateTime.ofEpochSecond(dayStart, 0, ZoneOffset.UTC), categoriesByProduct);
+        }
+    }
+
+    private Set<Long> drainChangedDays() {
+        Set<Long> days = new HashSet<>();
+        for (Iterator<Long> it = changedDays.iterator(); it.hasNext(); ) {
+            days.add(it.next());
+            it.remove();
+        }
+        return days;
+    }
+
+    private void applyAfterCommit(List<OrderFact> facts, int sign) {
+        if (facts.isEmpty()) {
+            return;
+        }
+        AfterCommit.run(() -> {
+            swap.readLock().lock();
+            try {
+                if (rebuilding.get()) {
+                    for (OrderFact fact : facts) {
+                        changedDays.add(Granularity.DAY.bucketOf(fact.createdAt()));
+                    }
+                }
+                RollupStore current = store.get();
+                current.apply(facts, sign);
+                current.pruneHourly(hourlyCutoff());
+            } finally {
+                swap.readLock().unlock();
+            }
+        });
+    }
+
+    private long hourlyCutoff() {
+        return Granularity.HOUR.bucketOf(LocalDateTime.now().minusDays(hourlyRetentionDays));
+    }
+
+    private List<OrderFact> factsOf(Order order) {
+        List<OrderFact> facts = new ArrayList<>();
+        if (order.getOrderItems() == null) {
+            return facts;
+        }
+        for (OrderItem item : order.getOrderItems()) {
+            facts.add(factOf(order, item));
+        }
+        return facts;
+    }
+
+    private OrderFact factOf(Order order, OrderItem item) {
+        LocalDateTime createdAt = order.getCreatedAt() != null ? order.getCreatedAt() : LocalDateTime.now();
+        String customerId = order.getCustomer() != null ? order.getCustomer().getId() : null;
+        List<String> categories = new ArrayList<>();
+        String productKey = item.getProductName();
+        if (item.getProduct() != null) {
+            productKey = item.getProduct().getId();
+            if (item.getProduct().getCategories() != null) {
+                for (Category category : item.getProduct().getCategories()) {
+                    categories.add(category.getName());
+                }
+            }
+        }
+        return new OrderFact(order.getId(), customerId, createdAt, productKey, categories,
+                item.getQuantity(), item.chargedUnitPrice() * item.getQuantity());
+    }
+
+    private List<OrderFact> toFacts(List<SalesFactRow> rows, Map<String, List<String>> categoriesByProduct) {
+        List<OrderFact> facts = new ArrayList<>(rows.size());
+        for (SalesFactRow row : rows) {
+            String productKey = row.getProductId() != null ? row.getProductId() : row.getProductName();
+            List<String> categories = row.getProductId() != null
+                    ? categoriesByProduct.getOrDefault(row.getProductId(), List.of())
+                    : List.of();
+            facts.add(new OrderFact(row.getOrderId(), row.getCustomerId(), row.getCreatedAt(), productKey, categories,
+                    row.getQuantity(), row.getUnitPrice() * row.getQuantity()));
+        }
+        return facts;
+    }
+
+    private record OrderFact(String orderId, String customerId, LocalDateTime createdAt, String productKey,
+                             List<String> categories, int quantity, double amount) {
+    }
+
+    private static final class Rollup {
+        private final DoubleAdder revenue = new DoubleAdder();
+        private final LongAdder units = new LongAdder();
+        private final LongAdder orders = new LongAdder();
+
+        void add(Rollup other) {
+            revenue.add(other.revenue.sum());
+            units.add(other.units.sum());
+            orders.add(other.orders.sum());
+        }
+
+        SalesRollupDTO toDTO(Long bucketStart, Granularity granularity, Dimension dimension, String key) {
+            double totalRevenue = revenue.sum();
+            long orderCount = orders.sum();
+            return new SalesRollupDTO(
+                    bucketStart != null ? LocalDateTime.ofEpochSecond(bucketStart, 0, ZoneOffset.UTC) : null,
+                    granularity.name(),
+                    dimension.name(),
+                    key,
+                    totalRevenue,
+                    units.sum(),
+                    orderCount,
+                    orderCount > 0 ? totalRevenue / orderCount : 0.0
+            );
+        }
+    }
+
+    // granularity -> dimension -> bucket start (epoch seconds) -> key -> rollup
+    private static final class RollupStore {
+        private final Map<Granularity, Map<Dimension, ConcurrentSkipListMap<Long, ConcurrentHashMap<String, Rollup>>>> rollups =
+                new EnumMap<>(Granularity.class);
+
+        RollupStore() {
+            for (Granularity granularity : Granularity.values()) {
+                Map<Dimension, ConcurrentSkipListMap<Long, ConcurrentHashMap<String, Rollup>>> byDimension = new EnumMap<>(Dimension.class);
+                for (Dimension dimension : Dimension.values()) {
+                    byDimension.put(dimension, new ConcurrentSkipListMap<>());
+                }
+                rollups.put(granularity, byDimension);
+            }
+        }
+
+        ConcurrentSkipListMap<Long, ConcurrentHashMap<String, Rollup>> buckets(Granularity granularity, Dimension dimension) {
+            return rollups.get(granularity).get(dimension);
+        }
+
+        // Units and revenue go to every dimension; an order is counted once per key it touches
+        void apply(List<OrderFact> facts, int sign) {
+            Set<String> countedOrders = new HashSet<>();
+            for (OrderFact fact : facts) {
+                for (Granularity granularity : Granularity.values()) {
+                    long bucket = granularity.bucketOf(fact.createdAt());
+                    add(granularity, Dimension.TOTAL, bucket, TOTAL_KEY, fact, sign, countedOrders);
+                    add(granularity, Dimension.PRODUCT, bucket, fact.productKey(), fact, sign, countedOrders);
+                    if (fact.customerId() != null) {
+                        add(granularity, Dimension.CUSTOMER, bucket, fact.customerId(), fact, sign, countedOrders);
+                    }
+                    for (String category : fact.categories()) {
+                        add(granularity, Dimension.CATEGORY, bucket, category, fact, sign, countedOrders);
+                    }
+                }
+            }
+        }
+
+        private void add(Granularity granularity, Dimension dimension, long bucket, String key, OrderFact fact, int sign,
+                         Set<String> countedOrders) {
+            if (key == null) {
+                return;
+            }
+            Rollup rollup = buckets(granularity, dimension)
+                    .computeIfAbsent(bucket, b -> new ConcurrentHashMap<>())
+                    .computeIfAbsent(key, k -> new Rollup());
+            rollup.revenue.add(sign * fact.amount());
+            rollup.units.add((long) sign * fact.quantity());
+            if (countedOrders.add(granularity + "|" + dimension + "|" + key + "|" + fact.orderId())) {
+                rollup.orders.add(sign);
+            }
+        }
+
+        // Drops a day's bucket and its hourly buckets, ahead of scanning the day again
+        void clearDay(long dayStart) {
+            long dayEnd = dayStart + ChronoUnit.DAYS.getDuration().getSeconds();
+            for (Dimension dimension : Dimension.values()) {
+                buckets(Granularity.DAY, dimension).remove(dayStart);
+                buckets(Granularity.HOUR, dimension).subMap(dayStart, dayEnd).clear();
+            }
+        }
+
+        void pruneHourly(long cutoff) {
+            for (ConcurrentSkipListMap<Long, ConcurrentHashMap<String, Rollup>> buckets : rollups.get(Granularity.HOUR).values()) {
+                buckets.headMap(cutoff).clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,350 @@
+package com.wassimlagnaoui.Ecommerce.Service;
+
+import com.wassimlagnaoui.Ecommerce.Domain.Product;
+import com.wassimlagnaoui.Ecommerce.Repository.ProductRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Buffers products.sales_count increments instead of writing the product row on every sale.
+ * Committed increments are added to per-product LongAdders and appended to a local log segment;
+ * every app.sales-count.flush-interval the buffered totals are written with one batched
+ * UPDATE ... SET sales_count = sales_count + ?, the log segments they came from are deleted and the
+ * affected products are refreshed in the catalog snapshot and product caches. Segments left by a
+ * crash are replayed into the database on startup. The same transaction records the highest segment
+ * it covers in sales_count_flush_state, so segments that were flushed but not yet deleted when the
+ * process died are skipped on replay instead of being counted twice.
+ */
+@Service
+// openLog reads sales_count_flush_state through JdbcTemplate, so the schema (Flyway or Hibernate) has to exist first
+@DependsOn("entityManagerFactory")
+public class SalesCountAggregator {
+
+    private static final Logger logger = LoggerFactory.getLogger(SalesCountAggregator.class);
+
+    // Leaves the optimistic-lock version alone, so product writes that loaded the row before a flush
+    // don't conflict with it; product ETags include the sales count instead
+    private static final String INCREMENT_SQL =
+            "UPDATE products SET sales_count = COALESCE(sales_count, 0) + ? WHERE id = ?";
+    private static final String MARK_FLUSHED_SQL =
+            "UPDATE sales_count_flush_state SET last_segment = ? WHERE log_id = ?";
+    private static final String SEGMENT_PREFIX = "sales-count-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    // Identifies this log directory's row in sales_count_flush_state; kept next to the segments
+    private static final String LOG_ID_FILE = "log.id";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductCatalogStore productCatalogStore;
+
+    @Autowired
+    @Qualifier("productCacheManager")
+    private CacheManager productCacheManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.sales-count.log-dir:sales-count-log}")
+    private String logDir;
+
+    @Value("${app.sales-count.flush-batch-size:500}")
+    private int flushBatchSize;
+
+    private volatile Map<String, LongAdder> pending = new ConcurrentHashMap<>();
+
+    // Appends and increments hold the read lock; a flush takes the write lock to swap the
+    // counters and the log segment together, so every logged increment is in exactly one drain
+    private final ReentrantReadWriteLock rotation = new ReentrantReadWriteLock();
+    private FileChannel segment;
+    private Path segmentPath;
+    private long segmentSequence;
+    private String logId;
+
+    // Rotated segments whose increments are not in the database yet, guarded by this
+    private final List<Path> unflushedSegments = new ArrayList<>();
+
+    private Counter flushedProducts;
+    private Counter failedFlushes;
+
+    @PostConstruct
+    public void openLog() throws IOException {
+        Path directory = Path.of(logDir);
+        Files.createDirectories(directory);
+        logId = readLogId(directory);
+        long lastFlushed = lastFlushedSegment();
+        List<Path> segments;
+        try (Stream<Path> files = Files.list(directory)) {
+            segments = files.filter(SalesCountAggregator::isSegment)
+                    .sorted((first, second) -> Long.compare(sequence(first), sequence(second)))
+                    .toList();
+        }
+        for (Path path : segments) {
+            if (sequence(path) > lastFlushed) {
+                unflushedSegments.add(path);
+            } else {
+                // Already in the database; the process stopped between the commit and the delete
+                logger.info("Skipping sales count log segment {}, flushed before the last shutdown", path);
+                Files.deleteIfExists(path);
+            }
+        }
+        // Never reuse a sequence at or below the flushed mark, even once its files are gone
+        segmentSequence = Math.max(lastFlushed, segments.isEmpty() ? 0 : sequence(segments.get(segments.size() - 1)));
+        openSegment();
+        flushedProducts = Counter.builder("app.sales-count.flushed").description("Product rows updated by sales count flushes").register(meterRegistry);
+        failedFlushes = Counter.builder("app.sales-count.flush.failures").register(meterRegistry);
+        meterRegistry.gauge("app.sales-count.pending.products", this, aggregator -> aggregator.pending.size());
+    }
+
+    // Increments left in the log by an unclean shutdown go to the database before anything reads the counts
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void replayLog() {
+        List<Path> recovered;
+        synchronized (this) {
+            recovered = List.copyOf(unflushedSegments);
+        }
+        if (recovered.isEmpty()) {
+            return;
+        }
+        rotation.readLock().lock();
+        try {
+            for (Path path : recovered) {
+                readSegment(path).forEach((productId, units) -> add(productId, units));
+            }
+        } finally {
+            rotation.readLock().unlock();
+        }
+        logger.info("Replaying {} sales count log segments", recovered.size());
+        flush();
+    }
+
+    // Units sold of a product, counted once the order commits
+    public void recordSale(String productId, int quantity) {
+        if (productId == null || quantity <= 0) {
+            return;
+        }
+        AfterCommit.run(() -> {
+            rotation.readLock().lock();
+            try {
+                append(productId, quantity);
+                add(productId, quantity);
+            } finally {
+                rotation.readLock().unlock();
+            }
+        });
+    }
+
+    // Units recorded for a product and not yet written to products.sales_count
+    public long getPending(String productId) {
+        LongAdder adder = pending.get(productId);
+        return adder != null ? adder.sum() : 0;
+    }
+
+    @Scheduled(fixedDelayString = "${app.sales-count.flush-interval:10s}", initialDelayString = "${app.sales-count.flush-interval:10s}")
+    public synchronized void flush() {
+        if (pending.isEmpty() && unflushedSegments.isEmpty()) {
+            return;
+        }
+        Map<String, LongAdder> drained;
+        rotation.writeLock().lock();
+        try {
+            drained = pending;
+            pending = new ConcurrentHashMap<>();
+            unflushedSegments.add(segmentPath);
+            openSegment();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not rotate the sales count log", e);
+        } finally {
+            rotation.writeLock().unlock();
+        }
+
+        Map<String, Long> totals = new HashMap<>();
+        drained.forEach((productId, adder) -> totals.put(productId, adder.sum()));
+        long throughSegment = sequence(unflushedSegments.get(unflushedSegments.size() - 1));
+        List<Product> updated;
+        try {
+            updated = write(totals, throughSegment);
+        } catch (RuntimeException e) {
+            // Counted again in the next flush; their log segments are kept until then
+            failedFlushes.increment();
+            rotation.readLock().lock();
+            try {
+                totals.forEach(this::add);
+            } finally {
+                rotation.readLock().unlock();
+            }
+            logger.warn("Sales count flush of {} products failed; retrying on the next flush", totals.size(), e);
+            return;
+        }
+        for (Path path : unflushedSegments) {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                logger.warn("Could not delete flushed sales count log segment {}", path, e);
+            }
+        }
+        unflushedSegments.clear();
+        flushedProducts.increment(totals.size());
+        refresh(updated);
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException {
+        try {
+            flush();
+        } finally {
+            segment.close();
+        }
+    }
+
+    // One batched update, the flushed segment mark and one read of the updated rows, in one
+    // read-write transaction (so on the primary): the increments and the mark commit together
+    private List<Product> write(Map<String, Long> totals, long throughSegment) {
+        if (totals.isEmpty()) {
+            return List.of();
+        }
+        List<Map.Entry<String, Long>> rows = new ArrayList<>(totals.entrySet());
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        return transactionTemplate.execute(status -> {
+            jdbcTemplate.batchUpdate(INCREMENT_SQL, rows, flushBatchSize, (statement, row) -> {
+                statement.setLong(1, row.getValue());
+                statement.setString(2, row.getKey());
+            });
+            jdbcTemplate.update(MARK_FLUSHED_SQL, throughSegment, logId);
+            return productRepository.findAllById(totals.keySet());
+        });
+    }
+
+    // The flushed mark of this log directory, creating its row on first start
+    private long lastFlushedSegment() {
+        List<Long> marks = jdbcTemplate.queryForList(
+                "SELECT last_segment FROM sales_count_flush_state WHERE log_id = ?", Long.class, logId);
+        if (!marks.isEmpty()) {
+            return marks.get(0);
+        }
+        jdbcTemplate.update("INSERT INTO sales_count_flush_state (log_id, last_segment) VALUES (?, 0)", logId);
+        return 0;
+    }
+
+    private static String readLogId(Path directory) throws IOException {
+        Path file = directory.resolve(LOG_ID_FILE);
+        if (Files.exists(file)) {
+            return Files.readString(file, StandardCharsets.UTF_8).trim();
+        }
+        String id = UUID.randomUUID().toString();
+        Files.writeString(file, id, StandardCharsets.UTF_8);
+        return id;
+    }
+
+    // Once per flush rather than per sale: the catalog snapshot and the cached product responses
+    private void refresh(List<Product> products) {
+        Cache responseCache = productCacheManager.getCache(ResponseBytesCache.CACHE_NAME);
+        for (Product product : products) {
+            productCatalogStore.recordProduct(product, false);
+            responseCache.evict("id:" + product.getId());
+        }
+    }
+
+    private void add(String productId, long units) {
+        pending.computeIfAbsent(productId, id -> new LongAdder()).add(units);
+    }
+
+    // A process crash loses nothing already appended; the segment is forced to disk when it is rotated
+    private void append(String productId, int quantity) {
+        byte[] line = (productId + "\t" + quantity + "\n").getBytes(StandardCharsets.UTF_8);
+        try {
+            segment.write(ByteBuffer.wrap(line));
+        } catch (IOException e) {
+            logger.warn("Could not log a sales count increment for product {}; it is only kept in memory", productId, e);
+        }
+    }
+
+    private void openSegment() throws IOException {
+        if (segment != null) {
+            segment.force(false);
+            segment.close();
+        }
+        segmentPath = Path.of(logDir, SEGMENT_PREFIX + (++segmentSequence) + SEGMENT_SUFFIX);
+        segment = FileChannel.open(segmentPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    // Per-product totals of a segment; a torn last line (crash mid-write) is skipped
+    private static Map<String, Long> readSegment(Path path) {
+        Map<String, Long> totals = new HashMap<>();
+        try {
+            for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+                int tab = line.indexOf('\t');
+                if (tab <= 0) {
+                    continue;
+                }
+                try {
+                    totals.merge(line.substring(0, tab), Long.parseLong(line.substring(tab + 1)), Long::sum);
+                } catch (NumberFormatException e) {
+                    logger.warn("Skipping malformed sales count log line in {}", path);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read sales count log segment " + path, e);
+        }
+        return totals;
+    }
+
+    private static boolean isSegment(Path path) {
+        String name = path.getFileName().toString();
+        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX) && sequence(path) >= 0;
+    }
+
+    private static long sequence(Path path) {
+        String name = path.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (RuntimeException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.wassimlagnaoui.Ecommerce.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Space-Saving heavy-hitter summary (Metwally et al.) holding at most {@code capacity} counters.
+ * Every key whose true weight exceeds total / capacity is guaranteed to be tracked; for a tracked
+ * key, count - error <= true weight <= count. Not thread-safe; callers synchronize.
+ */
+final class SpaceSavingSketch {
+
+    private static final Comparator<Counter> BY_COUNT =
+            Comparator.comparingLong((Counter counter) -> counter.count).thenComparing(counter -> counter.key);
+
+    private final int capacity;
+    private final Map<String, Counter> counters = new HashMap<>();
+    private final TreeSet<Counter> byCount = new TreeSet<>(BY_COUNT);
+    private long total;
+
+    SpaceSavingSketch(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Sketch capacity must be positive");
+        }
+        this.capacity = capacity;
+    }
+
+    void add(String key, long weight) {
+        if (weight <= 0) {
+            return;
+        }
+        total += weight;
+        Counter counter = counters.get(key);
+        if (counter != null) {
+            byCount.remove(counter);
+            counter.count += weight;
+            byCount.add(counter);
+            return;
+        }
+        if (counters.size() < capacity) {
+            counter = new Counter(key, weight, 0);
+        } else {
+            // Replace the smallest counter; the newcomer inherits its count as error
+            Counter smallest = byCount.pollFirst();
+            counters.remove(smallest.key);
+            counter = new Counter(key, smallest.count + weight, smallest.count);
+        }
+        counters.put(key, counter);
+        byCount.add(counter);
+    }
+
+    long estimate(String key) {
+        Counter counter = counters.get(key);
+        return counter != null ? counter.count : 0;
+    }
+
+    long error(String key) {
+        Counter counter = counters.get(key);
+        return counter != null ? counter.error : 0;
+    }
+
+    long total() {
+        return total;
+    }
+
+    void clear() {
+        counters.clear();
+        byCount.clear();
+        total = 0;
+    }
+
+    // Tracked keys by descending count, at most limit of them
+    List<Estimate> top(int limit) {
+        List<Estimate> result = new ArrayList<>(Math.min(limit, counters.size()));
+        Iterator<Counter> descending = byCount.descendingIterator();
+        while (descending.hasNext() && result.size() < limit) {
+            Counter counter = descending.next();
+            result.add(new Estimate(counter.key, counter.count, counter.error));
+        }
+        return result;
+    }
+
+    // Adds every counter of this sketch into the given totals (key -> {count, error})
+    void addTo(Map<String, long[]> totals) {
+        for (Counter counter : counters.values()) {
+            long[] merged = totals.computeIfAbsent(counter.key, key -> new long[2]);
+            merged[0] += counter.count;
+            merged[1] += counter.error;
+        }
+    }
+
+    record Estimate(String key, long count, long error) {
+    }
+
+    private static final class Counter {
+        private final String key;
+        private long count;
+        private final long error;
+
+        Counter(String key, long count, long error) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+        }
+    }
+}
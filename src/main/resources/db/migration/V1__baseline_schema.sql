@@ -0,0 +1,66 @@
+-- Baseline schema, matching the JPA mappings in com.wassimlagnaoui.Ecommerce.Domain
+
+CREATE TABLE customers (
+    id          VARCHAR(255) NOT NULL PRIMARY KEY,
+    name        VARCHAR(255),
+    email       VARCHAR(255) UNIQUE,
+    password    VARCHAR(255),
+    role        VARCHAR(255) CHECK (role IN ('CUSTOMER', 'ADMIN')),
+    enabled     BOOLEAN,
+    total_spent DOUBLE PRECISION
+);
+
+CREATE TABLE addresses (
+    id          VARCHAR(255) NOT NULL PRIMARY KEY,
+    street      VARCHAR(255),
+    city        VARCHAR(255),
+    state       VARCHAR(255),
+    zip_code    VARCHAR(255),
+    country     VARCHAR(255),
+    customer_id VARCHAR(255) REFERENCES customers (id)
+);
+
+CREATE TABLE categories (
+    id          VARCHAR(255) NOT NULL PRIMARY KEY,
+    name        VARCHAR(255),
+    description VARCHAR(255)
+);
+
+CREATE TABLE products (
+    id          VARCHAR(255) NOT NULL PRIMARY KEY,
+    name        VARCHAR(255),
+    description VARCHAR(255),
+    price       DOUBLE PRECISION,
+    stock       INTEGER,
+    sales_count INTEGER
+);
+
+CREATE TABLE product_categories (
+    product_id  VARCHAR(255) NOT NULL REFERENCES products (id),
+    category_id VARCHAR(255) NOT NULL REFERENCES categories (id),
+    PRIMARY KEY (product_id, category_id)
+);
+
+CREATE TABLE reviews (
+    id          VARCHAR(255) NOT NULL PRIMARY KEY,
+    rating      INTEGER,
+    comment     VARCHAR(255),
+    product_id  VARCHAR(255) REFERENCES products (id),
+    customer_id VARCHAR(255) REFERENCES customers (id)
+);
+
+CREATE TABLE orders (
+    id           VARCHAR(255) NOT NULL PRIMARY KEY,
+    order_number VARCHAR(255),
+    status       VARCHAR(255),
+    total_amount DOUBLE PRECISION,
+    customer_id  VARCHAR(255) REFERENCES customers (id)
+);
+
+CREATE TABLE order_items (
+    id           VARCHAR(255) NOT NULL PRIMARY KEY,
+    product_name VARCHAR(255),
+    quantity     INTEGER,
+    price        DOUBLE PRECISION,
+    order_id     VARCHAR(255) REFERENCES orders (id)
+);
@@ -0,0 +1,4 @@
+-- Product reference and catalog unit price of order items. Historical items keep NULLs until the
+-- order item backfill links them by product name
+ALTER TABLE order_items ADD COLUMN IF NOT EXISTS unit_price DOUBLE PRECISION;
+ALTER TABLE order_items ADD COLUMN IF NOT EXISTS product_id VARCHAR(255) REFERENCES products (id);
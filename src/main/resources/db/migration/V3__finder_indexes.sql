@@ -0,0 +1,40 @@
+-- Indexes backing the repository finders annotated with @HotPathFinder.
+-- Keep in sync with the @Index declarations on the entities (used by the H2 dev schema).
+
+-- ProductRepository
+CREATE INDEX IF NOT EXISTS idx_products_name ON products (name);
+CREATE INDEX IF NOT EXISTS idx_products_price ON products (price);
+CREATE INDEX IF NOT EXISTS idx_products_stock ON products (stock);
+CREATE INDEX IF NOT EXISTS idx_products_sales_count ON products (sales_count DESC);
+CREATE INDEX IF NOT EXISTS idx_categories_name ON categories (name);
+CREATE INDEX IF NOT EXISTS idx_product_categories_category ON product_categories (category_id, product_id);
+
+-- Out-of-stock listing only ever needs the (small) set of empty products
+CREATE INDEX IF NOT EXISTS idx_products_out_of_stock ON products (id) WHERE stock < 1;
+
+-- OrderRepository
+CREATE UNIQUE INDEX IF NOT EXISTS idx_orders_order_number ON orders (order_number);
+CREATE INDEX IF NOT EXISTS idx_orders_status ON orders (status);
+CREATE INDEX IF NOT EXISTS idx_orders_customer_status ON orders (customer_id, status);
+CREATE INDEX IF NOT EXISTS idx_orders_total_amount ON orders (total_amount);
+
+-- Open orders are the hot subset for customer dashboards
+CREATE INDEX IF NOT EXISTS idx_orders_customer_pending ON orders (customer_id) WHERE status = 'PENDING';
+
+-- OrderItemRepository
+CREATE INDEX IF NOT EXISTS idx_order_items_order_id ON order_items (order_id);
+CREATE INDEX IF NOT EXISTS idx_order_items_product_id ON order_items (product_id);
+CREATE INDEX IF NOT EXISTS idx_order_items_product_name ON order_items (product_name);
+
+-- Backfill scan: only items still missing their product reference
+CREATE INDEX IF NOT EXISTS idx_order_items_missing_product ON order_items (id) WHERE product_id IS NULL;
+
+-- ReviewRepository (rating included so AVG/COUNT per product are index-only)
+CREATE INDEX IF NOT EXISTS idx_reviews_product_rating ON reviews (product_id, rating);
+CREATE INDEX IF NOT EXISTS idx_reviews_customer_product ON reviews (customer_id, product_id);
+
+-- AddressRepository
+CREATE INDEX IF NOT EXISTS idx_addresses_customer_id ON addresses (customer_id);
+
+-- CustomerRepository
+CREATE INDEX IF NOT EXISTS idx_customers_total_spent ON customers (total_spent);
@@ -0,0 +1,7 @@
+-- Creation time of orders, used to sort customer order history within each status
+ALTER TABLE orders ADD COLUMN created_at TIMESTAMP;
+UPDATE orders SET created_at = CURRENT_TIMESTAMP WHERE created_at IS NULL;
+
+-- Customer dashboards read all statuses in one (customer_id, status, created_at) scan
+DROP INDEX IF EXISTS idx_orders_customer_status;
+CREATE INDEX IF NOT EXISTS idx_orders_customer_status_created ON orders (customer_id, status, created_at);
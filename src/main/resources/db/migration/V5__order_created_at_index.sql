@@ -0,0 +1,2 @@
+-- Analytics rebuild scans orders one day at a time by creation time
+CREATE INDEX IF NOT EXISTS idx_orders_created_at ON orders (created_at);
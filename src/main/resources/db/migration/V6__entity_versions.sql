@@ -0,0 +1,3 @@
+-- Optimistic-lock versions; also the source of the ETags on product and order reads
+ALTER TABLE products ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0 NOT NULL;
+ALTER TABLE orders ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0 NOT NULL;
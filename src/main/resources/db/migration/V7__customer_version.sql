@@ -0,0 +1,2 @@
+-- Optimistic-lock version of customers (total spent and profile updates race with order writes)
+ALTER TABLE customers ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0 NOT NULL;
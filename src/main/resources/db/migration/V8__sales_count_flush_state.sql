@@ -0,0 +1,5 @@
+-- Highest sales count log segment flushed per instance log directory (see SalesCountAggregator)
+CREATE TABLE IF NOT EXISTS sales_count_flush_state (
+    log_id VARCHAR(64) PRIMARY KEY,
+    last_segment BIGINT NOT NULL
+);
@@ -0,0 +1,119 @@
+package com.wassimlagnaoui.Ecommerce.Configuration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.wassimlagnaoui.Ecommerce.DTO.ProductDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.support.SimpleCacheManager;
+import org.springframework.util.unit.DataSize;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CachingConfigTests {
+
+	private final CachingConfig cachingConfig = new CachingConfig(properties());
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	@BeforeEach
+	void createExecutor() {
+		cachingConfig.createCacheRefreshExecutor();
+	}
+
+	@AfterEach
+	void shutdown() {
+		cachingConfig.shutdownCacheRefreshExecutor();
+	}
+
+	@Test
+	void equalStringKeysHitInDefaultCacheManager() {
+		CacheManager cacheManager = cachingConfig.cacheManager();
+		org.springframework.cache.Cache cache = cacheManager.getCache("anything");
+		cache.put(new String("key-1"), "value");
+
+		for (int i = 0; i < 10; i++) {
+			assertNotNull(cache.get(new String("key-1")));
+		}
+
+		Cache<?, ?> nativeCache = (Cache<?, ?>) cache.getNativeCache();
+		assertEquals(1.0, nativeCache.stats().hitRate());
+	}
+
+	@Test
+	void equalStringKeysHitInProductCacheManager() {
+		SimpleCacheManager cacheManager = (SimpleCacheManager) cachingConfig.productCacheManager(meterRegistry,
+				new OffHeapStore(new ObjectMapper(new CBORFactory()), 1024, 1024 * 1024, meterRegistry));
+		cacheManager.afterPropertiesSet();
+		org.springframework.cache.Cache cache = cacheManager.getCache("product");
+		AtomicInteger loads = new AtomicInteger();
+
+		for (int i = 0; i < 10; i++) {
+			assertEquals("value", cache.get(new String("reviews:p1"), () -> {
+				loads.incrementAndGet();
+				return "value";
+			}));
+		}
+
+		assertEquals(1, loads.get());
+	}
+
+	@Test
+	void listsWeighByWhatTheyHold() {
+		List<ProductDTO> products = new ArrayList<>();
+		for (int i = 0; i < 100_000; i++) {
+			products.add(product(i));
+		}
+
+		long one = CacheEntryWeigher.estimate(product(0));
+		long all = CacheEntryWeigher.estimate(products);
+
+		assertTrue(all > 50_000 * one, "100k products weighed " + all + " bytes, one product " + one);
+	}
+
+	@Test
+	void weightBoundedCacheEvictsByBytes() {
+		Cache<Object, Object> cache = cachingConfig.caffeine("orders").build();
+		List<ProductDTO> products = new ArrayList<>();
+		for (int i = 0; i < 100_000; i++) {
+			products.add(product(i));
+		}
+
+		cache.put("small", List.of(product(1)));
+		cache.put("large", products);
+		cache.cleanUp();
+
+		assertNotNull(cache.getIfPresent("small"));
+		assertNull(cache.getIfPresent("large"));
+	}
+
+	private static ProductDTO product(int i) {
+		ProductDTO product = new ProductDTO();
+		product.setId("product-" + i);
+		product.setName("Product " + i);
+		product.setDescription("Description of product " + i);
+		product.setPrice(9.99 + i);
+		return product;
+	}
+
+	private static CachePolicyProperties properties() {
+		CachePolicyProperties properties = new CachePolicyProperties();
+		CachePolicyProperties.Spec defaults = new CachePolicyProperties.Spec();
+		defaults.setMaximumSize(100L);
+		properties.getSpecs().put(CachePolicyProperties.DEFAULT_SPEC, defaults);
+		CachePolicyProperties.Spec orders = new CachePolicyProperties.Spec();
+		orders.setMaximumWeight(DataSize.ofMegabytes(1));
+		properties.getSpecs().put("orders", orders);
+		return properties;
+	}
+}
@@ -0,0 +1,149 @@
+package com.wassimlagnaoui.Ecommerce.Configuration;
+
+import com.wassimlagnaoui.Ecommerce.Service.RetryOnConflict;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConflictRetryAspectTests {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	@Test
+	void conflictsAreRetriedUntilTheWriteSucceeds() {
+		Flaky flaky = proxy(new Flaky(2), 4);
+
+		assertEquals("saved", flaky.update());
+
+		assertEquals(3, flaky.attempts());
+		assertEquals(2.0, meterRegistry.get("app.optimistic-lock.conflicts").tag("method", "Flaky.update").counter().count());
+		assertEquals(1.0, meterRegistry.get("app.optimistic-lock.calls").tag("outcome", "retried").counter().count());
+	}
+
+	@Test
+	void givesUpAfterMaxAttempts() {
+		Flaky flaky = proxy(new Flaky(Integer.MAX_VALUE), 4);
+
+		assertThrows(OptimisticLockingFailureException.class, flaky::update);
+
+		assertEquals(4, flaky.attempts());
+		assertEquals(1.0, meterRegistry.get("app.optimistic-lock.calls").tag("outcome", "exhausted").counter().count());
+	}
+
+	@Test
+	void callsInsideARunningTransactionAreLeftToTheCaller() {
+		Flaky flaky = proxy(new Flaky(1), 4);
+
+		TransactionSynchronizationManager.setActualTransactionActive(true);
+		try {
+			assertThrows(OptimisticLockingFailureException.class, flaky::update);
+		} finally {
+			TransactionSynchronizationManager.setActualTransactionActive(false);
+		}
+
+		assertEquals(1, flaky.attempts());
+	}
+
+	@Test
+	void concurrentIncrementsOfAVersionedRowAreNotLost() throws Exception {
+		// Unbounded attempts: a writer can lose many races in a row on a busy (or single) CPU, and the
+		// attempt bound has its own test
+		VersionedRow row = proxy(new VersionedRow(), Integer.MAX_VALUE);
+		int threads = 8;
+		int incrementsPerThread = 500;
+		CountDownLatch start = new CountDownLatch(1);
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<?>> results = new ArrayList<>();
+			for (int i = 0; i < threads; i++) {
+				results.add(pool.submit(() -> {
+					start.await();
+					for (int j = 0; j < incrementsPerThread; j++) {
+						row.increment();
+					}
+					return null;
+				}));
+			}
+			start.countDown();
+			for (Future<?> result : results) {
+				result.get(30, TimeUnit.SECONDS);
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+
+		assertEquals(threads * incrementsPerThread, row.value());
+		// The writers did collide, so the count above is down to the retries
+		Counter conflicts = meterRegistry.find("app.optimistic-lock.conflicts").tag("method", "VersionedRow.increment").counter();
+		assertNotNull(conflicts);
+		assertTrue(conflicts.count() > 0);
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> T proxy(T target, int maxAttempts) {
+		AspectJProxyFactory factory = new AspectJProxyFactory(target);
+		factory.setProxyTargetClass(true);
+		factory.addAspect(new ConflictRetryAspect(meterRegistry, maxAttempts, Duration.ofNanos(1000), Duration.ofMillis(1)));
+		return (T) factory.getProxy();
+	}
+
+	static class Flaky {
+
+		private final AtomicInteger attempts = new AtomicInteger();
+		private final int failures;
+
+		Flaky(int failures) {
+			this.failures = failures;
+		}
+
+		@RetryOnConflict
+		public String update() {
+			if (attempts.incrementAndGet() <= failures) {
+				throw new OptimisticLockingFailureException("Row was updated by another transaction");
+			}
+			return "saved";
+		}
+
+		public int attempts() {
+			return attempts.get();
+		}
+	}
+
+	// Read-modify-write of a (value, version) row that fails like a JPA save when the version moved
+	static class VersionedRow {
+
+		private final AtomicReference<long[]> row = new AtomicReference<>(new long[] {0, 0});
+
+		@RetryOnConflict
+		public void increment() {
+			long[] read = row.get();
+			Thread.yield();
+			if (!row.compareAndSet(read, new long[] {read[0] + 1, read[1] + 1})) {
+				throw new OptimisticLockingFailureException("Row version " + read[1] + " is stale");
+			}
+		}
+
+		public long value() {
+			return row.get()[0];
+		}
+	}
+}
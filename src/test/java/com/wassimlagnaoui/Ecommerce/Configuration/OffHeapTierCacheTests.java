@@ -0,0 +1,83 @@
+package com.wassimlagnaoui.Ecommerce.Configuration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.wassimlagnaoui.Ecommerce.DTO.ProductDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.caffeine.CaffeineCache;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OffHeapTierCacheTests {
+
+	private final CaffeineCache heapCache = new CaffeineCache("orders", Caffeine.newBuilder().build());
+
+	@Test
+	void largeListsAreStoredOffHeap() {
+		OffHeapStore store = store(64 * 1024 * 1024);
+		OffHeapTierCache cache = new OffHeapTierCache(heapCache, store);
+		List<ProductDTO> products = products(10_000);
+
+		cache.put("all", products);
+
+		assertInstanceOf(OffHeapStore.OffHeapValue.class, heapCache.getNativeCache().getIfPresent("all"));
+		assertTrue(store.getUsedBytes() > 0);
+		assertEquals(products, cache.get("all").get());
+		assertEquals(products, cache.get("all", () -> List.of()));
+	}
+
+	@Test
+	void smallValuesStayOnHeap() {
+		OffHeapTierCache cache = new OffHeapTierCache(heapCache, store(64 * 1024 * 1024));
+		List<ProductDTO> products = products(3);
+
+		cache.put("few", products);
+
+		assertEquals(products, heapCache.getNativeCache().getIfPresent("few"));
+		assertEquals(products, cache.get("few", List.class));
+	}
+
+	@Test
+	void valuesOverTheBudgetStayOnHeap() {
+		OffHeapStore store = store(1024);
+		OffHeapTierCache cache = new OffHeapTierCache(heapCache, store);
+		List<ProductDTO> products = products(10_000);
+
+		assertEquals(products, cache.get("all", () -> products));
+
+		assertEquals(products, heapCache.getNativeCache().getIfPresent("all"));
+		assertEquals(0, store.getUsedBytes());
+	}
+
+	@Test
+	void putIfAbsentOnAPresentKeyEncodesNothing() {
+		OffHeapStore store = store(64 * 1024 * 1024);
+		OffHeapTierCache cache = new OffHeapTierCache(heapCache, store);
+		List<ProductDTO> few = products(3);
+		cache.put("page", few);
+
+		assertEquals(few, cache.putIfAbsent("page", products(10_000)).get());
+
+		assertEquals(few, heapCache.getNativeCache().getIfPresent("page"));
+		assertEquals(0, store.getUsedBytes());
+	}
+
+	private static OffHeapStore store(long maxBytes) {
+		return new OffHeapStore(new ObjectMapper(new CBORFactory()), 64 * 1024, maxBytes, new SimpleMeterRegistry());
+	}
+
+	private static List<ProductDTO> products(int count) {
+		List<ProductDTO> products = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			products.add(new ProductDTO("product-" + i, "Product " + i, "Description of product " + i, 9.99 + i, i, 0));
+		}
+		return products;
+	}
+}
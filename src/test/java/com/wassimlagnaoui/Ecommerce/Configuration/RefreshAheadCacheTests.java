@@ -0,0 +1,115 @@
+package com.wassimlagnaoui.Ecommerce.Configuration;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RefreshAheadCacheTests {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	@Test
+	void concurrentMissesLoadEachKeyOnce() throws Exception {
+		RefreshAheadCache cache = cache(Duration.ofMinutes(10), Runnable::run);
+		int callers = 500;
+		String[] keys = {"p1", "p2", "p3"};
+		AtomicInteger[] loads = {new AtomicInteger(), new AtomicInteger(), new AtomicInteger()};
+		CountDownLatch start = new CountDownLatch(1);
+		ExecutorService pool = Executors.newFixedThreadPool(64);
+		try {
+			List<Future<String>> results = new ArrayList<>();
+			for (int i = 0; i < callers; i++) {
+				int k = i % keys.length;
+				results.add(pool.submit(() -> {
+					start.await();
+					return cache.get(keys[k], () -> {
+						loads[k].incrementAndGet();
+						Thread.sleep(100);
+						return "value-" + keys[k];
+					});
+				}));
+			}
+			start.countDown();
+			for (int i = 0; i < callers; i++) {
+				assertEquals("value-" + keys[i % keys.length], results.get(i).get(10, TimeUnit.SECONDS));
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+
+		for (AtomicInteger load : loads) {
+			assertEquals(1, load.get());
+		}
+		assertEquals(keys.length, meterRegistry.get("app.cache.loads").counter().count());
+	}
+
+	@Test
+	void staleValueIsServedWhileOneRefreshReloadsIt() throws Exception {
+		RefreshAheadCache cache = cache(Duration.ofMillis(50), Runnable::run);
+		AtomicInteger loads = new AtomicInteger();
+		assertEquals(1, (int) cache.get("k", loads::incrementAndGet));
+
+		Thread.sleep(80);
+		// Past the TTL but inside the stale window: the old value is returned and reloaded in the background
+		assertEquals(1, (int) cache.get("k", loads::incrementAndGet));
+		assertEquals(2, (int) cache.get("k", loads::incrementAndGet));
+		assertEquals(2, loads.get());
+		assertEquals(1, meterRegistry.get("app.cache.refreshes").counter().count());
+	}
+
+	@Test
+	void evictDuringLoadDiscardsTheLoadedValue() {
+		RefreshAheadCache cache = cache(Duration.ofMinutes(10), Runnable::run);
+		assertEquals("old", cache.get("k", () -> {
+			cache.evict("k");
+			return "old";
+		}));
+		assertEquals("new", cache.get("k", () -> "new"));
+	}
+
+	@Test
+	void refreshCallsTheMethodAgainInsteadOfReplayingItsLoader() throws Exception {
+		RefreshAheadCache cache = cache(Duration.ofMillis(50), Runnable::run);
+		AtomicInteger invocations = new AtomicInteger();
+		AtomicInteger loads = new AtomicInteger();
+		// Stands in for a proxied @Cacheable(sync = true) method, with the reloader CacheRefreshAspect exposes
+		Callable<Integer> method = new Callable<>() {
+			@Override
+			public Integer call() {
+				invocations.incrementAndGet();
+				Callable<?> previous = RefreshAheadCache.exposeReloader(this);
+				try {
+					return cache.get("k", loads::incrementAndGet);
+				} finally {
+					RefreshAheadCache.restoreReloader(previous);
+				}
+			}
+		};
+		assertEquals(1, method.call());
+
+		Thread.sleep(80);
+		assertEquals(1, method.call());
+		assertEquals(2, method.call());
+		// The stale hit's refresh was a third call of the method, not a replay of the stale hit's loader
+		assertEquals(4, invocations.get());
+		assertEquals(2, loads.get());
+	}
+
+	private RefreshAheadCache cache(Duration ttl, Executor refreshExecutor) {
+		RefreshAheadCache.Policy policy = new RefreshAheadCache.Policy(ttl, 0, 0.8, Duration.ofMinutes(1), 1000, 0);
+		return new RefreshAheadCache("test", policy, refreshExecutor, meterRegistry);
+	}
+}
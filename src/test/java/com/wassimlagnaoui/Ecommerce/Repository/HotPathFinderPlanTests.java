@@ -0,0 +1,97 @@
+package com.wassimlagnaoui.Ecommerce.Repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.data.repository.core.RepositoryInformation;
+import org.springframework.data.repository.support.Repositories;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Explain plans of the @HotPathFinder predicates on the test profile's H2 schema (generated from the entity @Index declarations)
+@SpringBootTest
+@ActiveProfiles("test")
+class HotPathFinderPlanTests {
+
+	@Autowired
+	private DataSource dataSource;
+
+	@Autowired
+	private ApplicationContext applicationContext;
+
+	@Test
+	void everyHotPathFinderIsPlannedAsAnIndexLookup() throws SQLException {
+		Map<String, HotPathFinder> finders = hotPathFinders();
+		assertFalse(finders.isEmpty());
+
+		List<String> scans = new ArrayList<>();
+		try (Connection connection = dataSource.getConnection()) {
+			for (Map.Entry<String, HotPathFinder> finder : finders.entrySet()) {
+				String plan = explain(connection, finder.getValue());
+				if (plan.contains(".tableScan")) {
+					scans.add(finder.getKey() + ":\n" + plan);
+				}
+			}
+		}
+		assertTrue(scans.isEmpty(), () -> "Hot-path finders planned as table scans:\n" + String.join("\n", scans));
+	}
+
+	@Test
+	void unindexedPredicateIsReportedAsATableScan() throws SQLException {
+		try (Connection connection = dataSource.getConnection()) {
+			assertTrue(explain(connection, "SELECT * FROM products WHERE description = ?").contains(".tableScan"));
+		}
+	}
+
+	// "Repository.method" -> annotation, for every repository finder marked as a hot path
+	private Map<String, HotPathFinder> hotPathFinders() {
+		Map<String, HotPathFinder> finders = new LinkedHashMap<>();
+		Repositories repositories = new Repositories(applicationContext);
+		for (Class<?> domainType : repositories) {
+			Optional<RepositoryInformation> information = repositories.getRepositoryInformationFor(domainType);
+			if (information.isEmpty()) {
+				continue;
+			}
+			Class<?> repositoryInterface = information.get().getRepositoryInterface();
+			for (Method method : repositoryInterface.getMethods()) {
+				HotPathFinder finder = method.getAnnotation(HotPathFinder.class);
+				if (finder != null) {
+					finders.put(repositoryInterface.getSimpleName() + "." + method.getName(), finder);
+				}
+			}
+		}
+		return finders;
+	}
+
+	// Equality on every declared column, the access path the finder's index has to serve
+	private static String explain(Connection connection, HotPathFinder finder) throws SQLException {
+		StringBuilder sql = new StringBuilder("SELECT * FROM ").append(finder.table()).append(" WHERE ");
+		for (int i = 0; i < finder.columns().length; i++) {
+			sql.append(i > 0 ? " AND " : "").append(finder.columns()[i]).append(" = ?");
+		}
+		return explain(connection, sql.toString());
+	}
+
+	private static String explain(Connection connection, String sql) throws SQLException {
+		try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql);
+			 ResultSet resultSet = statement.executeQuery()) {
+			resultSet.next();
+			return resultSet.getString(1);
+		}
+	}
+}
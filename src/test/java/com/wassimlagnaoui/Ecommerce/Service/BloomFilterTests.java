@@ -0,0 +1,37 @@
+package com.wassimlagnaoui.Ecommerce.Service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BloomFilterTests {
+
+	@Test
+	void addedKeysAreNeverReportedAbsent() {
+		BloomFilter filter = new BloomFilter(10_000, 0.01);
+		for (int i = 0; i < 10_000; i++) {
+			filter.put("ORD-" + i);
+		}
+		for (int i = 0; i < 10_000; i++) {
+			assertTrue(filter.mightContain("ORD-" + i));
+		}
+	}
+
+	@Test
+	void falsePositiveRateStaysNearTargetAtExpectedSize() {
+		BloomFilter filter = new BloomFilter(50_000, 0.01);
+		for (int i = 0; i < 50_000; i++) {
+			filter.put(UUID.randomUUID().toString());
+		}
+		int falsePositives = 0;
+		int probes = 100_000;
+		for (int i = 0; i < probes; i++) {
+			if (filter.mightContain("missing-" + i)) {
+				falsePositives++;
+			}
+		}
+		assertTrue(falsePositives < probes * 0.02, "false positives: " + falsePositives);
+	}
+}
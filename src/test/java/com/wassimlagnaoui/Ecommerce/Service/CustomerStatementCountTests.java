@@ -0,0 +1,118 @@
+package com.wassimlagnaoui.Ecommerce.Service;
+
+import com.wassimlagnaoui.Ecommerce.Domain.Address;
+import com.wassimlagnaoui.Ecommerce.Domain.Customer;
+import com.wassimlagnaoui.Ecommerce.Repository.AddressRepository;
+import com.wassimlagnaoui.Ecommerce.Repository.CustomerRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// JDBC statement counts (Hibernate statistics, enabled in the test profile) of the customer read paths:
+// customers' lazy addresses must not come back as one query per customer
+@SpringBootTest
+@ActiveProfiles("test")
+class CustomerStatementCountTests {
+
+	private static final int CUSTOMERS = 20;
+	private static final String PASSWORD = "secret-password";
+
+	@Autowired
+	private CustomerService customerService;
+
+	@Autowired
+	private CustomerRepository customerRepository;
+
+	@Autowired
+	private AddressRepository addressRepository;
+
+	@Autowired
+	private AuthenticationManager authenticationManager;
+
+	@Autowired
+	private PasswordEncoder passwordEncoder;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	private final List<Customer> customers = new ArrayList<>();
+
+	@BeforeEach
+	void createCustomersWithAddresses() {
+		String encodedPassword = passwordEncoder.encode(PASSWORD);
+		for (int i = 0; i < CUSTOMERS; i++) {
+			Customer customer = new Customer();
+			customer.setName("Customer " + i);
+			customer.setEmail(UUID.randomUUID() + "@example.com");
+			customer.setPassword(encodedPassword);
+			customer.setTotalSpent(0.0);
+			customers.add(customerRepository.save(customer));
+		}
+		List<Address> addresses = new ArrayList<>();
+		for (Customer customer : customers) {
+			for (int i = 0; i < 2; i++) {
+				Address address = new Address();
+				address.setStreet(i + " Main Street");
+				address.setCity("Springfield");
+				address.setCustomer(customer);
+				addresses.add(address);
+			}
+		}
+		addressRepository.saveAll(addresses);
+	}
+
+	@Test
+	void getAllCustomersIsOneStatement() {
+		Statistics statistics = statistics();
+
+		int returned = customerService.getAllCustomers().size();
+
+		assertTrue(returned >= CUSTOMERS);
+		assertEquals(1, statistics.getPrepareStatementCount());
+	}
+
+	@Test
+	void loginIsOneStatement() {
+		Statistics statistics = statistics();
+
+		Authentication authentication = authenticationManager.authenticate(
+				new UsernamePasswordAuthenticationToken(customers.get(0).getEmail(), PASSWORD));
+
+		assertTrue(authentication.isAuthenticated());
+		assertEquals(1, statistics.getPrepareStatementCount());
+	}
+
+	@Test
+	void addressesOfManyCustomersAreOneStatement() {
+		List<String> ids = customers.stream().map(Customer::getId).toList();
+		Statistics statistics = statistics();
+
+		int addresses = customerService.getAddressesByCustomerIds(ids).values().stream().mapToInt(List::size).sum();
+
+		assertEquals(CUSTOMERS * 2, addresses);
+		assertEquals(1, statistics.getPrepareStatementCount());
+	}
+
+	// Counters start from zero for the call under test
+	private Statistics statistics() {
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+		return statistics;
+	}
+}
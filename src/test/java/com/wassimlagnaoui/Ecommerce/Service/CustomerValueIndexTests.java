@@ -0,0 +1,110 @@
+package com.wassimlagnaoui.Ecommerce.Service;
+
+import com.wassimlagnaoui.Ecommerce.DTO.CustomerRankDTO;
+import com.wassimlagnaoui.Ecommerce.DTO.CustomerSummaryDTO;
+import com.wassimlagnaoui.Ecommerce.Domain.Customer;
+import com.wassimlagnaoui.Ecommerce.Repository.CustomerRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Spend ranking pages at the edges, and reloads that race with spend updates.
+// A tiny load batch makes a reload take many queries, so updates land in the middle of it.
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:customervalue",
+		"app.customers.value-index.load-batch-size=2"
+})
+@ActiveProfiles("test")
+class CustomerValueIndexTests {
+
+	@Autowired
+	private CustomerValueIndex customerValueIndex;
+
+	@Autowired
+	private CustomerService customerService;
+
+	@Autowired
+	private CustomerRepository customerRepository;
+
+	@Test
+	void rankingPagesStayWithinTheIndex() throws InterruptedException {
+		reload();
+		// Far above any other customer in the database; the ranking only counts spend above it
+		double floor = 1_000_000.0;
+		List<String> ids = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			ids.add(customer(floor + 1 + i).getId());
+		}
+
+		List<CustomerSummaryDTO> top = customerValueIndex.getRanking(floor, 0, Integer.MAX_VALUE);
+		assertEquals(List.of(ids.get(4), ids.get(3), ids.get(2), ids.get(1), ids.get(0)),
+				top.stream().map(CustomerSummaryDTO::getId).toList());
+		assertEquals(List.of(ids.get(2), ids.get(1)),
+				customerValueIndex.getRanking(floor, 1, 2).stream().map(CustomerSummaryDTO::getId).toList());
+		assertTrue(customerValueIndex.getRanking(floor, 2, 3).isEmpty());
+		assertTrue(customerValueIndex.getRanking(floor, Integer.MAX_VALUE, Integer.MAX_VALUE).isEmpty());
+	}
+
+	@Test
+	void spendRecordedDuringAReloadIsKept() throws Exception {
+		List<String> ids = new ArrayList<>();
+		for (int i = 0; i < 50; i++) {
+			ids.add(customer(0.0).getId());
+		}
+		AtomicBoolean reloaded = new AtomicBoolean();
+		CompletableFuture<Integer> writer = CompletableFuture.supplyAsync(() -> {
+			int written = 0;
+			while (!reloaded.get() || written < 5) {
+				customerService.updateTotalSpent(ids.get(written % ids.size()), 1.0);
+				written++;
+			}
+			return written;
+		});
+
+		try {
+			reload();
+		} finally {
+			reloaded.set(true);
+		}
+		assertTrue(writer.get(60, TimeUnit.SECONDS) >= 5);
+
+		for (String id : ids) {
+			CustomerRankDTO rank = customerValueIndex.getRank(id);
+			assertEquals(customerRepository.findById(id).orElseThrow().getTotalSpent(), rank.getTotalSpent(), 1e-9);
+		}
+	}
+
+	// The startup load runs in the background; wait for it instead of failing with "already running"
+	private void reload() throws InterruptedException {
+		while (true) {
+			try {
+				customerValueIndex.reload();
+				return;
+			} catch (IllegalStateException e) {
+				Thread.sleep(10);
+			}
+		}
+	}
+
+	private Customer customer(double totalSpent) {
+		Customer customer = new Customer();
+		customer.setName("Value Customer");
+		customer.setEmail(UUID.randomUUID() + "@example.com");
+		customer.setPassword("not-used");
+		customer.setTotalSpent(totalSpent);
+		customer = customerRepository.save(customer);
+		customerValueIndex.recordSpend(customer.getId(), totalSpent);
+		return customer;
+	}
+}
@@ -0,0 +1,73 @@
+package com.wassimlagnaoui.Ecommerce.Service;
+
+import com.wassimlagnaoui.Ecommerce.Domain.Customer;
+import com.wassimlagnaoui.Ecommerce.Repository.CustomerRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Keys written behind the guard's back (another instance, a migration) are found again after a rebuild
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:lookupguard")
+@ActiveProfiles("test")
+class LookupGuardTests {
+
+	@Autowired
+	private LookupGuard lookupGuard;
+
+	@Autowired
+	private CustomerService customerService;
+
+	@Autowired
+	private CustomerRepository customerRepository;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Test
+	void emailsInsertedElsewhereAreFoundAfterARebuild() throws InterruptedException {
+		awaitEmailFilter();
+
+		// Saved through the repository: the guard never hears of it
+		Customer customer = new Customer();
+		customer.setName("Backfilled Customer");
+		customer.setEmail(UUID.randomUUID() + "@example.com");
+		customer.setPassword("not-used");
+		customer.setTotalSpent(0.0);
+		customerRepository.save(customer);
+		assertFalse(customerService.existsByEmail(customer.getEmail()));
+
+		// The startup load may still be finishing, in which case the rebuild is skipped
+		long deadline = System.currentTimeMillis() + 30_000;
+		lookupGuard.rebuild();
+		while (!customerService.existsByEmail(customer.getEmail()) && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+			lookupGuard.rebuild();
+		}
+		assertTrue(customerService.existsByEmail(customer.getEmail()));
+	}
+
+	// The startup load runs in the background; wait until the email filter answers a lookup on its own
+	private void awaitEmailFilter() throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 30_000;
+		while (System.currentTimeMillis() < deadline) {
+			double before = filteredOut();
+			customerService.existsByEmail(UUID.randomUUID() + "@example.com");
+			if (filteredOut() > before) {
+				return;
+			}
+			Thread.sleep(10);
+		}
+		throw new AssertionError("Lookup guard did not load");
+	}
+
+	private double filteredOut() {
+		return meterRegistry.get("app.lookup.guard.avoided").tag("key", "customerEmail").tag("reason", "filter").counter().count();
+	}
+}
@@ -0,0 +1,149 @@
+package com.wassimlagnaoui.Ecommerce.Service;
+
+import com.wassimlagnaoui.Ecommerce.DTO.ColumnarReportRow;
+import com.wassimlagnaoui.Ecommerce.DTO.OrderDTO;
+import com.wassimlagnaoui.Ecommerce.DTO.OrderItemDTO;
+import com.wassimlagnaoui.Ecommerce.Domain.Customer;
+import com.wassimlagnaoui.Ecommerce.Domain.Product;
+import com.wassimlagnaoui.Ecommerce.Repository.CustomerRepository;
+import com.wassimlagnaoui.Ecommerce.Repository.OrderRepository;
+import com.wassimlagnaoui.Ecommerce.Repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Columnar reports against the order write paths, and reloads that race with those writes.
+// A tiny load batch makes a reload take many queries, so writes land in the middle of it.
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:columnar",
+		"app.analytics.columnar.enabled=true",
+		"app.analytics.columnar.load-batch-size=2"
+})
+@ActiveProfiles("test")
+class OrderColumnStoreTests {
+
+	@Autowired
+	private OrderColumnStore orderColumnStore;
+
+	@Autowired
+	private OrderService orderService;
+
+	@Autowired
+	private OrderRepository orderRepository;
+
+	@Autowired
+	private CustomerRepository customerRepository;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	private Customer customer;
+	private Product pen;
+	private Product notebook;
+
+	@BeforeEach
+	void createCustomerAndProducts() {
+		customer = new Customer();
+		customer.setName("Columnar Customer");
+		customer.setEmail(UUID.randomUUID() + "@example.com");
+		customer.setPassword("not-used");
+		customer.setTotalSpent(0.0);
+		customer = customerRepository.save(customer);
+		pen = productRepository.save(product("Pen " + UUID.randomUUID(), 10.0));
+		notebook = productRepository.save(product("Notebook " + UUID.randomUUID(), 25.0));
+	}
+
+	@Test
+	void reportsFollowTheOrderWritePathsAndMatchAReload() throws InterruptedException {
+		reload();
+		OrderDTO cancelled = orderService.createOrder(customer.getId(), List.of(item(pen, 2), item(notebook, 1)));
+		OrderDTO pending = orderService.createOrder(customer.getId(), List.of(item(pen, 3)));
+		orderService.addOrderItem(pending.getId(), item(notebook, 2));
+		orderService.cancelOrder(cancelled.getId());
+
+		assertReports();
+		reload();
+		assertReports();
+	}
+
+	@Test
+	void ordersCommittedDuringAReloadAreKept() throws Exception {
+		for (int i = 0; i < 50; i++) {
+			orderService.createOrder(customer.getId(), List.of(item(pen, 1)));
+		}
+		AtomicBoolean reloaded = new AtomicBoolean();
+		CompletableFuture<Integer> writer = CompletableFuture.supplyAsync(() -> {
+			int written = 0;
+			while (!reloaded.get() || written < 5) {
+				orderService.createOrder(customer.getId(), List.of(item(pen, 1)));
+				written++;
+			}
+			return written;
+		});
+
+		try {
+			reload();
+		} finally {
+			reloaded.set(true);
+		}
+		assertTrue(writer.get(60, TimeUnit.SECONDS) >= 5);
+
+		long liveOrders = orderColumnStore.getOrdersByStatus().stream().mapToLong(ColumnarReportRow::getRows).sum();
+		assertEquals(orderRepository.count(), liveOrders);
+	}
+
+	// Pen: 2 in the cancelled order, 3 in the pending one. Notebook: 1 cancelled, 2 added to the pending order.
+	private void assertReports() {
+		assertRow(orderColumnStore.getProductSummary(pen.getName(), null), 2, 5, 50.0);
+		assertRow(orderColumnStore.getProductSummary(pen.getName(), "PENDING"), 1, 3, 30.0);
+		assertRow(orderColumnStore.getProductSummary(notebook.getName(), "CANCELLED"), 1, 1, 25.0);
+		assertRow(orderColumnStore.getProductSummary(notebook.getName(), "PENDING"), 1, 2, 50.0);
+	}
+
+	private static void assertRow(ColumnarReportRow row, long rows, long units, double revenue) {
+		assertEquals(rows, row.getRows());
+		assertEquals(units, row.getUnits());
+		assertEquals(revenue, row.getRevenue(), 1e-9);
+	}
+
+	// The startup load runs in the background; wait for it instead of failing with "already running"
+	private void reload() throws InterruptedException {
+		while (true) {
+			try {
+				orderColumnStore.reload();
+				return;
+			} catch (IllegalStateException e) {
+				Thread.sleep(10);
+			}
+		}
+	}
+
+	private static Product product(String name, double price) {
+		Product product = new Product();
+		product.setName(name);
+		product.setDescription(name);
+		product.setPrice(price);
+		product.setStock(100_000);
+		product.setSalesCount(0);
+		return product;
+	}
+
+	private static OrderItemDTO item(Product product, int quantity) {
+		OrderItemDTO item = new OrderItemDTO();
+		item.setProductName(product.getName());
+		item.setQuantity(quantity);
+		item.setPrice(product.getPrice());
+		return item;
+	}
+}
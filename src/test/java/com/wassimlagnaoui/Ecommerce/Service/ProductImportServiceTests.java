@@ -0,0 +1,56 @@
+package com.wassimlagnaoui.Ecommerce.Service;
+
+import com.wassimlagnaoui.Ecommerce.DTO.ProductImportError;
+import com.wassimlagnaoui.Ecommerce.DTO.ProductImportResult;
+import com.wassimlagnaoui.Ecommerce.Repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Every row of an import is counted exactly once: inserted, updated or failed
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:productimport")
+@ActiveProfiles("test")
+class ProductImportServiceTests {
+
+	@Autowired
+	private ProductImportService productImportService;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Test
+	void everyRowHasOneOutcomeWhenAChunkRollsBack() throws IOException {
+		String prefix = UUID.randomUUID().toString();
+		String csv = String.join("\n",
+				"name,description,price,stock,categories",
+				prefix + "-pen,First pen,1.0,1,",
+				prefix + "-pen,Second pen,2.0,2,",
+				",No name,1.0,1,",
+				prefix + "-marker,Marker,1.0,1,No Such Category",
+				// Too long for the column: the chunk rolls back and its rows are saved one by one
+				prefix + "-pencil," + "x".repeat(300) + ",1.0,1,",
+				prefix + "-eraser,Eraser,1.0,1,");
+
+		ProductImportResult result = productImportService.importProducts(
+				new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), "csv", false);
+
+		assertEquals("COMPLETED", result.getStatus());
+		assertEquals(6, result.getRowsRead());
+		assertEquals(2, result.getInserted());
+		assertEquals(0, result.getUpdated());
+		assertEquals(4, result.getFailed());
+		assertEquals(List.of(2L, 4L, 5L, 6L), result.getErrors().stream().map(ProductImportError::getRowNumber).sorted().toList());
+		assertEquals(2.0, productRepository.findByName(prefix + "-pen").orElseThrow().getPrice());
+		assertTrue(productRepository.findByName(prefix + "-eraser").isPresent());
+	}
+}
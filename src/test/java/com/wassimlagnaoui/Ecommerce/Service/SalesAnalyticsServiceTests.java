@@ -0,0 +1,114 @@
+package com.wassimlagnaoui.Ecommerce.Service;
+
+import com.wassimlagnaoui.Ecommerce.DTO.OrderDTO;
+import com.wassimlagnaoui.Ecommerce.DTO.OrderItemDTO;
+import com.wassimlagnaoui.Ecommerce.DTO.SalesRollupDTO;
+import com.wassimlagnaoui.Ecommerce.Domain.Customer;
+import com.wassimlagnaoui.Ecommerce.Domain.Product;
+import com.wassimlagnaoui.Ecommerce.Repository.CustomerRepository;
+import com.wassimlagnaoui.Ecommerce.Repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Rollups after a rebuild that races with order writes: every committed change is counted exactly once.
+// Orders are spread over many days, so the rebuild runs many partition queries while cancellations land.
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:analytics",
+		"app.analytics.rebuild-on-startup=false",
+		"app.analytics.rebuild-parallelism=1"
+})
+@ActiveProfiles("test")
+class SalesAnalyticsServiceTests {
+
+	private static final int DAYS = 60;
+
+	@Autowired
+	private SalesAnalyticsService salesAnalyticsService;
+
+	@Autowired
+	private OrderService orderService;
+
+	@Autowired
+	private CustomerRepository customerRepository;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private Customer customer;
+	private Product pen;
+
+	@BeforeEach
+	void createCustomerAndProduct() {
+		customer = new Customer();
+		customer.setName("Analytics Customer");
+		customer.setEmail(UUID.randomUUID() + "@example.com");
+		customer.setPassword("not-used");
+		customer.setTotalSpent(0.0);
+		customer = customerRepository.save(customer);
+
+		pen = new Product();
+		pen.setName("Pen " + UUID.randomUUID());
+		pen.setDescription("Pen");
+		pen.setPrice(10.0);
+		pen.setStock(100_000);
+		pen.setSalesCount(0);
+		pen = productRepository.save(pen);
+	}
+
+	@Test
+	void changesCommittedDuringARebuildAreCountedOnce() throws Exception {
+		// One order per day, oldest first
+		List<String> backdated = new ArrayList<>();
+		for (int day = DAYS; day > 0; day--) {
+			OrderDTO order = orderService.createOrder(customer.getId(), List.of(item(1)));
+			jdbcTemplate.update("UPDATE orders SET created_at = ? WHERE id = ?", LocalDateTime.now().minusDays(day), order.getId());
+			backdated.add(order.getId());
+		}
+
+		AtomicBoolean rebuilt = new AtomicBoolean();
+		CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> {
+			int cancelled = 0;
+			while (!rebuilt.get() && cancelled < backdated.size()) {
+				orderService.cancelOrder(backdated.get(cancelled++));
+				orderService.createOrder(customer.getId(), List.of(item(1)));
+			}
+		});
+		try {
+			salesAnalyticsService.rebuild();
+		} finally {
+			rebuilt.set(true);
+		}
+		writer.get(60, TimeUnit.SECONDS);
+
+		// Every cancellation came with a new order, so DAYS orders of one pen each are still live
+		long units = salesAnalyticsService.getRollups(SalesAnalyticsService.Granularity.DAY, SalesAnalyticsService.Dimension.PRODUCT,
+						pen.getId(), LocalDateTime.now().minusDays(DAYS + 1), LocalDateTime.now().plusDays(1))
+				.stream().mapToLong(SalesRollupDTO::getUnits).sum();
+		assertEquals(DAYS, units);
+	}
+
+	private OrderItemDTO item(int quantity) {
+		OrderItemDTO item = new OrderItemDTO();
+		item.setProductName(pen.getName());
+		item.setQuantity(quantity);
+		item.setPrice(pen.getPrice());
+		return item;
+	}
+}
@@ -0,0 +1,123 @@
+package com.wassimlagnaoui.Ecommerce.Service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpaceSavingSketchTests {
+
+	@Test
+	void countsAreExactWhileKeysFitInCapacity() {
+		SpaceSavingSketch sketch = new SpaceSavingSketch(10);
+		Map<String, Long> exact = new HashMap<>();
+		Random random = new Random(7);
+		for (int i = 0; i < 5_000; i++) {
+			String key = "p" + random.nextInt(10);
+			long units = 1 + random.nextInt(3);
+			sketch.add(key, units);
+			exact.merge(key, units, Long::sum);
+		}
+
+		exact.forEach((key, count) -> {
+			assertEquals((long) count, sketch.estimate(key));
+			assertEquals(0, sketch.error(key));
+		});
+	}
+
+	@Test
+	void skewedStreamMatchesBruteForceWithinErrorBounds() {
+		int capacity = 200;
+		SpaceSavingSketch sketch = new SpaceSavingSketch(capacity);
+		Map<String, Long> exact = new HashMap<>();
+		double[] cumulative = zipf(5_000, 1.2);
+		Random random = new Random(42);
+		for (int i = 0; i < 200_000; i++) {
+			String key = "p" + sample(cumulative, random.nextDouble());
+			long units = 1 + random.nextInt(4);
+			sketch.add(key, units);
+			exact.merge(key, units, Long::sum);
+		}
+
+		long total = sketch.total();
+		assertEquals(exact.values().stream().mapToLong(Long::longValue).sum(), total);
+
+		// Every key above total / capacity is tracked, and no estimate is off by more than its error
+		exact.forEach((key, count) -> {
+			if (count > total / capacity) {
+				assertTrue(sketch.estimate(key) >= count, "heavy hitter " + key + " must be tracked");
+			}
+		});
+		for (SpaceSavingSketch.Estimate estimate : sketch.top(capacity)) {
+			long trueCount = exact.get(estimate.key());
+			assertTrue(estimate.count() >= trueCount);
+			assertTrue(estimate.count() - estimate.error() <= trueCount);
+		}
+
+		// The top 10 agree with brute-force counting
+		List<String> expectedTop = exact.entrySet().stream()
+				.sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()))
+				.limit(10)
+				.map(Map.Entry::getKey)
+				.toList();
+		List<String> sketchTop = sketch.top(10).stream()
+				.map(SpaceSavingSketch.Estimate::key)
+				.toList();
+		assertEquals(expectedTop, sketchTop);
+	}
+
+	@Test
+	void mergedSlotsNeverUndercountTrackedHeavyHitters() {
+		SpaceSavingSketch first = new SpaceSavingSketch(50);
+		SpaceSavingSketch second = new SpaceSavingSketch(50);
+		Map<String, Long> exact = new HashMap<>();
+		double[] cumulative = zipf(1_000, 1.1);
+		Random random = new Random(3);
+		for (int i = 0; i < 50_000; i++) {
+			String key = "p" + sample(cumulative, random.nextDouble());
+			(i % 2 == 0 ? first : second).add(key, 1);
+			exact.merge(key, 1L, Long::sum);
+		}
+
+		Map<String, long[]> merged = new HashMap<>();
+		first.addTo(merged);
+		second.addTo(merged);
+		String heaviest = exact.entrySet().stream().max(Map.Entry.comparingByValue()).orElseThrow().getKey();
+		long[] totals = merged.get(heaviest);
+		assertTrue(totals[0] >= exact.get(heaviest));
+		assertTrue(totals[0] - totals[1] <= exact.get(heaviest));
+	}
+
+	private static double[] zipf(int keys, double exponent) {
+		double[] cumulative = new double[keys];
+		double sum = 0;
+		for (int k = 0; k < keys; k++) {
+			sum += 1.0 / Math.pow(k + 1, exponent);
+			cumulative[k] = sum;
+		}
+		for (int k = 0; k < keys; k++) {
+			cumulative[k] /= sum;
+		}
+		return cumulative;
+	}
+
+	private static int sample(double[] cumulative, double u) {
+		int low = 0;
+		int high = cumulative.length - 1;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (cumulative[mid] < u) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+}